@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+# Shared setup for compare-*.sh scripts that restart the backend with one setting per run
+# and drive the same simulator load through run-distributed.sh. Source it, do not run it:
+#   DEFAULT_CONN=1000 DEFAULT_PART=2 source "$(dirname "${BASH_SOURCE[0]}")/backend-variant-run.sh" "$@"
+# BACKEND_RESTART_CMD is run with the variant's environment variable exported, e.g.
+#   BACKEND_RESTART_CMD='INGESTION_CHANNEL_MODE=$MODE docker compose up -d --force-recreate <backend-service>'
+# BACKEND_LOG_CMD (optional) streams backend logs into each attempt dir so business-summary.json can be built, e.g.
+#   BACKEND_LOG_CMD='docker compose logs -f --since 0s <backend-service>'
+
+ROOT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+cd "$ROOT_DIR"
+
+CONN="${1:-${DEFAULT_CONN:-1000}}"
+PART="${2:-${DEFAULT_PART:-2}}"
+PARA="${3:-120}"
+MPS="${4:-1}"
+DUR="${5:-60}"
+QOS="${6:-1}"
+SIM_TASK="${SIM_TASK:-mqttLoadTestHive}"
+BACKEND_RESTART_CMD="${BACKEND_RESTART_CMD:-}"
+BACKEND_LOG_CMD="${BACKEND_LOG_CMD:-}"
+BACKEND_WARMUP_SECONDS="${BACKEND_WARMUP_SECONDS:-20}"
+
+# usage: run_backend_variant <run-label> <property=value> <ENV_NAME> <env-value>
+run_backend_variant() {
+  local label="$1"
+  local setting="$2"
+  local env_name="$3"
+  local env_value="$4"
+  local run_id="${label}-${CONN}-$(date +%Y%m%d-%H%M%S)"
+  local attempt_dir="docs/loadtest-runs/${run_id}/attempt-1"
+  local log_pid=""
+
+  if [[ -n "$BACKEND_RESTART_CMD" ]]; then
+    echo "[COMPARE] restarting backend with ${setting}"
+    env "${env_name}=${env_value}" bash -c "$BACKEND_RESTART_CMD"
+    sleep "$BACKEND_WARMUP_SECONDS"
+  else
+    echo "[COMPARE] BACKEND_RESTART_CMD not set; make sure the backend runs with ${setting}"
+  fi
+
+  if [[ -n "$BACKEND_LOG_CMD" ]]; then
+    (
+      until [[ -d "$attempt_dir" ]]; do sleep 1; done
+      bash -c "$BACKEND_LOG_CMD" 2>&1 | tee "$attempt_dir/backend.log" >/dev/null
+    ) &
+    log_pid=$!
+  fi
+
+  echo "[COMPARE] ${setting} runId=${run_id}"
+  SIM_TASK="$SIM_TASK" RUN_ID="$run_id" MAX_ATTEMPTS=1 PART_TIMEOUT_SECONDS="$((DUR + 300))" \
+    ./scripts/loadtest/run-distributed.sh "$CONN" "$PART" "$PARA" "$MPS" "$DUR" "$QOS" || true
+
+  if [[ -n "$log_pid" ]]; then
+    kill "$log_pid" 2>/dev/null || true
+    wait "$log_pid" 2>/dev/null || true
+    ./scripts/loadtest/summarize-ingestion-metrics.sh "$attempt_dir" || true
+    if [[ -f "$attempt_dir/backend.log" ]]; then
+      echo "[COMPARE] backend log lines: $(wc -l < "$attempt_dir/backend.log")"
+    fi
+  fi
+}
@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Compares ingestion.channel.mode values under the same simulator load.
+# BACKEND_RESTART_CMD is run with MODE exported, e.g.
+#   BACKEND_RESTART_CMD='INGESTION_CHANNEL_MODE=$MODE docker compose up -d --force-recreate <backend-service>'
+# See backend-variant-run.sh for BACKEND_LOG_CMD and the other shared settings.
+
+DEFAULT_CONN=1000 DEFAULT_PART=2 source "$(dirname "${BASH_SOURCE[0]}")/backend-variant-run.sh" "$@"
+
+MODES="${MODES:-direct executor virtual}"
+WRITE_MODE_LABEL="${WRITE_MODE_LABEL:-strict}"
+
+for mode in $MODES; do
+  run_backend_variant "${mode}-${WRITE_MODE_LABEL}" "ingestion.channel.mode=${mode}" MODE "$mode"
+done
+
+echo "[COMPARE] completed (record results in docs/load-test-results.md)"
@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Compares ingestion throughput with hot-path log sampling disabled (every message logged) and enabled.
+# BACKEND_RESTART_CMD is run with HOT_LOG_ENABLED exported, e.g.
+#   BACKEND_RESTART_CMD='INGESTION_HOT_LOG_ENABLED=$HOT_LOG_ENABLED docker compose up -d --force-recreate <backend-service>'
+# See backend-variant-run.sh for BACKEND_LOG_CMD and the other shared settings.
+
+DEFAULT_CONN=3000 DEFAULT_PART=4 source "$(dirname "${BASH_SOURCE[0]}")/backend-variant-run.sh" "$@"
+
+VARIANTS="${VARIANTS:-false true}"
+
+for enabled in $VARIANTS; do
+  label="hotlog-$([[ "$enabled" == "true" ]] && echo sampled || echo full)"
+  run_backend_variant "$label" "ingestion.hot-log.enabled=${enabled}" HOT_LOG_ENABLED "$enabled"
+done
+
+echo "[COMPARE] completed (record results in docs/load-test-results.md)"
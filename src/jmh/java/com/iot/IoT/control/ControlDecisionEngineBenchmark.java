@@ -0,0 +1,133 @@
+package com.iot.IoT.control;
+
+import com.iot.IoT.entity.Device;
+import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.registry.port.DeviceRegistryInvalidationPort;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
+import com.iot.IoT.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// 할당 확인: ./gradlew jmh -Pjmh.includes=ControlDecisionEngineBenchmark -Pjmh.profilers=gc
+// primitive 경로는 gc.alloc.rate.norm 이 0 B/op 근처여야 한다.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class ControlDecisionEngineBenchmark {
+
+    private static final BigDecimal DEADBAND = new BigDecimal("0.3");
+    private static final int DEVICE_COUNT = 1_024;
+
+    private String[] deviceIds;
+    private double[] temps;
+    private DeviceStatusMessage[] messages;
+    private ControlDecisionEngine engine;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        deviceIds = new String[DEVICE_COUNT];
+        temps = new double[DEVICE_COUNT];
+        messages = new DeviceStatusMessage[DEVICE_COUNT];
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            deviceIds[i] = "SV-%06d".formatted(i);
+            temps[i] = 63.5 + (i % 30) * 0.1;
+            messages[i] = new DeviceStatusMessage(
+                    deviceIds[i],
+                    BigDecimal.valueOf(temps[i]),
+                    DeviceState.HEATING,
+                    new BigDecimal("65.0")
+            );
+        }
+
+        engine = new ControlDecisionEngine(DEADBAND, registryWithPolicy());
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            // Prime per-device bounds and check the primitive path agrees with the BigDecimal baseline.
+            ControlAction primitive = engine.decide(deviceIds[i], temps[i], 65.0, DeviceState.HEATING);
+            if (primitive != legacyDecide(messages[i])) {
+                throw new IllegalStateException("Decision mismatch for " + deviceIds[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public ControlAction bigDecimalBaseline() {
+        return legacyDecide(messages[nextIndex()]);
+    }
+
+    @Benchmark
+    public ControlAction primitivePerDevicePolicy() {
+        int index = nextIndex();
+        return engine.decide(deviceIds[index], temps[index], 65.0, DeviceState.HEATING);
+    }
+
+    private int nextIndex() {
+        int index = cursor;
+        cursor = (index + 1) & (DEVICE_COUNT - 1);
+        return index;
+    }
+
+    // Pre-change ControlDecisionEngine.decide, kept here as the baseline.
+    private static ControlAction legacyDecide(DeviceStatusMessage message) {
+        if (message.state() == DeviceState.OFF) {
+            return ControlAction.HEAT_OFF;
+        }
+        BigDecimal lowerBound = message.targetTemp().subtract(DEADBAND);
+        BigDecimal upperBound = message.targetTemp().add(DEADBAND);
+        if (message.temp().compareTo(lowerBound) < 0) {
+            return ControlAction.HEAT_ON;
+        }
+        if (message.temp().compareTo(upperBound) > 0) {
+            return ControlAction.HEAT_OFF;
+        }
+        return ControlAction.HOLD;
+    }
+
+    // Every device has a hysteresis-only policy equal to the global deadband, so results match the baseline.
+    private static DeviceRegistryCache registryWithPolicy() {
+        DeviceRepository repository = (DeviceRepository) Proxy.newProxyInstance(
+                DeviceRepository.class.getClassLoader(),
+                new Class<?>[]{DeviceRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findByDeviceId")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Device device = new Device();
+                    device.setDeviceId((String) args[0]);
+                    device.setEnabled(true);
+                    device.setControlHysteresis(DEADBAND);
+                    return Optional.of(device);
+                }
+        );
+        DeviceRegistryInvalidationPort noBroadcast = new DeviceRegistryInvalidationPort() {
+            @Override
+            public void broadcast(String deviceId) {
+            }
+
+            @Override
+            public void subscribe(Consumer<String> listener) {
+            }
+        };
+        return new DeviceRegistryCache(repository, noBroadcast, new SimpleMeterRegistry(), DEVICE_COUNT * 2L, 3_600);
+    }
+}
@@ -0,0 +1,98 @@
+package com.iot.IoT.ingestion.dedup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class TelemetryDeduplicatorBenchmark {
+
+    private static final long WINDOW_SECONDS = 3_600;
+
+    @Param({"10000", "100000", "1000000"})
+    public int trackedDevices;
+
+    private String[] deviceIds;
+    private byte[][] payloads;
+    private String[] rawPayloads;
+    private TelemetryDeduplicator deduplicator;
+    private LegacyRecentPayloadDeduplicator legacyDeduplicator;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        deviceIds = new String[trackedDevices];
+        payloads = new byte[trackedDevices][];
+        rawPayloads = new String[trackedDevices];
+        deduplicator = new TelemetryDeduplicator(WINDOW_SECONDS);
+        legacyDeduplicator = new LegacyRecentPayloadDeduplicator(Duration.ofSeconds(WINDOW_SECONDS));
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < trackedDevices; i++) {
+            deviceIds[i] = "SV-%07d".formatted(i);
+            rawPayloads[i] = "{\"deviceId\":\"%s\",\"temp\":%d.5,\"targetTemp\":65.0,\"state\":\"HEATING\"}"
+                    .formatted(deviceIds[i], 40 + (i % 30));
+            payloads[i] = rawPayloads[i].getBytes(StandardCharsets.UTF_8);
+            deduplicator.isDuplicate(deviceIds[i], payloads[i], now);
+            legacyDeduplicator.isDuplicate(deviceIds[i], rawPayloads[i], Instant.ofEpochMilli(now));
+        }
+    }
+
+    @Benchmark
+    public boolean timeBucketedSlot() {
+        int index = nextIndex();
+        return deduplicator.isDuplicate(deviceIds[index], payloads[index], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public boolean legacyFullScan() {
+        int index = nextIndex();
+        return legacyDeduplicator.isDuplicate(deviceIds[index], rawPayloads[index], Instant.now());
+    }
+
+    private int nextIndex() {
+        int index = cursor;
+        cursor = index + 1 == trackedDevices ? 0 : index + 1;
+        return index;
+    }
+
+    static final class LegacyRecentPayloadDeduplicator {
+
+        private final Map<String, Instant> recentPayloads = new ConcurrentHashMap<>();
+        private final Duration window;
+
+        LegacyRecentPayloadDeduplicator(Duration window) {
+            this.window = window;
+        }
+
+        boolean isDuplicate(String deviceId, String rawPayload, Instant now) {
+            Instant threshold = now.minus(window);
+            recentPayloads.entrySet().removeIf(entry -> entry.getValue().isBefore(threshold));
+
+            String dedupKey = deviceId + ":" + rawPayload;
+            Instant previous = recentPayloads.put(dedupKey, now);
+            return previous != null && !previous.isBefore(threshold);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.iot.IoT.ingestion.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class DeviceStatusParserBenchmark {
+
+    private static final String[] PAYLOADS = {
+            "{\"deviceId\":\"SV-000001\",\"temp\":60.5,\"targetTemp\":65.0,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\"SV-000002\",\"temp\":64.9,\"targetTemp\":65.0,\"state\":\"HOLDING\"}",
+            "{\"state\":\"OFF\",\"targetTemp\":55.25,\"deviceId\":\"SV-000003\",\"temp\":21}"
+    };
+
+    private byte[][] payloadBytes;
+    private MqttPayloadParser databindParser;
+    private StreamingDeviceStatusParser streamingParser;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        databindParser = new MqttPayloadParser(
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator()
+        );
+        streamingParser = new StreamingDeviceStatusParser();
+        payloadBytes = new byte[PAYLOADS.length][];
+        for (int i = 0; i < PAYLOADS.length; i++) {
+            payloadBytes[i] = PAYLOADS[i].getBytes(StandardCharsets.UTF_8);
+            assertParity(PAYLOADS[i], payloadBytes[i]);
+        }
+    }
+
+    @Benchmark
+    public DeviceStatusMessage databindFromString() {
+        int index = nextIndex();
+        return databindParser.parseDeviceStatus(new String(payloadBytes[index], StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public DeviceTelemetry streamingFromBytes() {
+        return streamingParser.parseDeviceStatus(payloadBytes[nextIndex()]);
+    }
+
+    private void assertParity(String payload, byte[] bytes) {
+        DeviceStatusMessage expected = databindParser.parseDeviceStatus(payload);
+        DeviceTelemetry actual = streamingParser.parseDeviceStatus(bytes);
+        if (!expected.deviceId().equals(actual.deviceId())
+                || expected.state() != actual.state()
+                || expected.temp().doubleValue() != actual.temp()
+                || expected.targetTemp().doubleValue() != actual.targetTemp()) {
+            throw new IllegalStateException("Parser parity mismatch. payload=" + payload);
+        }
+    }
+
+    private int nextIndex() {
+        int index = cursor;
+        cursor = index + 1 == payloadBytes.length ? 0 : index + 1;
+        return index;
+    }
+}
@@ -1,35 +1,127 @@
 package com.iot.IoT.control;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.iot.IoT.ingestion.dto.DeviceState;
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.registry.dto.DeviceRegistryEntry;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
 
 @Component
 public class ControlDecisionEngine {
 
-    private final BigDecimal deadband;
+    // 입력은 소수 둘째 자리 온도라 double 반올림 오차를 흡수해, deadband 경계값이 BigDecimal 때처럼 HOLD로 남게 한다.
+    private static final double BOUNDARY_EPSILON = 1e-9;
 
-    public ControlDecisionEngine(@Value("${control.deadband:0.3}") BigDecimal deadband) {
-        this.deadband = deadband;
+    private final double deadband;
+    private final DeviceRegistryCache deviceRegistryCache;
+    private final ControlBounds defaultBounds;
+    private final Cache<String, ControlBounds> boundsByDevice;
+
+    public ControlDecisionEngine(BigDecimal deadband) {
+        this(deadband, null);
+    }
+
+    public ControlDecisionEngine(BigDecimal deadband, DeviceRegistryCache deviceRegistryCache) {
+        this(deadband, deviceRegistryCache, 100_000L, 300L);
     }
 
-    public ControlAction decide(DeviceStatusMessage message) {
-        if (message.state() == DeviceState.OFF) {
+    // bounds의 출처인 registry cache와 같은 크기/만료를 써서, invalidation을 놓쳐도 같은 방식으로 회복된다.
+    @Autowired
+    public ControlDecisionEngine(
+            @Value("${control.deadband:0.3}") BigDecimal deadband,
+            DeviceRegistryCache deviceRegistryCache,
+            @Value("${device-registry.cache.max-size:100000}") long maxSize,
+            @Value("${device-registry.cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.deadband = deadband.doubleValue();
+        this.deviceRegistryCache = deviceRegistryCache;
+        this.defaultBounds = ControlBounds.relative(this.deadband);
+        this.boundsByDevice = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 1))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(ttlSeconds, 1)))
+                .build();
+    }
+
+    // updateControlPolicy는 commit 후 registry entry를 (로컬과 pub/sub으로) 무효화하므로 bounds도 같이 버린다.
+    // Caffeine은 같은 key의 진행 중인 load가 끝난 뒤 invalidation을 적용하므로, 이전 정책을 읽은 load 결과는 버려진다.
+    @PostConstruct
+    public void subscribePolicyChanges() {
+        if (deviceRegistryCache != null) {
+            deviceRegistryCache.addInvalidationListener(boundsByDevice::invalidate);
+        }
+    }
+
+    public ControlAction decide(String deviceId, double temp, double targetTemp, DeviceState state) {
+        if (state == DeviceState.OFF) {
             return ControlAction.HEAT_OFF;
         }
 
-        BigDecimal lowerBound = message.targetTemp().subtract(deadband);
-        BigDecimal upperBound = message.targetTemp().add(deadband);
+        ControlBounds bounds = boundsFor(deviceId);
+        double lowerBound = bounds.fixedTarget ? bounds.lower : targetTemp - bounds.hysteresis;
+        double upperBound = bounds.fixedTarget ? bounds.upper : targetTemp + bounds.hysteresis;
 
-        if (message.temp().compareTo(lowerBound) < 0) {
+        if (temp < lowerBound - BOUNDARY_EPSILON) {
             return ControlAction.HEAT_ON;
         }
-        if (message.temp().compareTo(upperBound) > 0) {
+        if (temp > upperBound + BOUNDARY_EPSILON) {
             return ControlAction.HEAT_OFF;
         }
         return ControlAction.HOLD;
     }
+
+    private ControlBounds boundsFor(String deviceId) {
+        if (deviceRegistryCache == null || deviceId == null) {
+            return defaultBounds;
+        }
+        ControlBounds bounds = boundsByDevice.getIfPresent(deviceId);
+        if (bounds != null) {
+            return bounds;
+        }
+        return boundsByDevice.get(deviceId, this::loadBounds);
+    }
+
+    private ControlBounds loadBounds(String deviceId) {
+        Optional<DeviceRegistryEntry> entry = deviceRegistryCache.find(deviceId);
+        if (entry.isEmpty()) {
+            return defaultBounds;
+        }
+        BigDecimal policyHysteresis = entry.get().controlHysteresis();
+        double hysteresis = policyHysteresis == null ? deadband : policyHysteresis.doubleValue();
+        BigDecimal policyTarget = entry.get().controlTargetTemp();
+        if (policyTarget == null) {
+            return policyHysteresis == null ? defaultBounds : ControlBounds.relative(hysteresis);
+        }
+        return ControlBounds.fixed(policyTarget.doubleValue(), hysteresis);
+    }
+
+    private static final class ControlBounds {
+
+        private final boolean fixedTarget;
+        private final double lower;
+        private final double upper;
+        private final double hysteresis;
+
+        private ControlBounds(boolean fixedTarget, double lower, double upper, double hysteresis) {
+            this.fixedTarget = fixedTarget;
+            this.lower = lower;
+            this.upper = upper;
+            this.hysteresis = hysteresis;
+        }
+
+        static ControlBounds relative(double hysteresis) {
+            return new ControlBounds(false, 0.0, 0.0, hysteresis);
+        }
+
+        static ControlBounds fixed(double target, double hysteresis) {
+            return new ControlBounds(true, target - hysteresis, target + hysteresis, hysteresis);
+        }
+    }
 }
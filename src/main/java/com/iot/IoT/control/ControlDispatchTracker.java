@@ -0,0 +1,128 @@
+package com.iot.IoT.control;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class ControlDispatchTracker {
+
+    private static final String DISPATCH_MODE_LEVEL = "level";
+
+    private final boolean edgeTriggered;
+    private final long reassertIntervalMillis;
+    private final long reassertIntervalNanos;
+    private final ConcurrentMap<String, DeviceControlState> states;
+
+    public ControlDispatchTracker(String dispatchMode, long reassertIntervalSeconds) {
+        this(dispatchMode, reassertIntervalSeconds, 100_000L);
+    }
+
+    // ack 전 상태는 re-assert interval이 지나면 더 이상 아무것도 억제하지 않으므로 만료시킨다.
+    // ack된 상태는 transition이나 실패 전까지 억제해야 하므로 만료 없이 size cap으로만 메모리를 묶는다.
+    @Autowired
+    public ControlDispatchTracker(
+            @Value("${control.dispatch.mode:edge}") String dispatchMode,
+            @Value("${control.dispatch.reassert-interval-seconds:60}") long reassertIntervalSeconds,
+            @Value("${control.dispatch.max-devices:100000}") long maxDevices
+    ) {
+        this.edgeTriggered = !DISPATCH_MODE_LEVEL.equalsIgnoreCase(dispatchMode);
+        this.reassertIntervalMillis = Duration.ofSeconds(Math.max(reassertIntervalSeconds, 1)).toMillis();
+        this.reassertIntervalNanos = Duration.ofMillis(reassertIntervalMillis).toNanos();
+        this.states = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxDevices, 1))
+                .expireAfter(new StateExpiry())
+                .<String, DeviceControlState>build()
+                .asMap();
+    }
+
+    public boolean tryIssue(String deviceId, ControlAction action, Instant now) {
+        if (!edgeTriggered) {
+            return true;
+        }
+
+        long nowMillis = now.toEpochMilli();
+        boolean[] issued = {false};
+        states.compute(deviceId, (id, current) -> {
+            if (current != null && current.action() == action && suppresses(current, nowMillis)) {
+                return current;
+            }
+            issued[0] = true;
+            return new DeviceControlState(action, nowMillis, DispatchStatus.ISSUED);
+        });
+        return issued[0];
+    }
+
+    // device가 ack한 action은 다시 보낼 필요가 없다. transition이나 실패가 있을 때만 다시 발행한다.
+    public void markAcked(String deviceId, ControlAction action, Instant requestedAt) {
+        updateStatus(deviceId, action, requestedAt, DispatchStatus.ACKED);
+    }
+
+    // publish가 실패한 결정이 re-assert interval까지 계속 억제되면 안 된다.
+    public void markFailed(String deviceId, ControlAction action) {
+        updateStatus(deviceId, action, null, DispatchStatus.FAILED);
+    }
+
+    // reliability pass가 나중에 찾은 실패(retry 소진, ack timeout)는 현재 issue에 대해 요청된 명령일 때만 반영한다.
+    // 새 dispatch가 이미 대체한 예전 명령의 실패는 무시한다.
+    public void markFailed(String deviceId, ControlAction action, Instant requestedAt) {
+        updateStatus(deviceId, action, requestedAt, DispatchStatus.FAILED);
+    }
+
+    public int trackedDeviceCount() {
+        return states.size();
+    }
+
+    private boolean suppresses(DeviceControlState current, long nowMillis) {
+        return switch (current.status()) {
+            case ACKED -> true;
+            case ISSUED -> nowMillis - current.issuedAtMillis() < reassertIntervalMillis;
+            case FAILED -> false;
+        };
+    }
+
+    private void updateStatus(String deviceId, ControlAction action, Instant requestedAt, DispatchStatus status) {
+        long requestedAtMillis = requestedAt == null ? Long.MAX_VALUE : requestedAt.toEpochMilli();
+        states.computeIfPresent(deviceId, (id, current) -> current.action() == action
+                && requestedAtMillis >= current.issuedAtMillis()
+                ? new DeviceControlState(current.action(), current.issuedAtMillis(), status)
+                : current);
+    }
+
+    private long expiryNanos(DeviceControlState state) {
+        return state.status() == DispatchStatus.ACKED ? Long.MAX_VALUE : reassertIntervalNanos;
+    }
+
+    private final class StateExpiry implements Expiry<String, DeviceControlState> {
+
+        @Override
+        public long expireAfterCreate(String deviceId, DeviceControlState state, long currentTime) {
+            return expiryNanos(state);
+        }
+
+        @Override
+        public long expireAfterUpdate(String deviceId, DeviceControlState state, long currentTime, long currentDuration) {
+            return expiryNanos(state);
+        }
+
+        @Override
+        public long expireAfterRead(String deviceId, DeviceControlState state, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private enum DispatchStatus {
+        ISSUED,
+        ACKED,
+        FAILED
+    }
+
+    private record DeviceControlState(ControlAction action, long issuedAtMillis, DispatchStatus status) {
+    }
+}
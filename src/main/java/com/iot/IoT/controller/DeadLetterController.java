@@ -0,0 +1,75 @@
+package com.iot.IoT.controller;
+
+import com.iot.IoT.dto.DeadLetterPageResponse;
+import com.iot.IoT.dto.DeadLetterReplayRequest;
+import com.iot.IoT.dto.DeadLetterReplayResponse;
+import com.iot.IoT.dto.DeadLetterResponse;
+import com.iot.IoT.ingestion.deadletter.DeadLetterReplayService;
+import com.iot.IoT.ingestion.deadletter.DeadLetterStore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/ingestion/dead-letters")
+@Validated
+@ConditionalOnProperty(prefix = "ingestion.dead-letter", name = "enabled", havingValue = "true")
+public class DeadLetterController {
+
+    private final DeadLetterStore deadLetterStore;
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    public DeadLetterController(DeadLetterStore deadLetterStore, DeadLetterReplayService deadLetterReplayService) {
+        this.deadLetterStore = deadLetterStore;
+        this.deadLetterReplayService = deadLetterReplayService;
+    }
+
+    @GetMapping
+    public DeadLetterPageResponse find(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) String failureType,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit
+    ) {
+        DeadLetterStore.DeadLetterPage page = deadLetterStore.find(cursor, topic, failureType, limit);
+        return new DeadLetterPageResponse(
+                limit,
+                page.nextCursor(),
+                page.items().stream()
+                        .map(item -> new DeadLetterResponse(
+                                item.id(), item.topic(), item.failureType(), item.receivedAt(), item.payload()))
+                        .toList());
+    }
+
+    @PostMapping("/replay")
+    public ResponseEntity<DeadLetterReplayResponse> replay(@Valid @RequestBody DeadLetterReplayRequest request) {
+        DeadLetterReplayService.ReplayStatus status = deadLetterReplayService.start(
+                request.cursor(), request.topic(), request.failureType(), request.limit());
+        return ResponseEntity.accepted().body(toResponse(status));
+    }
+
+    @GetMapping("/replay")
+    public DeadLetterReplayResponse replayStatus() {
+        return toResponse(deadLetterReplayService.status());
+    }
+
+    private DeadLetterReplayResponse toResponse(DeadLetterReplayService.ReplayStatus status) {
+        return new DeadLetterReplayResponse(
+                status.running(),
+                status.requested(),
+                status.sent(),
+                status.failed(),
+                status.nextCursor(),
+                status.startedAt(),
+                status.finishedAt());
+    }
+}
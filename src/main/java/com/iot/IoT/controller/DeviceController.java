@@ -6,7 +6,10 @@ import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
+import com.iot.IoT.dto.DeviceStatusPageResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
 import com.iot.IoT.dto.SendDeviceCommandRequest;
 import com.iot.IoT.dto.UpdateDeviceControlPolicyRequest;
@@ -15,6 +18,10 @@ import com.iot.IoT.service.DeviceService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
@@ -26,9 +33,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/devices")
@@ -60,6 +69,21 @@ public class DeviceController {
         return deviceService.findAll(page, size);
     }
 
+    @GetMapping(value = "/status", params = "ids")
+    public DeviceStatusListResponse getStatuses(
+            @RequestParam @Size(min = 1, max = 500) List<Long> ids
+    ) {
+        return deviceService.getStatuses(ids);
+    }
+
+    @GetMapping("/status")
+    public DeviceStatusPageResponse getStatusPage(
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(500) int size
+    ) {
+        return deviceService.getStatusPage(page, size);
+    }
+
     @PatchMapping("/{id}/enabled")
     public DeviceResponse updateEnabled(
             @PathVariable Long id,
@@ -78,9 +102,27 @@ public class DeviceController {
             @PathVariable Long id,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
-            @RequestParam(defaultValue = "0") int limit
+            @RequestParam(defaultValue = "0") int limit,
+            @RequestParam(required = false) String aggregate,
+            @RequestParam(required = false) String resolution
+    ) {
+        return deviceService.getTemperatures(id, from, to, limit, aggregate, resolution);
+    }
+
+    @GetMapping("/{id}/temps/export")
+    public ResponseEntity<StreamingResponseBody> exportTemperatures(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String format
     ) {
-        return deviceService.getTemperatures(id, from, to, limit);
+        DeviceTemperatureExport export = deviceService.prepareTemperatureExport(id, from, to, format);
+        StreamingResponseBody body = outputStream -> deviceService.exportTemperatures(export, outputStream);
+        String filename = export.deviceId() + "-temps." + export.format().fileExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(export.format().contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
     }
 
     @GetMapping("/{id}/control-policy")
@@ -1,9 +1,13 @@
 package com.iot.IoT.controller;
 
 import com.iot.IoT.dto.ApiErrorResponse;
+import com.iot.IoT.ingestion.exception.DeadLetterReplayInProgressException;
+import com.iot.IoT.ingestion.exception.HotLogDebugDeviceLimitException;
+import com.iot.IoT.ingestion.exception.InvalidDeadLetterQueryException;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import com.iot.IoT.service.exception.DeviceCommandNotFoundException;
 import com.iot.IoT.service.exception.DuplicateDeviceException;
+import com.iot.IoT.service.exception.ExportLimitExceededException;
 import com.iot.IoT.service.exception.InvalidDeviceQueryException;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
@@ -52,6 +56,26 @@ public class GlobalApiExceptionHandler {
         return error(HttpStatus.BAD_REQUEST, "INVALID_REQUEST", ex.getMessage());
     }
 
+    @ExceptionHandler(ExportLimitExceededException.class)
+    public ResponseEntity<ApiErrorResponse> handleExportLimitExceeded(ExportLimitExceededException ex) {
+        return error(HttpStatus.TOO_MANY_REQUESTS, "EXPORT_LIMIT_EXCEEDED", ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidDeadLetterQueryException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidDeadLetterQuery(InvalidDeadLetterQueryException ex) {
+        return error(HttpStatus.BAD_REQUEST, "INVALID_REQUEST", ex.getMessage());
+    }
+
+    @ExceptionHandler(DeadLetterReplayInProgressException.class)
+    public ResponseEntity<ApiErrorResponse> handleDeadLetterReplayInProgress(DeadLetterReplayInProgressException ex) {
+        return error(HttpStatus.CONFLICT, "DEAD_LETTER_REPLAY_IN_PROGRESS", ex.getMessage());
+    }
+
+    @ExceptionHandler(HotLogDebugDeviceLimitException.class)
+    public ResponseEntity<ApiErrorResponse> handleHotLogDebugDeviceLimit(HotLogDebugDeviceLimitException ex) {
+        return error(HttpStatus.CONFLICT, "HOT_LOG_DEBUG_DEVICES_FULL", ex.getMessage());
+    }
+
     private ResponseEntity<ApiErrorResponse> error(HttpStatus status, String code, String message) {
         return ResponseEntity.status(status)
                 .body(new ApiErrorResponse(code, message, Instant.now()));
@@ -0,0 +1,42 @@
+package com.iot.IoT.controller;
+
+import com.iot.IoT.dto.HotLogDebugDevicesResponse;
+import com.iot.IoT.ingestion.logging.HotPathLogSampler;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/ingestion/hot-log/debug-devices")
+public class HotLogController {
+
+    private final HotPathLogSampler hotPathLogSampler;
+
+    public HotLogController(HotPathLogSampler hotPathLogSampler) {
+        this.hotPathLogSampler = hotPathLogSampler;
+    }
+
+    @GetMapping
+    public HotLogDebugDevicesResponse findAll() {
+        return response();
+    }
+
+    @PutMapping("/{deviceId}")
+    public HotLogDebugDevicesResponse add(@PathVariable String deviceId) {
+        hotPathLogSampler.addDebugDevice(deviceId);
+        return response();
+    }
+
+    @DeleteMapping("/{deviceId}")
+    public HotLogDebugDevicesResponse remove(@PathVariable String deviceId) {
+        hotPathLogSampler.removeDebugDevice(deviceId);
+        return response();
+    }
+
+    private HotLogDebugDevicesResponse response() {
+        return new HotLogDebugDevicesResponse(hotPathLogSampler.debugDevices().stream().sorted().toList());
+    }
+}
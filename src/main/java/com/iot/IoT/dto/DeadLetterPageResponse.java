@@ -0,0 +1,10 @@
+package com.iot.IoT.dto;
+
+import java.util.List;
+
+public record DeadLetterPageResponse(
+        int limit,
+        String nextCursor,
+        List<DeadLetterResponse> items
+) {
+}
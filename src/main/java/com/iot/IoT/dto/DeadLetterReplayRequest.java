@@ -0,0 +1,16 @@
+package com.iot.IoT.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record DeadLetterReplayRequest(
+        String cursor,
+        String topic,
+        String failureType,
+        @NotNull
+        @Min(1)
+        @Max(10000)
+        Integer limit
+) {
+}
@@ -0,0 +1,14 @@
+package com.iot.IoT.dto;
+
+import java.time.Instant;
+
+public record DeadLetterReplayResponse(
+        boolean running,
+        int requested,
+        int sent,
+        int failed,
+        String nextCursor,
+        Instant startedAt,
+        Instant finishedAt
+) {
+}
@@ -0,0 +1,12 @@
+package com.iot.IoT.dto;
+
+import java.time.Instant;
+
+public record DeadLetterResponse(
+        String id,
+        String topic,
+        String failureType,
+        Instant receivedAt,
+        byte[] payload
+) {
+}
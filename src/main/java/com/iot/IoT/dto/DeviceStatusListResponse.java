@@ -0,0 +1,8 @@
+package com.iot.IoT.dto;
+
+import java.util.List;
+
+public record DeviceStatusListResponse(
+        List<DeviceStatusResponse> items
+) {
+}
@@ -0,0 +1,12 @@
+package com.iot.IoT.dto;
+
+import java.util.List;
+
+public record DeviceStatusPageResponse(
+        List<DeviceStatusResponse> items,
+        long totalElements,
+        int totalPages,
+        int page,
+        int size
+) {
+}
@@ -0,0 +1,12 @@
+package com.iot.IoT.dto;
+
+import java.time.Instant;
+
+public record DeviceTemperatureExport(
+        Long devicePk,
+        String deviceId,
+        Instant from,
+        Instant to,
+        TemperatureExportFormat format
+) {
+}
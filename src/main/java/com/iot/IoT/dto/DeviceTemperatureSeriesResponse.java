@@ -9,6 +9,8 @@ public record DeviceTemperatureSeriesResponse(
         Instant from,
         Instant to,
         int limit,
+        TemperatureAggregate aggregate,
+        Long resolutionSeconds,
         List<DeviceTemperaturePointResponse> items
 ) {
 }
@@ -0,0 +1,19 @@
+package com.iot.IoT.dto;
+
+// 온도 시계열 downsampling에 쓰는 window 집계 함수. state는 문자열이라 모든 집계에서 window의 마지막 값을 쓴다.
+public enum TemperatureAggregate {
+    MEAN("mean"),
+    MIN("min"),
+    MAX("max"),
+    LAST("last");
+
+    private final String fluxFunction;
+
+    TemperatureAggregate(String fluxFunction) {
+        this.fluxFunction = fluxFunction;
+    }
+
+    public String fluxFunction() {
+        return fluxFunction;
+    }
+}
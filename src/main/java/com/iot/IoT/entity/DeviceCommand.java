@@ -8,13 +8,20 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "device_commands")
+@Table(
+        name = "device_commands",
+        indexes = {
+                @Index(name = "idx_device_commands_status_next_retry_at_id", columnList = "status, next_retry_at, id"),
+                @Index(name = "idx_device_commands_status_expire_at", columnList = "status, expire_at")
+        }
+)
 public class DeviceCommand {
 
     @Id
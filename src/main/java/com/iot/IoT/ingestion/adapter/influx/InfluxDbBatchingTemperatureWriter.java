@@ -0,0 +1,143 @@
+package com.iot.IoT.ingestion.adapter.influx;
+
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.domain.WritePrecision;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.TemperatureTimeSeriesBufferPort;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(prefix = "ingestion.influx", name = "write-mode", havingValue = "batched")
+public class InfluxDbBatchingTemperatureWriter implements TemperatureTimeSeriesBufferPort {
+
+    private static final Logger log = LoggerFactory.getLogger(InfluxDbBatchingTemperatureWriter.class);
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+    private final InfluxDBClient influxDBClient;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final String bucket;
+    private final String org;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<String> buffer;
+    private final InfluxWriteAheadSpool spool;
+    private final Thread flushThread;
+    private volatile boolean running;
+
+    public InfluxDbBatchingTemperatureWriter(
+            InfluxDBClient influxDBClient,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            Optional<InfluxWriteAheadSpool> spool,
+            @Value("${influxdb.bucket}") String bucket,
+            @Value("${influxdb.org}") String org,
+            @Value("${ingestion.influx.batch.size:500}") int batchSize,
+            @Value("${ingestion.influx.batch.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${ingestion.influx.batch.buffer-capacity:20000}") int bufferCapacity
+    ) {
+        this.influxDBClient = influxDBClient;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.bucket = bucket;
+        this.org = org;
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = Duration.ofMillis(Math.max(flushIntervalMs, 1)).toNanos();
+        this.buffer = new ArrayBlockingQueue<>(Math.max(bufferCapacity, this.batchSize));
+        this.spool = spool.orElse(null);
+        this.flushThread = new Thread(this::runFlushLoop, "influx-batch-flush");
+        this.flushThread.setDaemon(true);
+        ingestionMetricsCollector.registerInfluxBufferMetrics(buffer, meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flushThread.join(SHUTDOWN_TIMEOUT_MS);
+    }
+
+    @Override
+    public boolean offer(DeviceTelemetry message, Instant occurredAt) {
+        String line = InfluxDbTemperatureTimeSeriesAdapter.toStatusPoint(message, occurredAt).toLineProtocol();
+        return buffer.offer(line);
+    }
+
+    private void runFlushLoop() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+        }
+        // 종료 전에 받아 둔 point는 마지막 부분 batch까지 모두 쓴다.
+        while (!buffer.isEmpty()) {
+            buffer.drainTo(batch, batchSize);
+            flush(batch);
+        }
+    }
+
+    private void collectBatch(List<String> batch) throws InterruptedException {
+        String first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadlineNanos = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (batch.size() >= batchSize || remainingNanos <= 0) {
+                return;
+            }
+            String next = buffer.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startedAtNanos = System.nanoTime();
+        try {
+            influxDBClient.getWriteApiBlocking().writeRecords(bucket, org, WritePrecision.MS, batch);
+            ingestionMetricsCollector.recordInfluxSuccess(batch.size());
+        } catch (RuntimeException ex) {
+            ingestionMetricsCollector.recordInfluxFailure(batch.size());
+            ingestionMetricsCollector.recordStorageReplayCandidate(batch.size());
+            boolean spooled = spool != null && spool.appendLines(batch);
+            log.error("[INGESTION] Influx batch write failed. batchSize={}, spooled={}", batch.size(), spooled, ex);
+        } finally {
+            ingestionMetricsCollector.recordInfluxBatchFlush(batch.size(), System.nanoTime() - startedAtNanos);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.iot.IoT.ingestion.adapter.influx;
+
+import com.influxdb.client.BucketsApi;
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.domain.Bucket;
+import com.influxdb.client.domain.BucketRetentionRules;
+import com.influxdb.client.domain.Organization;
+import com.influxdb.query.FluxRecord;
+import com.influxdb.query.FluxTable;
+import com.iot.IoT.ingestion.port.TemperatureRollupPort;
+import com.iot.IoT.ingestion.rollup.RollupTier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// rollup tier bucket 관리와 tier 간 집계 query.
+// tier point는 window 시작 시각(_time)에 temp_{fn}, targetTemp_{fn}(fn = sum/count/min/max/last)과 state(마지막 값) field를 가진다.
+// 평균은 window마다 point 수가 달라 평균의 평균으로 합치면 틀어지므로 sum/count로 저장하고 조회할 때 나눈다.
+@Component
+public class InfluxDbTemperatureRollupAdapter implements TemperatureRollupPort {
+
+    private static final Logger log = LoggerFactory.getLogger(InfluxDbTemperatureRollupAdapter.class);
+    private static final List<RollupField> ROLLUP_FIELDS = List.of(
+            new RollupField("sum", "sum", "sum"),
+            new RollupField("count", "count", "sum"),
+            new RollupField("min", "min", "min"),
+            new RollupField("max", "max", "max"),
+            new RollupField("last", "last", "last")
+    );
+
+    private final InfluxDBClient influxDBClient;
+    private final String rawBucket;
+    private final String org;
+
+    public InfluxDbTemperatureRollupAdapter(
+            InfluxDBClient influxDBClient,
+            @Value("${influxdb.bucket}") String rawBucket,
+            @Value("${influxdb.org}") String org
+    ) {
+        this.influxDBClient = influxDBClient;
+        this.rawBucket = rawBucket;
+        this.org = org;
+    }
+
+    // bucket이 없으면 만들고, 있으면 retention만 설정값에 맞춘다.
+    @Override
+    public void ensureBucket(String bucket, Duration retention) {
+        BucketsApi bucketsApi = influxDBClient.getBucketsApi();
+        long everySeconds = retention.toSeconds();
+        BucketRetentionRules rule = new BucketRetentionRules();
+        rule.setEverySeconds(everySeconds);
+
+        Bucket existing = bucketsApi.findBucketByName(bucket);
+        if (existing == null) {
+            Organization organization = influxDBClient.getOrganizationsApi().findOrganizations().stream()
+                    .filter(candidate -> org.equals(candidate.getName()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Influx organization not found: " + org));
+            bucketsApi.createBucket(bucket, rule, organization.getId());
+            log.info("[ROLLUP] Created Influx bucket. bucket={}, retentionSeconds={}", bucket, everySeconds);
+            return;
+        }
+
+        List<BucketRetentionRules> rules = existing.getRetentionRules();
+        Number current = rules == null || rules.isEmpty() ? null : rules.get(0).getEverySeconds();
+        long currentSeconds = current == null ? 0L : current.longValue();
+        if (currentSeconds != everySeconds) {
+            existing.setRetentionRules(new ArrayList<>(List.of(rule)));
+            bucketsApi.updateBucket(existing);
+            log.info("[ROLLUP] Updated Influx bucket retention. bucket={}, retentionSeconds={} -> {}",
+                    bucket, currentSeconds, everySeconds);
+        }
+    }
+
+    @Override
+    public Optional<Instant> findFirstPointTime(String bucket) {
+        return findBoundaryTime(bucket, "first", false);
+    }
+
+    @Override
+    public Optional<Instant> findLastPointTime(String bucket) {
+        return findBoundaryTime(bucket, "last", true);
+    }
+
+    // series별 first()/last()는 storage로 push down되므로 device 수만큼의 row만 group/sort한다.
+    private Optional<Instant> findBoundaryTime(String bucket, String selector, boolean descending) {
+        String flux = """
+                from(bucket: "%s")
+                  |> range(start: %s)
+                  |> filter(fn: (r) => r._measurement == "device_status" and r._field == "state")
+                  |> %s()
+                  |> group()
+                  |> sort(columns: ["_time"], desc: %s)
+                  |> limit(n: 1)
+                """.formatted(quoteFluxString(bucket), Instant.EPOCH.toString(), selector, descending);
+        for (FluxTable table : influxDBClient.getQueryApi().query(flux, org)) {
+            for (FluxRecord record : table.getRecords()) {
+                if (record.getTime() != null) {
+                    return Optional.of(record.getTime());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // 집계와 write를 Influx 안에서 to()로 끝낸다.
+    // to()는 쓴 row를 그대로 결과로 돌려주므로 마지막에 모두 걸러 app으로 point를 가져오지 않는다.
+    @Override
+    public void rollup(RollupTier source, RollupTier target, Instant start, Instant stop) {
+        String sourceBucket = source == null ? rawBucket : source.bucket();
+        long every = target.window().toSeconds();
+        StringBuilder flux = new StringBuilder("""
+                data = from(bucket: "%s")
+                  |> range(start: %s, stop: %s)
+                  |> filter(fn: (r) => r._measurement == "device_status")
+                """.formatted(quoteFluxString(sourceBucket), start.toString(), stop.toString()));
+
+        List<String> streams = new ArrayList<>();
+        for (RollupField field : ROLLUP_FIELDS) {
+            String stream = "rollup_" + field.suffix();
+            // raw는 temp/targetTemp를 집계해 suffix를 붙이고, 하위 tier는 같은 suffix의 field를 다시 집계한다.
+            String fieldFilter = source == null
+                    ? "r._field == \"temp\" or r._field == \"targetTemp\""
+                    : "r._field == \"temp_%s\" or r._field == \"targetTemp_%s\"".formatted(field.suffix(), field.suffix());
+            String function = source == null ? field.rawFunction() : field.tierFunction();
+            String rename = source == null
+                    ? "\n  |> map(fn: (r) => ({r with _field: r._field + \"_%s\"}))".formatted(field.suffix())
+                    : "";
+            flux.append("""
+                    %s = data
+                      |> filter(fn: (r) => %s)
+                      |> aggregateWindow(every: %ds, fn: %s, createEmpty: false, timeSrc: "_start")%s
+                    """.formatted(stream, fieldFilter, every, function, rename));
+            streams.add(stream);
+        }
+        flux.append("""
+                rollup_state = data
+                  |> filter(fn: (r) => r._field == "state")
+                  |> aggregateWindow(every: %ds, fn: last, createEmpty: false, timeSrc: "_start")
+                union(tables: [%s, rollup_state])
+                  |> to(bucket: "%s", org: "%s")
+                  |> filter(fn: (r) => false)
+                """.formatted(every, String.join(", ", streams), quoteFluxString(target.bucket()), quoteFluxString(org)));
+
+        influxDBClient.getQueryApi().query(flux.toString(), org);
+        log.debug("[ROLLUP] Rolled up window range. tier={}, source={}, start={}, stop={}",
+                target.name(), sourceBucket, start, stop);
+    }
+
+    // count는 raw에서 point 수를 세고, 상위 tier에서는 하위 tier의 count를 더한다.
+    private record RollupField(String suffix, String rawFunction, String tierFunction) {
+    }
+
+    private static String quoteFluxString(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -1,6 +1,6 @@
 package com.iot.IoT.ingestion.adapter.influx;
 
-import com.influxdb.client.QueryApi;
+import com.influxdb.Cancellable;
 import com.influxdb.client.InfluxDBClient;
 import com.influxdb.client.WriteApiBlocking;
 import com.influxdb.client.domain.WritePrecision;
@@ -8,19 +8,29 @@ import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
 import com.influxdb.client.write.Point;
 import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.dto.TemperatureAggregate;
 import com.iot.IoT.ingestion.dto.DeviceState;
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesQueryPort;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesPort;
+import com.iot.IoT.ingestion.rollup.RollupTier;
+import com.iot.IoT.ingestion.rollup.RollupTierRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -28,41 +38,82 @@ import java.util.stream.Collectors;
 public class InfluxDbTemperatureTimeSeriesAdapter implements TemperatureTimeSeriesPort, TemperatureTimeSeriesQueryPort {
 
     private static final String MEASUREMENT = "device_status";
+    private static final int LATEST_BATCH_CHUNK_SIZE = 500;
 
     private final InfluxDBClient influxDBClient;
+    private final RollupTierRegistry rollupTierRegistry;
     private final String bucket;
     private final String org;
+    private final long exportTimeoutSeconds;
 
     public InfluxDbTemperatureTimeSeriesAdapter(
             InfluxDBClient influxDBClient,
+            RollupTierRegistry rollupTierRegistry,
             @Value("${influxdb.bucket}") String bucket,
-            @Value("${influxdb.org}") String org
+            @Value("${influxdb.org}") String org,
+            @Value("${device-query.export.timeout-seconds:600}") long exportTimeoutSeconds
     ) {
         this.influxDBClient = influxDBClient;
+        this.rollupTierRegistry = rollupTierRegistry;
         this.bucket = bucket;
         this.org = org;
+        this.exportTimeoutSeconds = Math.max(exportTimeoutSeconds, 1L);
     }
 
     @Override
-    public void save(DeviceStatusMessage message, Instant occurredAt) {
-        Point point = Point.measurement(MEASUREMENT)
+    public void save(DeviceTelemetry message, Instant occurredAt) {
+        WriteApiBlocking writeApi = influxDBClient.getWriteApiBlocking();
+        writeApi.writePoint(bucket, org, toStatusPoint(message, occurredAt));
+    }
+
+    static Point toStatusPoint(DeviceTelemetry message, Instant occurredAt) {
+        return Point.measurement(MEASUREMENT)
                 .addTag("deviceId", message.deviceId())
-                .addField("temp", message.temp().doubleValue())
-                .addField("targetTemp", message.targetTemp().doubleValue())
+                .addField("temp", message.temp())
+                .addField("targetTemp", message.targetTemp())
                 .addField("state", message.state().name())
                 .time(occurredAt, WritePrecision.MS);
-
-        WriteApiBlocking writeApi = influxDBClient.getWriteApiBlocking();
-        writeApi.writePoint(bucket, org, point);
     }
 
     @Override
     public Optional<DeviceTemperaturePointResponse> findLatest(String deviceId) {
-        List<DeviceTemperaturePointResponse> points = findRange(deviceId, Instant.EPOCH, Instant.now(), 1);
-        if (points.isEmpty()) {
-            return Optional.empty();
+        return Optional.ofNullable(findLatestBatch(List.of(deviceId)).get(deviceId));
+    }
+
+    // 전체 구간을 pivot/sort하는 대신 series별 last()만 읽어 device 여러 개의 최신 point를 query 한 번으로 가져온다.
+    @Override
+    public Map<String, DeviceTemperaturePointResponse> findLatestBatch(Collection<String> deviceIds) {
+        Map<String, DeviceTemperaturePointResponse> latest = new HashMap<>(deviceIds.size() * 2);
+        List<String> ids = List.copyOf(deviceIds);
+        for (int from = 0; from < ids.size(); from += LATEST_BATCH_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + LATEST_BATCH_CHUNK_SIZE, ids.size()));
+            // contains()는 storage로 push down되지 않으므로 equality를 or로 이어 tag index를 타게 한다.
+            String deviceIdPredicate = chunk.stream()
+                    .map(deviceId -> "r.deviceId == \"" + quoteFluxString(deviceId) + "\"")
+                    .collect(Collectors.joining(" or "));
+            String flux = """
+                    from(bucket: "%s")
+                      |> range(start: %s)
+                      |> filter(fn: (r) => r._measurement == "device_status")
+                      |> filter(fn: (r) => %s)
+                      |> filter(fn: (r) => r._field == "temp" or r._field == "targetTemp" or r._field == "state")
+                      |> last()
+                      |> pivot(rowKey:["_time"], columnKey: ["_field"], valueColumn: "_value")
+                      |> keep(columns: ["_time", "deviceId", "temp", "targetTemp", "state"])
+                    """.formatted(quoteFluxString(bucket), Instant.EPOCH.toString(), deviceIdPredicate);
+
+            for (FluxTable table : influxDBClient.getQueryApi().query(flux, org)) {
+                for (FluxRecord record : table.getRecords()) {
+                    Object deviceId = record.getValueByKey("deviceId");
+                    if (deviceId == null) {
+                        continue;
+                    }
+                    toPoint(record).ifPresent(point -> latest.merge(String.valueOf(deviceId), point,
+                            (current, candidate) -> candidate.occurredAt().isAfter(current.occurredAt()) ? candidate : current));
+                }
+            }
         }
-        return Optional.of(points.get(0));
+        return latest;
     }
 
     @Override
@@ -88,19 +139,155 @@ public class InfluxDbTemperatureTimeSeriesAdapter implements TemperatureTimeSeri
                 limit
         );
 
-        QueryApi queryApi = influxDBClient.getQueryApi();
-        List<FluxTable> tables = queryApi.query(flux, org);
-        List<FluxRecord> records = new ArrayList<>();
-        for (FluxTable table : tables) {
-            records.addAll(table.getRecords());
+        return queryPoints(flux);
+    }
+
+    // aggregateWindow를 Influx에서 수행해 구간 길이와 관계없이 window 수(<= limit)만큼만 내려받는다.
+    // state는 문자열이라 mean/min/max를 적용할 수 없어 항상 window의 마지막 값을 쓴다.
+    // 구간을 덮는 rollup tier가 있으면 raw 대신 tier의 같은 함수 field(temp_{fn})를 다시 집계하고, mean은 sum/count로 계산한다.
+    @Override
+    public List<DeviceTemperaturePointResponse> findRangeAggregated(
+            String deviceId,
+            Instant from,
+            Instant to,
+            Duration window,
+            TemperatureAggregate aggregate,
+            int limit
+    ) {
+        Optional<RollupTier> tier = rollupTierRegistry.select(from, to, window);
+        String function = aggregate.fluxFunction();
+        String numericFilter = "r._field == \"temp\" or r._field == \"targetTemp\"";
+        String numericFunction = function;
+        String rename = "";
+        String weightedMean = "";
+        if (tier.isPresent() && aggregate == TemperatureAggregate.MEAN) {
+            // tier의 sum/count를 window별로 더한 뒤 나눠 point 수로 가중한 평균을 만든다.
+            numericFilter = "r._field == \"temp_sum\" or r._field == \"temp_count\""
+                    + " or r._field == \"targetTemp_sum\" or r._field == \"targetTemp_count\"";
+            numericFunction = "sum";
+            weightedMean = "\n  |> map(fn: (r) => ({r with temp: r.temp_sum / float(v: r.temp_count),"
+                    + " targetTemp: r.targetTemp_sum / float(v: r.targetTemp_count)}))";
+        } else if (tier.isPresent()) {
+            numericFilter = "r._field == \"temp_%s\" or r._field == \"targetTemp_%s\"".formatted(function, function);
+            rename = "\n  |> map(fn: (r) => ({r with _field: if r._field == \"temp_%s\" then \"temp\" else \"targetTemp\"}))"
+                    .formatted(function);
         }
+        String flux = """
+                data = from(bucket: "%s")
+                  |> range(start: %s, stop: %s)
+                  |> filter(fn: (r) => r._measurement == "device_status")
+                  |> filter(fn: (r) => r.deviceId == "%s")
+                numeric = data
+                  |> filter(fn: (r) => %s)
+                  |> aggregateWindow(every: %ds, fn: %s, createEmpty: false)%s
+                state = data
+                  |> filter(fn: (r) => r._field == "state")
+                  |> aggregateWindow(every: %ds, fn: last, createEmpty: false)
+                union(tables: [numeric, state])
+                  |> pivot(rowKey:["_time"], columnKey: ["_field"], valueColumn: "_value")%s
+                  |> keep(columns: ["_time", "temp", "targetTemp", "state"])
+                  |> sort(columns: ["_time"], desc: true)
+                  |> limit(n: %d)
+                """.formatted(
+                quoteFluxString(tier.map(RollupTier::bucket).orElse(bucket)),
+                from.toString(),
+                to.toString(),
+                quoteFluxString(deviceId),
+                numericFilter,
+                window.toSeconds(),
+                numericFunction,
+                rename,
+                window.toSeconds(),
+                weightedMean,
+                limit
+        );
 
-        return records.stream()
-                .map(this::toPoint)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .sorted(Comparator.comparing(DeviceTemperaturePointResponse::occurredAt).reversed())
-                .collect(Collectors.toList());
+        return queryPoints(flux);
+    }
+
+    // pivot/keep 이후에는 device당 table이 하나이므로 Flux의 sort 결과를 그대로 쓰고 다시 정렬하지 않는다.
+    private List<DeviceTemperaturePointResponse> queryPoints(String flux) {
+        List<DeviceTemperaturePointResponse> points = new ArrayList<>();
+        for (FluxTable table : influxDBClient.getQueryApi().query(flux, org)) {
+            for (FluxRecord record : table.getRecords()) {
+                toPoint(record).ifPresent(points::add);
+            }
+        }
+        return points;
+    }
+
+    @Override
+    public boolean canServeFromRollup(Instant from, Instant to, Duration window) {
+        return rollupTierRegistry.canServe(from, to, window);
+    }
+
+    // callback query로 record를 하나씩 consumer에 넘기고 결과를 모으지 않는다.
+    // consumer가 blocking write를 하는 동안 응답 body를 더 읽지 않으므로 느린 client가 Influx 쪽까지 backpressure를 건다.
+    // consumer가 실패하면(client 연결 끊김 등) query를 cancel하고 예외를 호출한 쪽으로 다시 던진다.
+    // export timeout 안에 끝나지 않아도 query를 cancel해 callback thread가 계속 붙잡혀 있지 않게 한다.
+    @Override
+    public void streamRange(String deviceId, Instant from, Instant to, Consumer<DeviceTemperaturePointResponse> consumer) {
+        String flux = """
+                from(bucket: "%s")
+                  |> range(start: %s, stop: %s)
+                  |> filter(fn: (r) => r._measurement == "device_status")
+                  |> filter(fn: (r) => r.deviceId == "%s")
+                  |> filter(fn: (r) => r._field == "temp" or r._field == "targetTemp" or r._field == "state")
+                  |> pivot(rowKey:["_time"], columnKey: ["_field"], valueColumn: "_value")
+                  |> keep(columns: ["_time", "temp", "targetTemp", "state"])
+                """.formatted(
+                quoteFluxString(bucket),
+                from.toString(),
+                to.toString(),
+                quoteFluxString(deviceId)
+        );
+
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<Cancellable> running = new AtomicReference<>();
+        influxDBClient.getQueryApi().query(
+                flux,
+                org,
+                (cancellable, record) -> {
+                    running.set(cancellable);
+                    try {
+                        toPoint(record).ifPresent(consumer);
+                    } catch (RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                        cancellable.cancel();
+                        completed.countDown();
+                    }
+                },
+                error -> {
+                    failure.compareAndSet(null, error);
+                    completed.countDown();
+                },
+                completed::countDown
+        );
+
+        try {
+            if (!completed.await(exportTimeoutSeconds, TimeUnit.SECONDS)) {
+                cancel(running.get());
+                throw new IllegalStateException("Influx export query timed out after " + exportTimeoutSeconds + "s");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancel(running.get());
+            throw new IllegalStateException("Influx export query interrupted", ex);
+        }
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Influx export query failed", error);
+        }
+    }
+
+    private static void cancel(Cancellable cancellable) {
+        if (cancellable != null) {
+            cancellable.cancel();
+        }
     }
 
     private Optional<DeviceTemperaturePointResponse> toPoint(FluxRecord record) {
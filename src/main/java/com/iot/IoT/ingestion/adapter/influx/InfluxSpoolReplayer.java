@@ -0,0 +1,132 @@
+package com.iot.IoT.ingestion.adapter.influx;
+
+import com.influxdb.client.InfluxDBClient;
+import com.influxdb.client.domain.WritePrecision;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.spool.MappedSegmentLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// spool에 쌓인 point를 Influx가 응답할 때만 batch로 되돌려 보낸다.
+// 초당 전송량은 token bucket으로 제한해 복구 직후 실시간 write와 Influx를 두고 경쟁하지 않게 한다.
+// 복구 중에는 한 번 실행이 Influx write 여러 번으로 길어지므로 공용 @Scheduled thread 대신 전용 thread에서 돈다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.spool", name = "enabled", havingValue = "true")
+public class InfluxSpoolReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(InfluxSpoolReplayer.class);
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+    private final InfluxWriteAheadSpool spool;
+    private final InfluxDBClient influxDBClient;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final String bucket;
+    private final String org;
+    private final int batchSize;
+    private final double maxPointsPerSecond;
+    private final long intervalMs;
+    private final ScheduledExecutorService replayExecutor;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public InfluxSpoolReplayer(
+            InfluxWriteAheadSpool spool,
+            InfluxDBClient influxDBClient,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            @Value("${influxdb.bucket}") String bucket,
+            @Value("${influxdb.org}") String org,
+            @Value("${ingestion.spool.replay.batch-size:1000}") int batchSize,
+            @Value("${ingestion.spool.replay.max-points-per-second:5000}") double maxPointsPerSecond,
+            @Value("${ingestion.spool.replay.interval-ms:1000}") long intervalMs
+    ) {
+        this.spool = spool;
+        this.influxDBClient = influxDBClient;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.bucket = bucket;
+        this.org = org;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxPointsPerSecond = Math.max(maxPointsPerSecond, 1.0);
+        this.intervalMs = Math.max(intervalMs, 1);
+        this.replayExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "influx-spool-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        replayExecutor.scheduleWithFixedDelay(this::replaySafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        replayExecutor.shutdown();
+        replayExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // 예외가 executor 밖으로 나가면 이후 실행이 모두 취소되므로 여기서 막는다.
+    private void replaySafely() {
+        try {
+            replay();
+        } catch (RuntimeException ex) {
+            log.warn("[RELIABILITY] Spool replay run failed; will retry.", ex);
+        }
+    }
+
+    public void replay() {
+        refillTokens();
+        if (tokens < 1.0) {
+            return;
+        }
+        List<MappedSegmentLog.Entry> batch = spool.nextBatch((int) Math.min(batchSize, tokens));
+        if (batch.isEmpty() || !influxDBClient.ping()) {
+            return;
+        }
+        while (!batch.isEmpty()) {
+            if (!write(batch)) {
+                return;
+            }
+            spool.acknowledge(batch);
+            tokens -= batch.size();
+            if (tokens < 1.0) {
+                return;
+            }
+            batch = spool.nextBatch((int) Math.min(batchSize, tokens));
+        }
+    }
+
+    void refillTokens() {
+        long now = System.nanoTime();
+        tokens = Math.min(maxPointsPerSecond, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * maxPointsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private boolean write(List<MappedSegmentLog.Entry> batch) {
+        List<String> lines = new ArrayList<>(batch.size());
+        for (MappedSegmentLog.Entry entry : batch) {
+            lines.add(new String(entry.payload(), StandardCharsets.UTF_8));
+        }
+        try {
+            influxDBClient.getWriteApiBlocking().writeRecords(bucket, org, WritePrecision.MS, lines);
+            ingestionMetricsCollector.recordSpoolReplayed(batch.size());
+            return true;
+        } catch (RuntimeException ex) {
+            ingestionMetricsCollector.recordSpoolReplayFailure();
+            log.warn("[RELIABILITY] Spool replay to Influx failed; will retry. batchSize={}", batch.size(), ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.iot.IoT.ingestion.adapter.influx;
+
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.TemperatureSpoolPort;
+import com.iot.IoT.ingestion.spool.MappedSegmentLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Influx에 쓰지 못한 point를 line protocol 그대로 로컬 segment log에 남긴다. 재전송은 InfluxSpoolReplayer가 맡는다.
+// replay 위치는 메모리에만 두므로 재기동 시 남은 segment 처음부터 다시 보낸다.
+// 같은 series/timestamp point는 Influx에서 덮어쓰기 되므로 중복 재전송은 결과를 바꾸지 않는다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.spool", name = "enabled", havingValue = "true")
+public class InfluxWriteAheadSpool implements TemperatureSpoolPort {
+
+    private final MappedSegmentLog segmentLog;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private volatile MappedSegmentLog.Position replayCursor;
+
+    public InfluxWriteAheadSpool(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${ingestion.spool.directory:./data/spool/influx}") String directory,
+            @Value("${ingestion.spool.segment-size-bytes:16777216}") int segmentSizeBytes,
+            @Value("${ingestion.spool.max-size-bytes:1073741824}") long maxSizeBytes
+    ) {
+        this.segmentLog = new MappedSegmentLog(Path.of(directory), segmentSizeBytes, maxSizeBytes);
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.replayCursor = segmentLog.head();
+        ingestionMetricsCollector.registerSpoolMetrics(
+                this,
+                InfluxWriteAheadSpool::sizeBytes,
+                InfluxWriteAheadSpool::pendingBytes,
+                InfluxWriteAheadSpool::replayLagSeconds,
+                InfluxWriteAheadSpool::droppedSegments,
+                meterRegistry);
+    }
+
+    @Override
+    public boolean spool(DeviceTelemetry message, Instant occurredAt) {
+        return appendLines(List.of(InfluxDbTemperatureTimeSeriesAdapter.toStatusPoint(message, occurredAt).toLineProtocol()));
+    }
+
+    public boolean appendLines(List<String> lines) {
+        long now = System.currentTimeMillis();
+        int appended = 0;
+        for (String line : lines) {
+            if (segmentLog.append(line.getBytes(StandardCharsets.UTF_8), now)) {
+                appended++;
+            }
+        }
+        ingestionMetricsCollector.recordSpoolAppended(appended);
+        if (appended < lines.size()) {
+            ingestionMetricsCollector.recordSpoolRejected(lines.size() - appended);
+        }
+        return appended == lines.size();
+    }
+
+    List<MappedSegmentLog.Entry> nextBatch(int maxPoints) {
+        return segmentLog.read(replayCursor, maxPoints);
+    }
+
+    void acknowledge(List<MappedSegmentLog.Entry> replayed) {
+        if (replayed.isEmpty()) {
+            return;
+        }
+        replayCursor = replayed.get(replayed.size() - 1).next();
+        segmentLog.truncateBefore(replayCursor);
+    }
+
+    public long sizeBytes() {
+        return segmentLog.sizeBytes();
+    }
+
+    public long pendingBytes() {
+        return segmentLog.bytesAfter(replayCursor);
+    }
+
+    public long droppedSegments() {
+        return segmentLog.droppedSegments();
+    }
+
+    @Override
+    public Optional<Instant> oldestPendingAt() {
+        List<MappedSegmentLog.Entry> oldest = segmentLog.read(replayCursor, 1);
+        if (oldest.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(Instant.ofEpochMilli(oldest.get(0).appendedAtMillis()));
+    }
+
+    // 아직 재전송되지 않은 가장 오래된 point가 spool에 들어온 뒤 지난 시간.
+    public double replayLagSeconds() {
+        return oldestPendingAt()
+                .map(appendedAt -> Math.max(System.currentTimeMillis() - appendedAt.toEpochMilli(), 0) / 1000.0)
+                .orElse(0.0);
+    }
+
+    @PreDestroy
+    public void close() {
+        segmentLog.close();
+    }
+}
@@ -0,0 +1,178 @@
+package com.iot.IoT.ingestion.adapter.redis;
+
+import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.DeviceLastValueMirrorPort;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// device별 마지막 값을 Redis hash(device:{id}:last)로 내보낸다.
+// heartbeat coalescing과 같이 device별 최신 값만 모아 두었다가 flush-interval마다 pipeline으로 쓴다.
+// 여러 노드가 같은 device를 쓰므로 hash에 있는 occurredAt보다 늦은 값일 때만 Lua script로 덮어쓴다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.last-value.redis-mirror", name = "enabled", havingValue = "true")
+public class RedisDeviceLastValueMirror implements DeviceLastValueMirrorPort {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisDeviceLastValueMirror.class);
+    private static final String KEY_PREFIX = "device:";
+    private static final String KEY_SUFFIX = ":last";
+    private static final String FIELD_TEMP = "temp";
+    private static final String FIELD_TARGET_TEMP = "targetTemp";
+    private static final String FIELD_STATE = "state";
+    private static final String FIELD_OCCURRED_AT = "occurredAt";
+    private static final int PIPELINE_CHUNK_SIZE = 1_000;
+    private static final String WRITE_IF_NEWER_SCRIPT = """
+            local current = redis.call('HGET', KEYS[1], 'occurredAt')
+            if current and current ~= '' and tonumber(current) >= tonumber(ARGV[1]) then
+              return 0
+            end
+            redis.call('HSET', KEYS[1], 'occurredAt', ARGV[1], 'temp', ARGV[2], 'targetTemp', ARGV[3], 'state', ARGV[4])
+            return 1
+            """;
+
+    private final StringRedisTemplate redisTemplate;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final ConcurrentMap<String, DeviceTemperaturePointResponse> pending = new ConcurrentHashMap<>();
+
+    public RedisDeviceLastValueMirror(
+            StringRedisTemplate redisTemplate,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        ingestionMetricsCollector.registerLastValueMirrorMetrics(pending, meterRegistry);
+    }
+
+    @Override
+    public void publish(String deviceId, DeviceTemperaturePointResponse point) {
+        pending.merge(deviceId, point, RedisDeviceLastValueMirror::newer);
+    }
+
+    @Override
+    public Optional<DeviceTemperaturePointResponse> find(String deviceId) {
+        return toPoint(redisTemplate.opsForHash().entries(key(deviceId)));
+    }
+
+    // HGETALL을 chunk 단위 pipeline으로 보내 device 수만큼 round trip이 생기지 않게 한다.
+    @Override
+    public Map<String, DeviceTemperaturePointResponse> findAll(Collection<String> deviceIds) {
+        Map<String, DeviceTemperaturePointResponse> found = new HashMap<>(deviceIds.size() * 2);
+        List<String> ids = List.copyOf(deviceIds);
+        for (int from = 0; from < ids.size(); from += PIPELINE_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + PIPELINE_CHUNK_SIZE, ids.size()));
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String deviceId : chunk) {
+                    stringConnection.hGetAll(key(deviceId));
+                }
+                return null;
+            });
+            for (int index = 0; index < chunk.size(); index++) {
+                if (results.get(index) instanceof Map<?, ?> fields) {
+                    String deviceId = chunk.get(index);
+                    toPoint(fields).ifPresent(point -> found.put(deviceId, point));
+                }
+            }
+        }
+        return found;
+    }
+
+    @Scheduled(fixedDelayString = "${ingestion.last-value.redis-mirror.flush-interval-ms:500}")
+    @PreDestroy
+    public void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, DeviceTemperaturePointResponse>> entries = new ArrayList<>();
+        for (String deviceId : pending.keySet()) {
+            DeviceTemperaturePointResponse point = pending.remove(deviceId);
+            if (point != null) {
+                entries.add(Map.entry(deviceId, point));
+            }
+        }
+        for (int from = 0; from < entries.size(); from += PIPELINE_CHUNK_SIZE) {
+            List<Map.Entry<String, DeviceTemperaturePointResponse>> chunk =
+                    entries.subList(from, Math.min(from + PIPELINE_CHUNK_SIZE, entries.size()));
+            try {
+                writePipelined(chunk);
+            } catch (RuntimeException ex) {
+                ingestionMetricsCollector.recordRedisFailure();
+                // 다음 flush에서 다시 쓴다. 그 사이 들어온 더 새로운 값이 있으면 그 값이 남는다.
+                chunk.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), RedisDeviceLastValueMirror::newer));
+                log.error("[INGESTION] Redis last-value mirror flush failed. chunkSize={}", chunk.size(), ex);
+            }
+        }
+    }
+
+    private void writePipelined(List<Map.Entry<String, DeviceTemperaturePointResponse>> chunk) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Map.Entry<String, DeviceTemperaturePointResponse> entry : chunk) {
+                stringConnection.eval(WRITE_IF_NEWER_SCRIPT, ReturnType.INTEGER, 1, scriptKeysAndArgs(entry));
+            }
+            return null;
+        });
+    }
+
+    // 값이 없는 field도 빈 문자열로 덮어써 이전 값이 hash에 남지 않게 한다.
+    private static String[] scriptKeysAndArgs(Map.Entry<String, DeviceTemperaturePointResponse> entry) {
+        DeviceTemperaturePointResponse point = entry.getValue();
+        return new String[]{
+                key(entry.getKey()),
+                String.valueOf(point.occurredAt().toEpochMilli()),
+                point.temp() == null ? "" : point.temp().toPlainString(),
+                point.targetTemp() == null ? "" : point.targetTemp().toPlainString(),
+                point.state() == null ? "" : point.state().name()
+        };
+    }
+
+    private static Optional<DeviceTemperaturePointResponse> toPoint(Map<?, ?> fields) {
+        if (fields.isEmpty() || isBlank(fields.get(FIELD_OCCURRED_AT))) {
+            return Optional.empty();
+        }
+        return Optional.of(new DeviceTemperaturePointResponse(
+                Instant.ofEpochMilli(Long.parseLong((String) fields.get(FIELD_OCCURRED_AT))),
+                decimal(fields.get(FIELD_TEMP)),
+                decimal(fields.get(FIELD_TARGET_TEMP)),
+                isBlank(fields.get(FIELD_STATE)) ? null : DeviceState.valueOf((String) fields.get(FIELD_STATE))
+        ));
+    }
+
+    private static DeviceTemperaturePointResponse newer(DeviceTemperaturePointResponse current, DeviceTemperaturePointResponse candidate) {
+        return candidate.occurredAt().isBefore(current.occurredAt()) ? current : candidate;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return isBlank(value) ? null : new BigDecimal((String) value);
+    }
+
+    private static boolean isBlank(Object value) {
+        return value == null || ((String) value).isEmpty();
+    }
+
+    private static String key(String deviceId) {
+        return KEY_PREFIX + deviceId + KEY_SUFFIX;
+    }
+}
@@ -1,36 +1,150 @@
 package com.iot.IoT.ingestion.adapter.redis;
 
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
 import com.iot.IoT.ingestion.port.HeartbeatPort;
+import com.iot.IoT.watchdog.shard.WatchdogShards;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component
 public class RedisHeartbeatAdapter implements HeartbeatPort {
 
+    private static final Logger log = LoggerFactory.getLogger(RedisHeartbeatAdapter.class);
     private static final String KEY_PREFIX = "device:";
     private static final String KEY_SUFFIX = ":lastSeen";
     private static final String TRACKED_DEVICES_KEY = "devices:active";
+    private static final String LAST_SEEN_INDEX_KEY = "devices:lastSeen";
+    private static final String SHARD_KEY_INFIX = ":shard:";
+    private static final String WATCHDOG_MODE_DEADLINE_INDEX = "deadline-index";
+    private static final String HEARTBEAT_MODE_COALESCED = "coalesced";
+    private static final int PIPELINE_CHUNK_SIZE = 1_000;
 
     private final StringRedisTemplate redisTemplate;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
     private final Duration heartbeatTtl;
+    private final boolean coalesced;
+    private final boolean lastSeenIndexEnabled;
+    private final int shardCount;
+    private final ConcurrentMap<String, Long> pendingLastSeen = new ConcurrentHashMap<>();
 
     public RedisHeartbeatAdapter(
             StringRedisTemplate redisTemplate,
-            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds,
+            @Value("${ingestion.heartbeat.mode:direct}") String heartbeatMode,
+            @Value("${watchdog.mode:scan}") String watchdogMode,
+            @Value("${watchdog.sharding.enabled:false}") boolean shardingEnabled,
+            @Value("${watchdog.sharding.shard-count:16}") int shardCount
     ) {
         this.redisTemplate = redisTemplate;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
         this.heartbeatTtl = Duration.ofSeconds(heartbeatTtlSeconds);
+        this.coalesced = HEARTBEAT_MODE_COALESCED.equalsIgnoreCase(heartbeatMode);
+        this.lastSeenIndexEnabled = WATCHDOG_MODE_DEADLINE_INDEX.equalsIgnoreCase(watchdogMode);
+        this.shardCount = shardingEnabled ? Math.max(shardCount, 1) : 0;
+        ingestionMetricsCollector.registerHeartbeatCoalescerMetrics(pendingLastSeen, meterRegistry);
     }
 
     @Override
     public void updateLastSeen(String deviceId, Instant lastSeenAt) {
+        if (coalesced) {
+            pendingLastSeen.merge(deviceId, lastSeenAt.toEpochMilli(), Math::max);
+            ingestionMetricsCollector.recordHeartbeatCoalesced();
+            return;
+        }
         String key = KEY_PREFIX + deviceId + KEY_SUFFIX;
         String value = String.valueOf(lastSeenAt.toEpochMilli());
         redisTemplate.opsForValue().set(key, value, heartbeatTtl);
-        redisTemplate.opsForSet().add(TRACKED_DEVICES_KEY, deviceId);
+        redisTemplate.opsForSet().add(trackedKey(deviceId), deviceId);
+        if (lastSeenIndexEnabled) {
+            redisTemplate.opsForZSet().add(lastSeenIndexKey(deviceId), deviceId, lastSeenAt.toEpochMilli());
+        }
+    }
+
+    @Override
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    @Scheduled(fixedDelayString = "${ingestion.heartbeat.flush-interval-ms:500}")
+    @PreDestroy
+    public void flushPending() {
+        if (pendingLastSeen.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> batch = new LinkedHashMap<>();
+        for (String deviceId : pendingLastSeen.keySet()) {
+            Long lastSeenMillis = pendingLastSeen.remove(deviceId);
+            if (lastSeenMillis != null) {
+                batch.put(deviceId, lastSeenMillis);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long startedAtNanos = System.nanoTime();
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(batch.entrySet());
+        for (int from = 0; from < entries.size(); from += PIPELINE_CHUNK_SIZE) {
+            List<Map.Entry<String, Long>> chunk = entries.subList(from, Math.min(from + PIPELINE_CHUNK_SIZE, entries.size()));
+            try {
+                writePipelined(chunk);
+                ingestionMetricsCollector.recordHeartbeatFlushed(chunk.size());
+                ingestionMetricsCollector.recordRedisSuccess(chunk.size());
+            } catch (RuntimeException ex) {
+                // Count devices, not chunks, so success/failure ratios match direct mode.
+                ingestionMetricsCollector.recordRedisFailure(chunk.size());
+                // Put the chunk back so the next tick retries it; a newer lastSeen already queued wins.
+                chunk.forEach(entry -> pendingLastSeen.merge(entry.getKey(), entry.getValue(), Math::max));
+                log.error("[INGESTION] Redis heartbeat flush failed. chunkSize={}", chunk.size(), ex);
+            }
+        }
+        ingestionMetricsCollector.recordHeartbeatFlushLatency(System.nanoTime() - startedAtNanos);
+    }
+
+    private void writePipelined(List<Map.Entry<String, Long>> chunk) {
+        long ttlSeconds = heartbeatTtl.toSeconds();
+        Map<String, List<String>> deviceIdsByTrackedKey = new LinkedHashMap<>();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (Map.Entry<String, Long> entry : chunk) {
+                String deviceId = entry.getKey();
+                deviceIdsByTrackedKey.computeIfAbsent(trackedKey(deviceId), key -> new ArrayList<>()).add(deviceId);
+                stringConnection.setEx(KEY_PREFIX + deviceId + KEY_SUFFIX, ttlSeconds, String.valueOf(entry.getValue()));
+                if (lastSeenIndexEnabled) {
+                    stringConnection.zAdd(lastSeenIndexKey(deviceId), entry.getValue(), deviceId);
+                }
+            }
+            deviceIdsByTrackedKey.forEach((key, deviceIds) -> stringConnection.sAdd(key, deviceIds.toArray(String[]::new)));
+            return null;
+        });
+    }
+
+    // With watchdog sharding on, each shard owns its own tracked set and deadline index so a node only reads its shards.
+    private String trackedKey(String deviceId) {
+        return shardCount == 0 ? TRACKED_DEVICES_KEY : TRACKED_DEVICES_KEY + SHARD_KEY_INFIX + WatchdogShards.shardOf(deviceId, shardCount);
+    }
+
+    private String lastSeenIndexKey(String deviceId) {
+        return shardCount == 0 ? LAST_SEEN_INDEX_KEY : LAST_SEEN_INDEX_KEY + SHARD_KEY_INFIX + WatchdogShards.shardOf(deviceId, shardCount);
     }
 }
@@ -1,8 +1,16 @@
 package com.iot.IoT.ingestion.config;
 
+import com.iot.IoT.ingestion.executor.VirtualThreadIngestionExecutor;
+import com.iot.IoT.ingestion.lane.ShardedLaneExecutor;
 import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.overload.IngestionOverloadExecutor;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.annotation.IntegrationComponentScan;
@@ -24,8 +32,11 @@ import java.util.concurrent.RejectedExecutionException;
 @IntegrationComponentScan
 public class MqttConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(MqttConfig.class);
     public static final String INGESTION_ENQUEUED_AT_NANOS_HEADER = "ingestionEnqueuedAtNanos";
     private static final String CHANNEL_MODE_DIRECT = "direct";
+    private static final String CHANNEL_MODE_SHARDED = "sharded";
+    private static final String CHANNEL_MODE_VIRTUAL = "virtual";
 
     @Value("${spring.mqtt.broker-url}")
     private String brokerUrl;
@@ -54,11 +65,34 @@ public class MqttConfig {
     @Value("${ingestion.channel.mode:executor}")
     private String ingestionChannelMode;
 
+    @Value("${ingestion.lanes.count:8}")
+    private int laneCount;
+
+    @Value("${ingestion.lanes.capacity:1024}")
+    private int laneCapacity;
+
+    @Value("${ingestion.virtual.max-concurrency:512}")
+    private int virtualMaxConcurrency;
+
+    @Value("${ingestion.overload.policy:reject}")
+    private String overloadPolicy;
+
+    @Value("${ingestion.overload.priority-lane.pool-size:2}")
+    private int priorityLanePoolSize;
+
+    @Value("${ingestion.overload.priority-lane.queue-capacity:1000}")
+    private int priorityLaneQueueCapacity;
+
     @Bean
     public MessageChannel mqttInputChannel(
-            Executor mqttIngestionExecutor,
-            IngestionMetricsCollector ingestionMetricsCollector
+            @Qualifier("mqttIngestionExecutor") Executor mqttIngestionExecutor,
+            @Qualifier("mqttPriorityIngestionExecutor") ObjectProvider<Executor> mqttPriorityIngestionExecutor,
+            ObjectProvider<ShardedLaneExecutor> mqttLaneExecutor,
+            ObjectProvider<VirtualThreadIngestionExecutor> mqttVirtualIngestionExecutor,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            io.micrometer.core.instrument.MeterRegistry meterRegistry
     ) {
+        IngestionOverloadExecutor.requireKnownPolicy(overloadPolicy);
         ChannelInterceptor enqueuedAtInterceptor = new ChannelInterceptor() {
             @Override
             public org.springframework.messaging.Message<?> preSend(
@@ -80,11 +114,79 @@ public class MqttConfig {
             return channel;
         }
 
-        ExecutorChannel channel = new ExecutorChannel(mqttIngestionExecutor);
+        if (CHANNEL_MODE_SHARDED.equalsIgnoreCase(ingestionChannelMode)) {
+            ExecutorChannel channel = new ExecutorChannel(mqttLaneExecutor.getObject());
+            channel.addInterceptor(enqueuedAtInterceptor);
+            return channel;
+        }
+
+        if (CHANNEL_MODE_VIRTUAL.equalsIgnoreCase(ingestionChannelMode)) {
+            ExecutorChannel channel = new ExecutorChannel(mqttVirtualIngestionExecutor.getObject());
+            channel.addInterceptor(enqueuedAtInterceptor);
+            return channel;
+        }
+
+        if (IngestionOverloadExecutor.POLICY_REJECT.equalsIgnoreCase(overloadPolicy)) {
+            ExecutorChannel channel = new ExecutorChannel(mqttIngestionExecutor);
+            channel.addInterceptor(enqueuedAtInterceptor);
+            return channel;
+        }
+
+        IngestionOverloadExecutor overloadExecutor = new IngestionOverloadExecutor(
+                overloadPolicy,
+                mqttIngestionExecutor,
+                mqttPriorityIngestionExecutor.getIfAvailable(),
+                ingestionMetricsCollector,
+                meterRegistry,
+                throwable -> {
+                    ingestionMetricsCollector.recordProcessingFailure();
+                    log.error("[INGESTION] Channel dispatch failed. policy={}", overloadPolicy, throwable);
+                });
+        ExecutorChannel channel = new ExecutorChannel(overloadExecutor);
         channel.addInterceptor(enqueuedAtInterceptor);
         return channel;
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "ingestion.channel", name = "mode", havingValue = CHANNEL_MODE_SHARDED)
+    public ShardedLaneExecutor mqttLaneExecutor(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            io.micrometer.core.instrument.MeterRegistry meterRegistry
+    ) {
+        return new ShardedLaneExecutor(laneCount, laneCapacity, ingestionMetricsCollector, meterRegistry, throwable -> {
+            ingestionMetricsCollector.recordProcessingFailure();
+            log.error("[INGESTION] Lane dispatch failed.", throwable);
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ingestion.channel", name = "mode", havingValue = CHANNEL_MODE_VIRTUAL)
+    public VirtualThreadIngestionExecutor mqttVirtualIngestionExecutor(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            io.micrometer.core.instrument.MeterRegistry meterRegistry
+    ) {
+        return new VirtualThreadIngestionExecutor(virtualMaxConcurrency, ingestionMetricsCollector, meterRegistry);
+    }
+
+    // priority-lane 정책에서 상태 전환 메시지만 처리하는 별도 pool. thread는 첫 task가 들어올 때 생성된다.
+    @Bean
+    @ConditionalOnProperty(
+            prefix = "ingestion.overload",
+            name = "policy",
+            havingValue = IngestionOverloadExecutor.POLICY_PRIORITY_LANE
+    )
+    public Executor mqttPriorityIngestionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("mqtt-ingest-priority-");
+        executor.setCorePoolSize(Math.max(priorityLanePoolSize, 1));
+        executor.setMaxPoolSize(Math.max(priorityLanePoolSize, 1));
+        executor.setQueueCapacity(Math.max(priorityLaneQueueCapacity, 1));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
     @Bean
     public Executor mqttIngestionExecutor(
             IngestionMetricsCollector ingestionMetricsCollector,
@@ -132,6 +234,7 @@ public class MqttConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "ingestion.inbound", name = "client", havingValue = "adapter", matchIfMissing = true)
     public MessageProducer inbound(MqttPahoClientFactory mqttClientFactory) {
         MqttPahoMessageDrivenChannelAdapter adapter =
                 new MqttPahoMessageDrivenChannelAdapter(clientId, mqttClientFactory, defaultTopic);
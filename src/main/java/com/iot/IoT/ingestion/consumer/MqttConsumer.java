@@ -1,45 +1,61 @@
 package com.iot.IoT.ingestion.consumer;
 
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.deadletter.DeadLetterReplayService;
+import com.iot.IoT.ingestion.deadletter.DeadLetterStore;
+import com.iot.IoT.ingestion.dedup.TelemetryDeduplicator;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
 import com.iot.IoT.ingestion.exception.InvalidMqttPayloadException;
+import com.iot.IoT.ingestion.logging.HotPathLogSampler;
 import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
 import com.iot.IoT.ingestion.parser.MqttPayloadParser;
+import com.iot.IoT.ingestion.parser.StreamingDeviceStatusParser;
 import com.iot.IoT.ingestion.service.DeviceIngestionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
 @Component
 public class MqttConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(MqttConsumer.class);
+    private static final String PARSER_MODE_STREAMING = "streaming";
+    private static final String FAILURE_TYPE_PROCESSING = "PROCESSING_FAILED";
 
     private final MqttPayloadParser mqttPayloadParser;
+    private final StreamingDeviceStatusParser streamingDeviceStatusParser;
     private final DeviceIngestionService deviceIngestionService;
     private final IngestionMetricsCollector ingestionMetricsCollector;
-    private final Duration duplicateSuppressWindow;
-    private final Map<String, Instant> recentPayloads = new ConcurrentHashMap<>();
+    private final TelemetryDeduplicator telemetryDeduplicator;
+    private final DeadLetterStore deadLetterStore;
+    private final HotPathLogSampler hotPathLogSampler;
+    private final boolean streamingParser;
 
     public MqttConsumer(
             MqttPayloadParser mqttPayloadParser,
+            StreamingDeviceStatusParser streamingDeviceStatusParser,
             DeviceIngestionService deviceIngestionService,
             IngestionMetricsCollector ingestionMetricsCollector,
-            @org.springframework.beans.factory.annotation.Value("${ingestion.duplicate-suppress-window-seconds:2}")
-            long duplicateSuppressWindowSeconds
+            TelemetryDeduplicator telemetryDeduplicator,
+            Optional<DeadLetterStore> deadLetterStore,
+            HotPathLogSampler hotPathLogSampler,
+            @Value("${ingestion.parser.mode:databind}") String parserMode
     ) {
         this.mqttPayloadParser = mqttPayloadParser;
+        this.streamingDeviceStatusParser = streamingDeviceStatusParser;
         this.deviceIngestionService = deviceIngestionService;
         this.ingestionMetricsCollector = ingestionMetricsCollector;
-        this.duplicateSuppressWindow = Duration.ofSeconds(Math.max(duplicateSuppressWindowSeconds, 1));
+        this.telemetryDeduplicator = telemetryDeduplicator;
+        this.deadLetterStore = deadLetterStore.orElse(null);
+        this.hotPathLogSampler = hotPathLogSampler;
+        this.streamingParser = PARSER_MODE_STREAMING.equalsIgnoreCase(parserMode);
     }
 
     @ServiceActivator(inputChannel = "mqttInputChannel")
@@ -48,44 +64,45 @@ public class MqttConsumer {
         long enqueuedAtNanos = headerAsLong(message, com.iot.IoT.ingestion.config.MqttConfig.INGESTION_ENQUEUED_AT_NANOS_HEADER)
                 .orElse(startedAtNanos);
         String topic = (String) message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
-        String rawPayload = payloadAsString(message.getPayload());
+        byte[] payload = payloadAsBytes(message.getPayload());
         ingestionMetricsCollector.recordMqttReceived();
         ingestionMetricsCollector.incrementInFlight();
 
         try {
-            DeviceStatusMessage statusMessage = mqttPayloadParser.parseDeviceStatus(rawPayload);
-            if (isSuppressedDuplicate(statusMessage, rawPayload)) {
+            DeviceTelemetry telemetry = parse(payload);
+            if (telemetryDeduplicator.isDuplicate(telemetry.deviceId(), payload, System.currentTimeMillis())) {
                 ingestionMetricsCollector.recordDuplicateDropped();
                 log.warn("[RELIABILITY] Duplicate telemetry suppressed. topic={}, deviceId={}, windowSeconds={}",
                         topic,
-                        statusMessage.deviceId(),
-                        duplicateSuppressWindow.toSeconds());
+                        telemetry.deviceId(),
+                        telemetryDeduplicator.windowSeconds());
                 return;
             }
             ingestionMetricsCollector.recordParseSuccess();
-            log.info("[MQTT] Parsed device status. topic={}, deviceId={}, temp={}, targetTemp={}, state={}",
-                    topic,
-                    statusMessage.deviceId(),
-                    statusMessage.temp(),
-                    statusMessage.targetTemp(),
-                    statusMessage.state());
-            deviceIngestionService.ingest(statusMessage);
+            logParsed(topic, telemetry);
+            deviceIngestionService.ingest(telemetry);
         } catch (InvalidMqttPayloadException ex) {
             ingestionMetricsCollector.recordParseFailure();
             ingestionMetricsCollector.recordParseDeadLetter();
-            log.warn("[MQTT] Invalid payload. topic={}, payload={}, reason={}",
+            boolean deadLettered = deadLetter(message, topic, ex.failureType().name(), payload);
+            // 공격/펌웨어 버그 시 로그량이 payload 크기에 비례하지 않도록 WARN에는 크기만 남기고 원문은 dead-letter store에 둔다.
+            log.warn("[MQTT] Invalid payload. topic={}, payloadBytes={}, reason={}",
                     topic,
-                    rawPayload,
+                    payload.length,
                     ex.getMessage());
-            log.warn("[RELIABILITY] Parse failure classified. topic={}, failureType={}, replayable={}",
+            log.debug("[MQTT] Invalid payload body. topic={}, payload={}", topic, payloadAsString(payload));
+            log.warn("[RELIABILITY] Parse failure classified. topic={}, failureType={}, replayable={}, deadLettered={}",
                     topic,
                     ex.failureType(),
-                    ex.failureType().replayable());
+                    ex.failureType().replayable(),
+                    deadLettered);
         } catch (RuntimeException ex) {
             ingestionMetricsCollector.recordProcessingFailure();
             ingestionMetricsCollector.recordStorageReplayCandidate();
-            log.error("[MQTT] Processing failed. topic={}, payload={}", topic, rawPayload, ex);
-            log.error("[RELIABILITY] Runtime processing failure classified. topic={}, replayable=true", topic, ex);
+            boolean deadLettered = deadLetter(message, topic, FAILURE_TYPE_PROCESSING, payload);
+            log.error("[MQTT] Processing failed. topic={}, payloadBytes={}", topic, payload.length, ex);
+            log.error("[RELIABILITY] Runtime processing failure classified. topic={}, replayable=true, deadLettered={}",
+                    topic, deadLettered);
         } finally {
             ingestionMetricsCollector.decrementInFlight();
             ingestionMetricsCollector.recordProcessingLatency(System.nanoTime() - startedAtNanos);
@@ -93,21 +110,53 @@ public class MqttConsumer {
         }
     }
 
-    private boolean isSuppressedDuplicate(DeviceStatusMessage message, String rawPayload) {
-        Instant now = Instant.now();
-        Instant threshold = now.minus(duplicateSuppressWindow);
-        recentPayloads.entrySet().removeIf(entry -> entry.getValue().isBefore(threshold));
+    private void logParsed(String topic, DeviceTelemetry telemetry) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        long suppressed = hotPathLogSampler.admit(HotPathLogSampler.Category.PARSED, telemetry.deviceId());
+        if (suppressed == HotPathLogSampler.SUPPRESSED) {
+            return;
+        }
+        log.info("[MQTT] Parsed device status. topic={}, deviceId={}, temp={}, targetTemp={}, state={}, suppressed={}",
+                topic,
+                telemetry.deviceId(),
+                telemetry.temp(),
+                telemetry.targetTemp(),
+                telemetry.state(),
+                suppressed);
+    }
+
+    // replay로 다시 들어온 메시지는 원본 entry가 store에 남아 있으므로 또 저장하지 않는다.
+    private boolean deadLetter(Message<?> message, String topic, String failureType, byte[] payload) {
+        if (deadLetterStore == null || message.getHeaders().containsKey(DeadLetterReplayService.REPLAY_HEADER)) {
+            return false;
+        }
+        try {
+            return deadLetterStore.store(topic, failureType, payload, Instant.now());
+        } catch (RuntimeException ex) {
+            log.error("[RELIABILITY] Dead-letter store failed. topic={}", topic, ex);
+            return false;
+        }
+    }
+
+    // 두 parser 모두 primitive telemetry를 돌려주고, BigDecimal 변환은 status 응답을 만들 때만 한다.
+    private DeviceTelemetry parse(byte[] payload) {
+        if (streamingParser) {
+            return streamingDeviceStatusParser.parseDeviceStatus(payload);
+        }
+        return mqttPayloadParser.parseTelemetry(payload);
+    }
 
-        String dedupKey = message.deviceId() + ":" + rawPayload;
-        Instant previous = recentPayloads.put(dedupKey, now);
-        return previous != null && !previous.isBefore(threshold);
+    private String payloadAsString(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
     }
 
-    private String payloadAsString(Object payload) {
+    private byte[] payloadAsBytes(Object payload) {
         if (payload instanceof byte[] bytes) {
-            return new String(bytes, StandardCharsets.UTF_8);
+            return bytes;
         }
-        return String.valueOf(payload);
+        return String.valueOf(payload).getBytes(StandardCharsets.UTF_8);
     }
 
     private java.util.OptionalLong headerAsLong(Message<?> message, String headerName) {
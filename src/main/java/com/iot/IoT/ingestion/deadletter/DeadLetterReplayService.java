@@ -0,0 +1,173 @@
+package com.iot.IoT.ingestion.deadletter;
+
+import com.iot.IoT.ingestion.exception.DeadLetterReplayInProgressException;
+import com.iot.IoT.ingestion.inbound.InboundMessages;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// dead-letter를 mqttInputChannel로 다시 넣어 수신 메시지와 같은 parse/dedup/ingest 경로를 타게 한다.
+// 한 번에 replay 작업 하나만 background thread에서 돌리고, 초당 max-per-second건으로 간격을 둔다.
+// entry는 page 단위로 읽어 보내므로 max-batch가 커도 payload를 한꺼번에 메모리에 올리지 않는다.
+@Service
+@ConditionalOnProperty(prefix = "ingestion.dead-letter", name = "enabled", havingValue = "true")
+public class DeadLetterReplayService {
+
+    public static final String REPLAY_HEADER = "ingestionDeadLetterReplay";
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterReplayService.class);
+    private static final int QOS = 1;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000L;
+    private static final int REPLAY_PAGE_SIZE = 100;
+
+    private final DeadLetterStore deadLetterStore;
+    private final MessageChannel mqttInputChannel;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final long intervalNanos;
+    private final int maxBatch;
+    private final ExecutorService replayThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dead-letter-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<ReplayStatus> status = new AtomicReference<>(ReplayStatus.idle());
+
+    public DeadLetterReplayService(
+            DeadLetterStore deadLetterStore,
+            @Qualifier("mqttInputChannel") MessageChannel mqttInputChannel,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            @Value("${ingestion.dead-letter.replay.max-per-second:200}") double maxPerSecond,
+            @Value("${ingestion.dead-letter.replay.max-batch:10000}") int maxBatch
+    ) {
+        this.deadLetterStore = deadLetterStore;
+        this.mqttInputChannel = mqttInputChannel;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(maxPerSecond, 1.0));
+        this.maxBatch = Math.max(maxBatch, 1);
+    }
+
+    public ReplayStatus start(String cursor, String topic, String failureType, int limit) {
+        ReplayStatus current = status.get();
+        if (current.running()) {
+            throw new DeadLetterReplayInProgressException("dead-letter replay is already running");
+        }
+        int replayLimit = Math.min(Math.max(limit, 1), maxBatch);
+        String startCursor = deadLetterStore.resolveCursor(cursor);
+        ReplayStatus started = ReplayStatus.running(replayLimit, startCursor);
+        if (!status.compareAndSet(current, started)) {
+            throw new DeadLetterReplayInProgressException("dead-letter replay is already running");
+        }
+        replayThread.execute(() -> replay(startCursor, topic, failureType, replayLimit));
+        return started;
+    }
+
+    public ReplayStatus status() {
+        return status.get();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        replayThread.shutdownNow();
+        replayThread.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // nextCursor는 page를 다 보낸 뒤에만 옮긴다. 중간에 멈추면 그 page의 앞부분은 다시 replay될 수 있다.
+    private void replay(String cursor, String topic, String failureType, int limit) {
+        long nextSendNanos = System.nanoTime();
+        int remaining = limit;
+        try {
+            while (remaining > 0) {
+                DeadLetterStore.DeadLetterPage page =
+                        deadLetterStore.find(cursor, topic, failureType, Math.min(remaining, REPLAY_PAGE_SIZE));
+                for (DeadLetterStore.DeadLetter deadLetter : page.items()) {
+                    long waitNanos = nextSendNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                    nextSendNanos = Math.max(nextSendNanos, System.nanoTime()) + intervalNanos;
+                    send(deadLetter);
+                }
+                remaining -= page.items().size();
+                boolean reachedEnd = page.nextCursor().equals(cursor);
+                cursor = page.nextCursor();
+                String reached = cursor;
+                status.updateAndGet(current -> current.advance(reached));
+                if (reachedEnd) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("[RELIABILITY] Dead-letter replay stopped. cursor={}", cursor, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            ReplayStatus finished = status.updateAndGet(ReplayStatus::finish);
+            log.info("[RELIABILITY] Dead-letter replay finished. requested={}, sent={}, failed={}, nextCursor={}",
+                    finished.requested(), finished.sent(), finished.failed(), finished.nextCursor());
+        }
+    }
+
+    private void send(DeadLetterStore.DeadLetter deadLetter) {
+        Message<byte[]> message = MessageBuilder.fromMessage(InboundMessages.of(deadLetter.topic(), deadLetter.payload(), QOS))
+                .setHeader(REPLAY_HEADER, deadLetter.id())
+                .build();
+        try {
+            mqttInputChannel.send(message);
+            ingestionMetricsCollector.recordDeadLetterReplayed();
+            status.updateAndGet(ReplayStatus::recordSent);
+        } catch (RuntimeException ex) {
+            ingestionMetricsCollector.recordDeadLetterReplayFailure();
+            status.updateAndGet(ReplayStatus::recordFailed);
+            log.warn("[RELIABILITY] Dead-letter replay handoff failed. id={}, topic={}", deadLetter.id(), deadLetter.topic(), ex);
+        }
+    }
+
+    public record ReplayStatus(
+            boolean running,
+            int requested,
+            int sent,
+            int failed,
+            String nextCursor,
+            Instant startedAt,
+            Instant finishedAt
+    ) {
+
+        static ReplayStatus idle() {
+            return new ReplayStatus(false, 0, 0, 0, null, null, null);
+        }
+
+        static ReplayStatus running(int requested, String nextCursor) {
+            return new ReplayStatus(true, requested, 0, 0, nextCursor, Instant.now(), null);
+        }
+
+        ReplayStatus recordSent() {
+            return new ReplayStatus(running, requested, sent + 1, failed, nextCursor, startedAt, finishedAt);
+        }
+
+        ReplayStatus advance(String cursor) {
+            return new ReplayStatus(running, requested, sent, failed, cursor, startedAt, finishedAt);
+        }
+
+        ReplayStatus recordFailed() {
+            return new ReplayStatus(running, requested, sent, failed + 1, nextCursor, startedAt, finishedAt);
+        }
+
+        ReplayStatus finish() {
+            return new ReplayStatus(false, requested, sent, failed, nextCursor, startedAt, Instant.now());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.iot.IoT.ingestion.deadletter;
+
+import com.iot.IoT.ingestion.exception.InvalidDeadLetterQueryException;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.spool.MappedSegmentLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// 처리하지 못한 MQTT 메시지를 raw byte 그대로 로컬 segment log에 남긴다.
+// record payload = [short topicLength][topic][short failureTypeLength][failureType][raw payload], 저장 시각은 segment log header에 둔다.
+// 크기가 max-size-bytes를 넘으면 가장 오래된 segment부터 버린다.
+// 조회는 한 번에 max-scan-records개까지만 훑으므로 filter에 맞는 entry가 드물어도 요청 하나가 log 전체를 읽지 않는다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.dead-letter", name = "enabled", havingValue = "true")
+public class DeadLetterStore {
+
+    private static final int SCAN_BATCH = 256;
+
+    private final MappedSegmentLog segmentLog;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final int maxScanRecords;
+
+    public DeadLetterStore(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${ingestion.dead-letter.directory:./data/dead-letter}") String directory,
+            @Value("${ingestion.dead-letter.segment-size-bytes:4194304}") int segmentSizeBytes,
+            @Value("${ingestion.dead-letter.max-size-bytes:268435456}") long maxSizeBytes,
+            @Value("${ingestion.dead-letter.query.max-scan-records:10000}") int maxScanRecords
+    ) {
+        this(new MappedSegmentLog(Path.of(directory), segmentSizeBytes, maxSizeBytes),
+                ingestionMetricsCollector, meterRegistry, maxScanRecords);
+    }
+
+    DeadLetterStore(
+            MappedSegmentLog segmentLog,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            int maxScanRecords
+    ) {
+        this.segmentLog = segmentLog;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.maxScanRecords = Math.max(maxScanRecords, 1);
+        ingestionMetricsCollector.registerDeadLetterMetrics(
+                segmentLog, MappedSegmentLog::sizeBytes, MappedSegmentLog::droppedSegments, meterRegistry);
+    }
+
+    public boolean store(String topic, String failureType, byte[] payload, Instant receivedAt) {
+        byte[] topicBytes = truncate(topic == null ? new byte[0] : topic.getBytes(StandardCharsets.UTF_8));
+        byte[] failureTypeBytes = truncate(failureType.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer record = ByteBuffer.allocate(Short.BYTES * 2 + topicBytes.length + failureTypeBytes.length + payload.length);
+        record.putShort((short) topicBytes.length).put(topicBytes);
+        record.putShort((short) failureTypeBytes.length).put(failureTypeBytes);
+        record.put(payload);
+        boolean stored = segmentLog.append(record.array(), receivedAt.toEpochMilli());
+        if (stored) {
+            ingestionMetricsCollector.recordDeadLetterStored();
+        } else {
+            ingestionMetricsCollector.recordDeadLetterRejected();
+        }
+        return stored;
+    }
+
+    // cursor 이후 entry를 필터에 맞는 것만 최대 limit개 읽는다. next는 마지막으로 훑은 위치 다음을 가리킨다.
+    // max-scan-records개를 훑어도 limit개를 못 채우면 그때까지 찾은 것만 돌려주고, 이어서 읽을 위치는 next로 준다.
+    public DeadLetterPage find(String cursor, String topic, String failureType, int limit) {
+        MappedSegmentLog.Position position = resolvePosition(cursor);
+        List<DeadLetter> items = new ArrayList<>();
+        int scanned = 0;
+        while (items.size() < limit && scanned < maxScanRecords) {
+            List<MappedSegmentLog.Entry> entries = segmentLog.read(position, Math.min(SCAN_BATCH, maxScanRecords - scanned));
+            if (entries.isEmpty()) {
+                break;
+            }
+            for (MappedSegmentLog.Entry entry : entries) {
+                position = entry.next();
+                scanned++;
+                DeadLetter deadLetter = decode(entry);
+                if (matches(deadLetter, topic, failureType)) {
+                    items.add(deadLetter);
+                    if (items.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new DeadLetterPage(items, formatCursor(position));
+    }
+
+    // replay처럼 나중에 읽기 시작하는 호출자가 잘못된 cursor를 요청 시점에 거절할 수 있게 한다.
+    public String resolveCursor(String cursor) {
+        return formatCursor(resolvePosition(cursor));
+    }
+
+    public long sizeBytes() {
+        return segmentLog.sizeBytes();
+    }
+
+    @PreDestroy
+    public void close() {
+        segmentLog.close();
+    }
+
+    private MappedSegmentLog.Position resolvePosition(String cursor) {
+        MappedSegmentLog.Position position = cursor == null || cursor.isBlank() ? segmentLog.head() : parseCursor(cursor);
+        // 숫자로는 맞지만 record 중간이나 log 밖을 가리키는 cursor로 임의 길이를 읽지 않도록 record 경계인지 확인한다.
+        if (!segmentLog.isRecordBoundary(position)) {
+            throw new InvalidDeadLetterQueryException("invalid dead-letter cursor: " + cursor);
+        }
+        return position;
+    }
+
+    static String formatCursor(MappedSegmentLog.Position position) {
+        return position.segment() + "-" + position.offset();
+    }
+
+    static MappedSegmentLog.Position parseCursor(String cursor) {
+        int separator = cursor.indexOf('-');
+        if (separator <= 0) {
+            throw new InvalidDeadLetterQueryException("invalid dead-letter cursor: " + cursor);
+        }
+        try {
+            return new MappedSegmentLog.Position(
+                    Long.parseLong(cursor.substring(0, separator)),
+                    Integer.parseInt(cursor.substring(separator + 1)));
+        } catch (NumberFormatException ex) {
+            throw new InvalidDeadLetterQueryException("invalid dead-letter cursor: " + cursor);
+        }
+    }
+
+    private static DeadLetter decode(MappedSegmentLog.Entry entry) {
+        ByteBuffer record = ByteBuffer.wrap(entry.payload());
+        byte[] topic = new byte[record.getShort()];
+        record.get(topic);
+        byte[] failureType = new byte[record.getShort()];
+        record.get(failureType);
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        return new DeadLetter(
+                formatCursor(entry.position()),
+                new String(topic, StandardCharsets.UTF_8),
+                new String(failureType, StandardCharsets.UTF_8),
+                Instant.ofEpochMilli(entry.appendedAtMillis()),
+                payload);
+    }
+
+    private static boolean matches(DeadLetter deadLetter, String topic, String failureType) {
+        return (topic == null || topic.isBlank() || topic.equals(deadLetter.topic()))
+                && (failureType == null || failureType.isBlank() || failureType.equalsIgnoreCase(deadLetter.failureType()));
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        if (bytes.length <= Short.MAX_VALUE) {
+            return bytes;
+        }
+        byte[] truncated = new byte[Short.MAX_VALUE];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        return truncated;
+    }
+
+    public record DeadLetter(String id, String topic, String failureType, Instant receivedAt, byte[] payload) {
+    }
+
+    public record DeadLetterPage(List<DeadLetter> items, String nextCursor) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.iot.IoT.ingestion.dedup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class TelemetryDeduplicator {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ConcurrentMap<String, Slot> lastPayloadByDevice = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAtMillis = new AtomicLong(0);
+    private final long windowMillis;
+
+    public TelemetryDeduplicator(
+            @Value("${ingestion.duplicate-suppress-window-seconds:2}") long duplicateSuppressWindowSeconds
+    ) {
+        this.windowMillis = Duration.ofSeconds(Math.max(duplicateSuppressWindowSeconds, 1)).toMillis();
+    }
+
+    public boolean isDuplicate(String deviceId, byte[] payload, long nowMillis) {
+        sweepIfDue(nowMillis);
+
+        long hash = hash64(payload);
+        Slot next = new Slot(hash, nowMillis);
+        while (true) {
+            Slot previous = lastPayloadByDevice.putIfAbsent(deviceId, next);
+            if (previous == null) {
+                return false;
+            }
+            if (lastPayloadByDevice.replace(deviceId, previous, next)) {
+                return previous.hash() == hash && nowMillis - previous.seenAtMillis() < windowMillis;
+            }
+        }
+    }
+
+    public long windowSeconds() {
+        return Duration.ofMillis(windowMillis).toSeconds();
+    }
+
+    public int trackedDeviceCount() {
+        return lastPayloadByDevice.size();
+    }
+
+    private void sweepIfDue(long nowMillis) {
+        long dueAt = nextSweepAtMillis.get();
+        if (nowMillis < dueAt || !nextSweepAtMillis.compareAndSet(dueAt, nowMillis + windowMillis)) {
+            return;
+        }
+        long threshold = nowMillis - windowMillis;
+        lastPayloadByDevice.values().removeIf(slot -> slot.seenAtMillis() < threshold);
+    }
+
+    static long hash64(byte[] payload) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : payload) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private record Slot(long hash, long seenAtMillis) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.iot.IoT.ingestion.dto;
+
+public record DeviceTelemetry(
+        String deviceId,
+        double temp,
+        DeviceState state,
+        double targetTemp
+) {
+}
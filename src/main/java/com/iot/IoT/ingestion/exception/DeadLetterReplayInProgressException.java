@@ -0,0 +1,8 @@
+package com.iot.IoT.ingestion.exception;
+
+public class DeadLetterReplayInProgressException extends RuntimeException {
+
+    public DeadLetterReplayInProgressException(String message) {
+        super(message);
+    }
+}
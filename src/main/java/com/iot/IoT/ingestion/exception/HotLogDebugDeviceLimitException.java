@@ -0,0 +1,8 @@
+package com.iot.IoT.ingestion.exception;
+
+public class HotLogDebugDeviceLimitException extends RuntimeException {
+
+    public HotLogDebugDeviceLimitException(String message) {
+        super(message);
+    }
+}
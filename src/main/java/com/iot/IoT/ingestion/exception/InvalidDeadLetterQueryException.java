@@ -0,0 +1,8 @@
+package com.iot.IoT.ingestion.exception;
+
+public class InvalidDeadLetterQueryException extends RuntimeException {
+
+    public InvalidDeadLetterQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.iot.IoT.ingestion.executor;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 메시지마다 virtual thread 하나를 띄워 Influx/Redis/MySQL/MQTT publish의 blocking I/O를 carrier thread 점유 없이 기다린다.
+// 동시 실행 수는 semaphore로 제한하며, permit이 없으면 수신 스레드가 대기해 broker 쪽으로 backpressure를 건다.
+public class VirtualThreadIngestionExecutor implements Executor, AutoCloseable {
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+    private final ExecutorService virtualThreads;
+    private final Semaphore permits;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+
+    public VirtualThreadIngestionExecutor(
+            int maxConcurrency,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry
+    ) {
+        int limit = Math.max(maxConcurrency, 1);
+        this.virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mqtt-ingest-vt-", 0).factory());
+        this.permits = new Semaphore(limit);
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        ingestionMetricsCollector.registerVirtualExecutorMetrics(permits, limit, meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long enqueuedAtNanos = System.nanoTime();
+        acquirePermit();
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    ingestionMetricsCollector.recordExecutorQueueWait(System.nanoTime() - enqueuedAtNanos);
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            ingestionMetricsCollector.recordExecutorRejected();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        virtualThreads.shutdown();
+        virtualThreads.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        ingestionMetricsCollector.recordVirtualPermitWaited();
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            ingestionMetricsCollector.recordExecutorRejected();
+            throw new RejectedExecutionException("interrupted while waiting for an ingestion permit", ex);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.iot.IoT.ingestion.inbound;
+
+import com.hivemq.client.mqtt.MqttClient;
+import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
+import com.hivemq.client.mqtt.mqtt5.message.auth.Mqtt5SimpleAuth;
+import com.hivemq.client.mqtt.mqtt5.message.connect.Mqtt5Connect;
+import com.hivemq.client.mqtt.mqtt5.message.connect.Mqtt5ConnectBuilder;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// MQTT 5 shared subscription($share/<group>/<topic>)으로 구독해 broker가 같은 group의 연결들에 메시지를 나눠 준다.
+// 노드 N개 x 노드당 연결 M개가 한 group에 묶이면 수신 부하가 N*M개 연결로 분산된다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.inbound", name = "client", havingValue = "hivemq")
+public class HiveMqSharedSubscriptionInbound implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(HiveMqSharedSubscriptionInbound.class);
+    private static final String CLIENT_TYPE = "hivemq";
+    private static final String SHARED_PREFIX = "$share/";
+    private static final int DEFAULT_PORT = 1883;
+    private static final long DISCONNECT_TIMEOUT_SECONDS = 10L;
+
+    private final MessageChannel mqttInputChannel;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final MeterRegistry meterRegistry;
+    private final URI brokerUri;
+    private final String clientIdPrefix;
+    private final String username;
+    private final String password;
+    private final String topicFilter;
+    private final int connectionCount;
+    private final List<Mqtt5AsyncClient> clients = new ArrayList<>();
+    private final List<ExecutorService> callbackExecutors = new ArrayList<>();
+    private final InboundHandoffWarning handoffWarning = new InboundHandoffWarning(log, "HiveMQ");
+    private volatile boolean running;
+
+    public HiveMqSharedSubscriptionInbound(
+            @Qualifier("mqttInputChannel") MessageChannel mqttInputChannel,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${spring.mqtt.broker-url}") String brokerUrl,
+            @Value("${spring.mqtt.client-id}") String clientId,
+            @Value("${spring.mqtt.username:}") String username,
+            @Value("${spring.mqtt.password:}") String password,
+            @Value("${spring.mqtt.default-topic}") String defaultTopic,
+            @Value("${ingestion.inbound.shared-group:}") String sharedGroup,
+            @Value("${ingestion.inbound.connections:1}") int connections
+    ) {
+        this.mqttInputChannel = mqttInputChannel;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.meterRegistry = meterRegistry;
+        this.brokerUri = URI.create(brokerUrl.replace("tcp://", "mqtt://"));
+        this.clientIdPrefix = clientIdPrefix(clientId);
+        this.username = username;
+        this.password = password;
+        this.topicFilter = topicFilter(defaultTopic, sharedGroup);
+        this.connectionCount = connectionCount(sharedGroup, connections);
+        if (sharedGroup.isBlank() && connections > 1) {
+            log.warn("[MQTT] ingestion.inbound.shared-group is blank; using a single connection to avoid duplicate delivery. requestedConnections={}",
+                    connections);
+        }
+    }
+
+    static String topicFilter(String defaultTopic, String sharedGroup) {
+        return sharedGroup.isBlank() ? defaultTopic : SHARED_PREFIX + sharedGroup + "/" + defaultTopic;
+    }
+
+    // shared group이 없으면 연결마다 같은 메시지를 받게 되므로 연결 1개만 연다.
+    static int connectionCount(String sharedGroup, int connections) {
+        return sharedGroup.isBlank() ? 1 : Math.max(connections, 1);
+    }
+
+    // 여러 노드가 같은 spring.mqtt.client-id를 쓰므로 노드마다 random suffix를 붙이고, 연결마다 index를 붙인다.
+    static String clientIdPrefix(String clientId) {
+        return clientId + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    static String clientIdentifier(String clientIdPrefix, int index) {
+        return clientIdPrefix + "-" + index;
+    }
+
+    @Override
+    public void start() {
+        for (int index = 0; index < connectionCount; index++) {
+            clients.add(connect(index));
+        }
+        running = true;
+        log.info("[MQTT] HiveMQ inbound started. topicFilter={}, connections={}", topicFilter, connectionCount);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Mqtt5AsyncClient client : clients) {
+            try {
+                client.disconnect().get(DISCONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception ex) {
+                log.warn("[MQTT] HiveMQ inbound disconnect failed. clientId={}", client.getConfig().getClientIdentifier(), ex);
+            }
+        }
+        clients.clear();
+        callbackExecutors.forEach(ExecutorService::shutdownNow);
+        callbackExecutors.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Spring Integration message producer와 같은 phase로, consumer endpoint가 구독된 뒤에 연결한다.
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE / 2;
+    }
+
+    private Mqtt5AsyncClient connect(int index) {
+        AtomicReference<Mqtt5AsyncClient> clientRef = new AtomicReference<>();
+        Mqtt5AsyncClient client = MqttClient.builder()
+                .useMqttVersion5()
+                .identifier(clientIdentifier(clientIdPrefix, index))
+                .serverHost(brokerUri.getHost())
+                .serverPort(brokerUri.getPort() == -1 ? DEFAULT_PORT : brokerUri.getPort())
+                .automaticReconnectWithDefaultConfig()
+                // clean start라 재연결 시 구독이 사라지므로 연결될 때마다 다시 구독한다.
+                .addConnectedListener(context -> subscribe(clientRef.get(), index))
+                .buildAsync();
+        clientRef.set(client);
+
+        Counter receivedCounter = ingestionMetricsCollector.registerInboundConnectionMetrics(
+                CLIENT_TYPE, index, client, candidate -> candidate.getState().isConnected() ? 1 : 0, meterRegistry);
+        Counter handoffFailureCounter = ingestionMetricsCollector.registerInboundHandoffFailureCounter(
+                CLIENT_TYPE, index, meterRegistry);
+        // sharded/virtual 채널은 send에서 block될 수 있으므로 공유 Netty event loop가 아니라 연결 전용 thread에서 넘긴다.
+        // thread가 막히면 QoS1 ack가 늦어져 broker의 receive-maximum flow control이 연결 단위 backpressure가 된다.
+        ExecutorService callbackExecutor = callbackExecutor(index);
+        callbackExecutors.add(callbackExecutor);
+        client.publishes(MqttGlobalPublishFilter.SUBSCRIBED,
+                publish -> handoff(publish, index, receivedCounter, handoffFailureCounter),
+                callbackExecutor);
+
+        // 최초 연결 실패도 automatic reconnect가 재시도하므로 기동을 막지 않는다.
+        client.connect(connectMessage()).whenComplete((connAck, ex) -> {
+            if (ex != null) {
+                log.warn("[MQTT] HiveMQ inbound connect failed; retrying in background. connection={}", index, ex);
+            }
+        });
+        return client;
+    }
+
+    // 연결당 thread 1개라 한 연결 안의 수신 순서는 유지된다.
+    static ExecutorService callbackExecutor(int index) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hivemq-inbound-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void subscribe(Mqtt5AsyncClient client, int index) {
+        client.subscribeWith()
+                .topicFilter(topicFilter)
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .send()
+                .whenComplete((subAck, ex) -> {
+                    if (ex != null) {
+                        log.error("[MQTT] HiveMQ inbound subscribe failed. connection={}, topicFilter={}", index, topicFilter, ex);
+                    }
+                });
+    }
+
+    void handoff(Mqtt5Publish publish, int index, Counter receivedCounter, Counter handoffFailureCounter) {
+        receivedCounter.increment();
+        try {
+            mqttInputChannel.send(InboundMessages.of(publish.getTopic().toString(), publish.getPayloadAsBytes(), publish.getQos().getCode()));
+        } catch (RuntimeException ex) {
+            // reject 정책에서 queue가 가득 찬 경우 등.
+            handoffFailureCounter.increment();
+            handoffWarning.failed(index, publish.getTopic().toString(), ex);
+        }
+    }
+
+    private Mqtt5Connect connectMessage() {
+        Mqtt5ConnectBuilder builder = Mqtt5Connect.builder().cleanStart(true);
+        if (!username.isBlank() || !password.isBlank()) {
+            builder = builder.simpleAuth(simpleAuth());
+        }
+        return builder.build();
+    }
+
+    private Mqtt5SimpleAuth simpleAuth() {
+        byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+        if (username.isBlank()) {
+            return Mqtt5SimpleAuth.builder().password(passwordBytes).build();
+        }
+        if (password.isBlank()) {
+            return Mqtt5SimpleAuth.builder().username(username).build();
+        }
+        return Mqtt5SimpleAuth.builder().username(username).password(passwordBytes).build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.iot.IoT.ingestion.inbound;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 수신 client들이 handoff 실패를 같은 방식으로 남기게 한다.
+// 실패는 모두 세고, WARN은 interval마다 한 줄만 직전 이후 실패 수와 함께 남긴다.
+final class InboundHandoffWarning {
+
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Logger log;
+    private final String clientName;
+    private final LongAdder failuresSinceWarn = new LongAdder();
+    private final AtomicLong nextWarnNanos = new AtomicLong(System.nanoTime());
+
+    InboundHandoffWarning(Logger log, String clientName) {
+        this.log = log;
+        this.clientName = clientName;
+    }
+
+    void failed(int connection, String topic, RuntimeException ex) {
+        failuresSinceWarn.increment();
+        long now = System.nanoTime();
+        long next = nextWarnNanos.get();
+        if (now - next < 0 || !nextWarnNanos.compareAndSet(next, now + WARN_INTERVAL_NANOS)) {
+            return;
+        }
+        log.warn("[MQTT] {} inbound handoff failed. connection={}, topic={}, failuresSinceLastWarn={}",
+                clientName, connection, topic, failuresSinceWarn.sumThenReset(), ex);
+    }
+}
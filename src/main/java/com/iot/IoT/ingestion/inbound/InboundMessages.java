@@ -0,0 +1,25 @@
+package com.iot.IoT.ingestion.inbound;
+
+import com.iot.IoT.ingestion.config.MqttConfig;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 수신 스레드에서 하는 일을 handoff만으로 줄이기 위해 header map을 한 번만 만들고 enqueuedAt도 미리 채운다.
+// enqueuedAt이 있으면 mqttInputChannel interceptor가 message를 다시 복사하지 않는다.
+public final class InboundMessages {
+
+    private InboundMessages() {
+    }
+
+    public static Message<byte[]> of(String topic, byte[] payload, int qos) {
+        Map<String, Object> headers = new HashMap<>(4);
+        headers.put(MqttHeaders.RECEIVED_TOPIC, topic);
+        headers.put(MqttHeaders.RECEIVED_QOS, qos);
+        headers.put(MqttConfig.INGESTION_ENQUEUED_AT_NANOS_HEADER, System.nanoTime());
+        return new GenericMessage<>(payload, headers);
+    }
+}
@@ -0,0 +1,262 @@
+package com.iot.IoT.ingestion.inbound;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Paho 연결 여러 개가 topic 공간을 나눠 구독하고, 각 연결이 mqttInputChannel로 독립적으로 handoff한다.
+// Paho 연결마다 callback thread가 하나라서, 연결 수만큼 수신 thread가 늘어난다.
+@Component
+@ConditionalOnProperty(prefix = "ingestion.inbound", name = "client", havingValue = "paho")
+public class PahoPartitionedInbound implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PahoPartitionedInbound.class);
+    private static final String CLIENT_TYPE = "paho";
+    private static final String SHARED_PREFIX = "$share/";
+    private static final int QOS = 1;
+    private static final long COMPLETION_TIMEOUT_MS = 5_000L;
+    private static final long RECOVERY_INTERVAL_MS = 10_000L;
+
+    private final MessageChannel mqttInputChannel;
+    private final MqttPahoClientFactory mqttClientFactory;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final MeterRegistry meterRegistry;
+    private final String brokerUrl;
+    private final String clientIdPrefix;
+    private final List<String[]> filtersByConnection;
+    private final List<IMqttAsyncClient> clients = new ArrayList<>();
+    private final InboundHandoffWarning handoffWarning = new InboundHandoffWarning(log, "Paho");
+    private volatile boolean running;
+
+    public PahoPartitionedInbound(
+            @Qualifier("mqttInputChannel") MessageChannel mqttInputChannel,
+            MqttPahoClientFactory mqttClientFactory,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${spring.mqtt.broker-url}") String brokerUrl,
+            @Value("${spring.mqtt.client-id}") String clientId,
+            @Value("${spring.mqtt.default-topic}") String defaultTopic,
+            @Value("${ingestion.inbound.shared-group:}") String sharedGroup,
+            @Value("${ingestion.inbound.connections:1}") int connections,
+            @Value("${ingestion.inbound.topic-partitions:}") String[] topicPartitions
+    ) {
+        this.mqttInputChannel = mqttInputChannel;
+        this.mqttClientFactory = mqttClientFactory;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.meterRegistry = meterRegistry;
+        this.brokerUrl = brokerUrl;
+        this.clientIdPrefix = clientId + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.filtersByConnection = assignFilters(defaultTopic, sharedGroup, Math.max(connections, 1), topicPartitions);
+    }
+
+    // topic-partitions가 있으면 round-robin으로 연결에 나눠 주고, 없으면 shared subscription으로 broker가 나누게 한다.
+    // 둘 다 없으면 모든 연결이 같은 메시지를 받게 되므로 연결 1개로 일반 구독한다.
+    static List<String[]> assignFilters(String defaultTopic, String sharedGroup, int connections, String[] topicPartitions) {
+        List<String> partitions = Arrays.stream(topicPartitions == null ? new String[0] : topicPartitions)
+                .map(String::trim)
+                .filter(partition -> !partition.isEmpty())
+                .toList();
+        List<String[]> assigned = new ArrayList<>();
+        if (!partitions.isEmpty()) {
+            int connectionCount = Math.min(connections, partitions.size());
+            for (int index = 0; index < connectionCount; index++) {
+                List<String> filters = new ArrayList<>();
+                for (int partition = index; partition < partitions.size(); partition += connectionCount) {
+                    filters.add(partitions.get(partition));
+                }
+                assigned.add(filters.toArray(String[]::new));
+            }
+            return assigned;
+        }
+        if (sharedGroup == null || sharedGroup.isBlank()) {
+            if (connections > 1) {
+                log.warn("[MQTT] Neither topic-partitions nor shared-group is set; using a single connection to avoid duplicate delivery. requestedConnections={}",
+                        connections);
+            }
+            assigned.add(new String[]{defaultTopic});
+            return assigned;
+        }
+        for (int index = 0; index < connections; index++) {
+            assigned.add(new String[]{SHARED_PREFIX + sharedGroup + "/" + defaultTopic});
+        }
+        return assigned;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int index = 0; index < filtersByConnection.size(); index++) {
+            clients.add(connect(index, filtersByConnection.get(index)));
+        }
+        log.info("[MQTT] Paho partitioned inbound started. connections={}", filtersByConnection.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (IMqttAsyncClient client : clients) {
+            try {
+                if (client.isConnected()) {
+                    client.disconnect().waitForCompletion(COMPLETION_TIMEOUT_MS);
+                }
+                client.close();
+            } catch (MqttException ex) {
+                log.warn("[MQTT] Paho inbound disconnect failed. clientId={}", client.getClientId(), ex);
+            }
+        }
+        clients.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Spring Integration message producer와 같은 phase로, consumer endpoint가 구독된 뒤에 연결한다.
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE / 2;
+    }
+
+    private IMqttAsyncClient connect(int index, String[] filters) {
+        try {
+            IMqttAsyncClient client = mqttClientFactory.getAsyncClientInstance(brokerUrl, clientIdPrefix + "-" + index);
+            Counter receivedCounter = ingestionMetricsCollector.registerInboundConnectionMetrics(
+                    CLIENT_TYPE, index, client, candidate -> candidate.isConnected() ? 1 : 0, meterRegistry);
+            Counter handoffFailureCounter = ingestionMetricsCollector.registerInboundHandoffFailureCounter(
+                    CLIENT_TYPE, index, meterRegistry);
+            client.setCallback(new PartitionCallback(client, index, filters, receivedCounter, handoffFailureCounter));
+            connectAsync(client, index);
+            return client;
+        } catch (MqttException ex) {
+            throw new IllegalStateException("failed to create paho inbound connection " + index, ex);
+        }
+    }
+
+    // Paho automatic reconnect는 한 번 연결된 뒤에만 동작하므로, 최초 연결 실패는 여기서 재시도한다.
+    private void connectAsync(IMqttAsyncClient client, int index) {
+        try {
+            client.connect(connectOptions(), null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    log.warn("[MQTT] Paho inbound connect failed; retrying. connection={}", index, exception);
+                    scheduleReconnect(client, index);
+                }
+            });
+        } catch (MqttException ex) {
+            log.warn("[MQTT] Paho inbound connect failed; retrying. connection={}", index, ex);
+            scheduleReconnect(client, index);
+        }
+    }
+
+    private void scheduleReconnect(IMqttAsyncClient client, int index) {
+        CompletableFuture.delayedExecutor(RECOVERY_INTERVAL_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            if (running && !client.isConnected()) {
+                connectAsync(client, index);
+            }
+        });
+    }
+
+    // Paho callback thread는 handoff만 한다. header 생성은 map 1회, parse/dedup은 worker에서 한다.
+    void handoff(String topic, MqttMessage message, int index, Counter receivedCounter, Counter handoffFailureCounter) {
+        receivedCounter.increment();
+        try {
+            mqttInputChannel.send(InboundMessages.of(topic, message.getPayload(), message.getQos()));
+        } catch (RuntimeException ex) {
+            // reject 정책에서 queue가 가득 찬 경우 등. HiveMQ inbound와 같은 지표와 WARN 주기를 쓴다.
+            handoffFailureCounter.increment();
+            handoffWarning.failed(index, topic, ex);
+        }
+    }
+
+    private MqttConnectOptions connectOptions() {
+        MqttConnectOptions base = mqttClientFactory.getConnectionOptions();
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setServerURIs(base.getServerURIs());
+        options.setCleanSession(true);
+        options.setUserName(base.getUserName());
+        options.setPassword(base.getPassword());
+        options.setAutomaticReconnect(true);
+        return options;
+    }
+
+    private final class PartitionCallback implements MqttCallbackExtended {
+
+        private final IMqttAsyncClient client;
+        private final int index;
+        private final String[] filters;
+        private final int[] qos;
+        private final Counter receivedCounter;
+        private final Counter handoffFailureCounter;
+
+        private PartitionCallback(
+                IMqttAsyncClient client,
+                int index,
+                String[] filters,
+                Counter receivedCounter,
+                Counter handoffFailureCounter
+        ) {
+            this.client = client;
+            this.index = index;
+            this.filters = filters;
+            this.qos = new int[filters.length];
+            Arrays.fill(this.qos, QOS);
+            this.receivedCounter = receivedCounter;
+            this.handoffFailureCounter = handoffFailureCounter;
+        }
+
+        // clean session이라 재연결 시 구독이 사라지므로 연결될 때마다 다시 구독한다.
+        @Override
+        public void connectComplete(boolean reconnect, String serverURI) {
+            try {
+                client.subscribe(filters, qos);
+                log.info("[MQTT] Paho inbound subscribed. connection={}, filters={}, reconnect={}",
+                        index, Arrays.toString(filters), reconnect);
+            } catch (MqttException ex) {
+                log.error("[MQTT] Paho inbound subscribe failed. connection={}, filters={}", index, Arrays.toString(filters), ex);
+            }
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+            handoff(topic, message, index, receivedCounter, handoffFailureCounter);
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            log.warn("[MQTT] Paho inbound connection lost; reconnecting. connection={}", index, cause);
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.iot.IoT.ingestion.lane;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.integration.dispatcher.MessageHandlingRunnable;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
+import org.springframework.util.ErrorHandler;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// topic(= device)을 hash해 고정된 lane에 넣고, lane마다 consumer thread 하나가 순서대로 처리한다.
+// 같은 device의 메시지는 항상 같은 lane/thread를 타므로 수신 순서가 유지된다.
+// ErrorHandlingTaskExecutor를 상속해야 ExecutorChannel이 task를 다시 감싸지 않아 원본 message의 topic을 볼 수 있다.
+public class ShardedLaneExecutor extends ErrorHandlingTaskExecutor implements AutoCloseable {
+
+    private static final long POLL_TIMEOUT_MS = 100L;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+    private final Lane[] lanes;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final ErrorHandler errorHandler;
+    private final AtomicInteger unkeyedCursor = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public ShardedLaneExecutor(
+            int laneCount,
+            int laneCapacity,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            ErrorHandler errorHandler
+    ) {
+        super(Runnable::run, errorHandler);
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.errorHandler = errorHandler;
+        this.lanes = new Lane[Math.max(laneCount, 1)];
+        for (int index = 0; index < lanes.length; index++) {
+            BlockingQueue<LaneTask> queue = new LinkedBlockingQueue<>(Math.max(laneCapacity, 1));
+            Timer waitTimer = ingestionMetricsCollector.registerLaneMetrics(index, queue, meterRegistry);
+            lanes[index] = new Lane(queue, waitTimer, "mqtt-ingest-lane-" + index);
+        }
+        for (Lane lane : lanes) {
+            lane.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("mqtt ingestion lanes are shut down");
+        }
+        Lane lane = lanes[laneOf(task)];
+        LaneTask entry = new LaneTask(task, System.nanoTime());
+        if (lane.queue.offer(entry)) {
+            return;
+        }
+        // lane이 가득 차면 수신 스레드를 막아 broker 쪽으로 backpressure를 건다. caller-runs는 device 순서를 깨므로 쓰지 않는다.
+        ingestionMetricsCollector.recordLaneBlocked();
+        try {
+            lane.queue.put(entry);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for ingestion lane", ex);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+        for (Lane lane : lanes) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            lane.thread.join(Math.max(remainingMs, 1));
+        }
+    }
+
+    int laneCount() {
+        return lanes.length;
+    }
+
+    int laneOf(Runnable task) {
+        if (task instanceof MessageHandlingRunnable handling
+                && handling.getMessage().getHeaders().get(MqttHeaders.RECEIVED_TOPIC) instanceof String topic) {
+            return Math.floorMod(topic.hashCode(), lanes.length);
+        }
+        return Math.floorMod(unkeyedCursor.getAndIncrement(), lanes.length);
+    }
+
+    private record LaneTask(Runnable task, long enqueuedAtNanos) {
+    }
+
+    private final class Lane implements Runnable {
+
+        private final BlockingQueue<LaneTask> queue;
+        private final Timer waitTimer;
+        private final Thread thread;
+
+        private Lane(BlockingQueue<LaneTask> queue, Timer waitTimer, String threadName) {
+            this.queue = queue;
+            this.waitTimer = waitTimer;
+            this.thread = new Thread(this, threadName);
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            // 종료 요청 이후에도 이미 받은 메시지는 모두 처리한다.
+            while (running || !queue.isEmpty()) {
+                LaneTask entry;
+                try {
+                    entry = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (entry == null) {
+                    continue;
+                }
+                waitTimer.record(Duration.ofNanos(System.nanoTime() - entry.enqueuedAtNanos()));
+                try {
+                    entry.task().run();
+                } catch (Throwable ex) {
+                    errorHandler.handleError(ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.iot.IoT.ingestion.lastvalue;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.DeviceLastValueMirrorPort;
+import com.iot.IoT.ingestion.port.DeviceLastValuePort;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+// device별 마지막 telemetry를 메모리에 유지해 status 조회가 Influx를 거치지 않게 한다.
+// 더 늦은 occurredAt만 반영하므로 worker 간 처리 순서가 뒤바뀌어도 오래된 값으로 덮어쓰지 않는다.
+// mirror가 있으면 다른 노드가 받은 device도 조회할 수 있도록 Redis hash로 내보낸다.
+// 다른 노드가 더 새 값을 받았을 수 있으므로 mirror가 있으면 조회마다 mirror와 비교해 더 늦은 occurredAt을 돌려준다.
+// device 수는 ingestion.last-value.max-devices로 제한하고, 밀려난 device는 mirror나 Influx에서 다시 읽는다.
+@Component
+public class DeviceLastValueCache implements DeviceLastValuePort {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceLastValueCache.class);
+
+    private final ConcurrentMap<String, DeviceTemperaturePointResponse> latestByDevice;
+    private final DeviceLastValueMirrorPort mirror;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+
+    public DeviceLastValueCache(
+            Optional<DeviceLastValueMirrorPort> mirror,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${ingestion.last-value.max-devices:100000}") long maxDevices
+    ) {
+        this.latestByDevice = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxDevices, 1))
+                .<String, DeviceTemperaturePointResponse>build()
+                .asMap();
+        this.mirror = mirror.orElse(null);
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        ingestionMetricsCollector.registerLastValueMetrics(latestByDevice, meterRegistry);
+    }
+
+    @Override
+    public void update(DeviceTelemetry message, Instant occurredAt) {
+        // 응답 DTO가 BigDecimal이므로 여기서 한 번만 변환한다. double이라 소수 scale은 보존되지 않는다(60.50 -> 60.5).
+        DeviceTemperaturePointResponse point = new DeviceTemperaturePointResponse(
+                occurredAt,
+                BigDecimal.valueOf(message.temp()),
+                BigDecimal.valueOf(message.targetTemp()),
+                message.state());
+        if (merge(message.deviceId(), point) == point && mirror != null) {
+            mirror.publish(message.deviceId(), point);
+        }
+    }
+
+    @Override
+    public Optional<DeviceTemperaturePointResponse> find(String deviceId) {
+        DeviceTemperaturePointResponse cached = latestByDevice.get(deviceId);
+        return Optional.ofNullable(resolve(deviceId, cached, findMirrored(deviceId).orElse(null)));
+    }
+
+    // mirror는 device 수만큼 나눠 묻지 않고 한 번에 조회한다.
+    @Override
+    public Map<String, DeviceTemperaturePointResponse> findAll(Collection<String> deviceIds) {
+        Map<String, DeviceTemperaturePointResponse> mirrored = findAllMirrored(deviceIds);
+        Map<String, DeviceTemperaturePointResponse> found = new HashMap<>(deviceIds.size() * 2);
+        for (String deviceId : deviceIds) {
+            DeviceTemperaturePointResponse point = resolve(deviceId, latestByDevice.get(deviceId), mirrored.get(deviceId));
+            if (point != null) {
+                found.put(deviceId, point);
+            }
+        }
+        return found;
+    }
+
+    // 재기동 직후처럼 cache가 비어 있을 때 조회 경로가 Influx에서 읽은 값을 채워 넣는다.
+    @Override
+    public void prime(String deviceId, DeviceTemperaturePointResponse point) {
+        merge(deviceId, point);
+    }
+
+    private DeviceTemperaturePointResponse merge(String deviceId, DeviceTemperaturePointResponse point) {
+        return latestByDevice.merge(deviceId, point,
+                (current, candidate) -> candidate.occurredAt().isBefore(current.occurredAt()) ? current : candidate);
+    }
+
+    // 메모리 값과 mirror 값 중 더 늦은 occurredAt을 고르고, mirror가 더 새로우면 메모리에도 반영한다.
+    private DeviceTemperaturePointResponse resolve(
+            String deviceId,
+            DeviceTemperaturePointResponse cached,
+            DeviceTemperaturePointResponse mirrored
+    ) {
+        if (mirrored != null && (cached == null || mirrored.occurredAt().isAfter(cached.occurredAt()))) {
+            ingestionMetricsCollector.recordLastValueLookup(IngestionMetricsCollector.LAST_VALUE_MIRROR);
+            return merge(deviceId, mirrored);
+        }
+        if (cached != null) {
+            ingestionMetricsCollector.recordLastValueLookup(IngestionMetricsCollector.LAST_VALUE_HIT);
+            return cached;
+        }
+        ingestionMetricsCollector.recordLastValueLookup(IngestionMetricsCollector.LAST_VALUE_MISS);
+        return null;
+    }
+
+    private Map<String, DeviceTemperaturePointResponse> findAllMirrored(Collection<String> deviceIds) {
+        if (mirror == null) {
+            return Map.of();
+        }
+        try {
+            return mirror.findAll(deviceIds);
+        } catch (RuntimeException ex) {
+            log.warn("[QUERY] Last-value mirror batch lookup failed. deviceCount={}", deviceIds.size(), ex);
+            return Map.of();
+        }
+    }
+
+    private Optional<DeviceTemperaturePointResponse> findMirrored(String deviceId) {
+        if (mirror == null) {
+            return Optional.empty();
+        }
+        try {
+            return mirror.find(deviceId);
+        } catch (RuntimeException ex) {
+            log.warn("[QUERY] Last-value mirror lookup failed. deviceId={}", deviceId, ex);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.iot.IoT.ingestion.logging;
+
+import com.iot.IoT.ingestion.exception.HotLogDebugDeviceLimitException;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 메시지마다 찍히는 INFO 로그를 category별 sampling + token bucket으로 줄인다.
+// 호출부는 admit()이 0 이상을 돌려줄 때만 로그를 포맷하며, 반환값은 직전 출력 이후 억제된 줄 수다.
+// debug-devices에 있는 device는 sampling/bucket 없이 항상 남긴다. 목록은 max-debug-devices까지만 받는다.
+@Component
+public class HotPathLogSampler {
+
+    public static final long SUPPRESSED = -1L;
+
+    public enum Category {
+        PARSED("parsed"),
+        CONTROL_DECISION("control_decision");
+
+        private final String tag;
+
+        Category(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final boolean enabled;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final Map<Category, CategoryState> states = new EnumMap<>(Category.class);
+    private final Set<String> debugDevices = ConcurrentHashMap.newKeySet();
+    private final int maxDebugDevices;
+
+    public HotPathLogSampler(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${ingestion.hot-log.enabled:true}") boolean enabled,
+            @Value("${ingestion.hot-log.parsed.sample-rate:1.0}") double parsedSampleRate,
+            @Value("${ingestion.hot-log.control-decision.sample-rate:1.0}") double controlDecisionSampleRate,
+            @Value("${ingestion.hot-log.max-lines-per-second:100}") double maxLinesPerSecond,
+            @Value("${ingestion.hot-log.debug-devices:}") String[] debugDevices,
+            @Value("${ingestion.hot-log.max-debug-devices:100}") int maxDebugDevices
+    ) {
+        double ratePerSecond = Math.max(maxLinesPerSecond, 1.0);
+        this.enabled = enabled;
+        this.maxDebugDevices = Math.max(maxDebugDevices, 0);
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        // 1초 분량까지는 몰려도 통과시킨다.
+        this.burstToleranceNanos = TimeUnit.SECONDS.toNanos(1) - emissionIntervalNanos;
+        states.put(Category.PARSED, new CategoryState(parsedSampleRate,
+                ingestionMetricsCollector.registerLogSuppressedCounter(Category.PARSED.tag(), meterRegistry)));
+        states.put(Category.CONTROL_DECISION, new CategoryState(controlDecisionSampleRate,
+                ingestionMetricsCollector.registerLogSuppressedCounter(Category.CONTROL_DECISION.tag(), meterRegistry)));
+        Arrays.stream(debugDevices)
+                .map(String::trim)
+                .filter(deviceId -> !deviceId.isEmpty())
+                .forEach(this::addDebugDevice);
+    }
+
+    public long admit(Category category, String deviceId) {
+        if (!enabled) {
+            return 0L;
+        }
+        CategoryState state = states.get(category);
+        if (deviceId != null && !debugDevices.isEmpty() && debugDevices.contains(deviceId)) {
+            return state.suppressed.sumThenReset();
+        }
+        if (state.sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= state.sampleRate) {
+            state.suppress();
+            return SUPPRESSED;
+        }
+        if (!tryAcquire(state.theoreticalArrivalNanos)) {
+            state.suppress();
+            return SUPPRESSED;
+        }
+        return state.suppressed.sumThenReset();
+    }
+
+    public Set<String> debugDevices() {
+        return Set.copyOf(debugDevices);
+    }
+
+    // admit()은 lock 없이 읽고, 추가만 직렬화해 상한을 넘지 않게 한다.
+    public synchronized void addDebugDevice(String deviceId) {
+        if (debugDevices.contains(deviceId)) {
+            return;
+        }
+        if (debugDevices.size() >= maxDebugDevices) {
+            throw new HotLogDebugDeviceLimitException(
+                    "Hot-log debug devices are limited to " + maxDebugDevices + ". Remove one before adding " + deviceId);
+        }
+        debugDevices.add(deviceId);
+    }
+
+    public void removeDebugDevice(String deviceId) {
+        debugDevices.remove(deviceId);
+    }
+
+    // GCRA: 다음 허용 시각(theoretical arrival time)만 CAS로 밀어 lock 없이 token bucket과 같은 효과를 낸다.
+    private boolean tryAcquire(AtomicLong theoreticalArrivalNanos) {
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            if (tat - now > burstToleranceNanos) {
+                return false;
+            }
+            long next = Math.max(tat, now) + emissionIntervalNanos;
+            if (theoreticalArrivalNanos.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    private static final class CategoryState {
+
+        private final double sampleRate;
+        private final AtomicLong theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+        private final LongAdder suppressed = new LongAdder();
+        private final Counter suppressedCounter;
+
+        private CategoryState(double sampleRate, Counter suppressedCounter) {
+            this.sampleRate = Math.min(Math.max(sampleRate, 0.0), 1.0);
+            this.suppressedCounter = suppressedCounter;
+        }
+
+        private void suppress() {
+            suppressed.increment();
+            suppressedCounter.increment();
+        }
+    }
+}
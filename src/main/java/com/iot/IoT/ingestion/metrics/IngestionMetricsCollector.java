@@ -1,6 +1,8 @@
 package com.iot.IoT.ingestion.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -12,15 +14,22 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
 
 @Component
 @ConditionalOnProperty(prefix = "ingestion.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class IngestionMetricsCollector {
 
     private static final Logger log = LoggerFactory.getLogger(IngestionMetricsCollector.class);
+    public static final String LAST_VALUE_HIT = "hit";
+    public static final String LAST_VALUE_MIRROR = "mirror";
+    public static final String LAST_VALUE_MISS = "miss";
 
     private final LongAdder mqttReceivedTotal = new LongAdder();
     private final LongAdder parseSuccessTotal = new LongAdder();
@@ -73,12 +82,32 @@ public class IngestionMetricsCollector {
     private final Counter storageReplayCandidateCounter;
     private final Counter controlReplayCandidateCounter;
     private final Counter executorRejectedCounter;
+    private final Counter influxBufferDroppedCounter;
+    private final DistributionSummary influxBatchSizeSummary;
+    private final Counter heartbeatCoalescedCounter;
+    private final Counter heartbeatFlushedCounter;
+    private final Counter overloadCallerRunsCounter;
+    private final Counter overloadSupersededCounter;
+    private final Counter overloadPriorityCounter;
+    private final Counter laneBlockedCounter;
+    private final Counter virtualPermitWaitedCounter;
+    private final Counter spoolAppendedCounter;
+    private final Counter spoolRejectedCounter;
+    private final Counter spoolReplayedCounter;
+    private final Counter spoolReplayFailureCounter;
+    private final Counter deadLetterStoredCounter;
+    private final Counter deadLetterRejectedCounter;
+    private final Counter deadLetterReplayedCounter;
+    private final Counter deadLetterReplayFailureCounter;
+    private final Map<String, Counter> lastValueLookupCounters;
     private final Timer processingLatencyTimer;
     private final Timer endToEndLatencyTimer;
     private final Timer executorQueueWaitTimer;
     private final Timer influxWriteLatencyTimer;
     private final Timer redisHeartbeatLatencyTimer;
     private final Timer controlDispatchLatencyTimer;
+    private final Timer influxBatchFlushLatencyTimer;
+    private final Timer heartbeatFlushLatencyTimer;
 
     public IngestionMetricsCollector(MeterRegistry meterRegistry) {
         this.mqttReceivedCounter = meterRegistry.counter("iot.ingestion.mqtt.received.total");
@@ -97,12 +126,37 @@ public class IngestionMetricsCollector {
         this.storageReplayCandidateCounter = meterRegistry.counter("iot.ingestion.storage.replay_candidate.total");
         this.controlReplayCandidateCounter = meterRegistry.counter("iot.ingestion.control.replay_candidate.total");
         this.executorRejectedCounter = meterRegistry.counter("iot.ingestion.executor.rejected.total");
+        this.influxBufferDroppedCounter = meterRegistry.counter("iot.ingestion.influx.buffer.dropped.total");
+        this.influxBatchSizeSummary = DistributionSummary.builder("iot.ingestion.influx.batch.size")
+                .description("Number of points per Influx batch flush")
+                .register(meterRegistry);
+        this.heartbeatCoalescedCounter = meterRegistry.counter("iot.ingestion.redis.heartbeat.coalesced.total");
+        this.heartbeatFlushedCounter = meterRegistry.counter("iot.ingestion.redis.heartbeat.flushed.total");
+        this.overloadCallerRunsCounter = meterRegistry.counter("iot.ingestion.overload.caller_runs.total");
+        this.overloadSupersededCounter = meterRegistry.counter("iot.ingestion.overload.superseded.total");
+        this.overloadPriorityCounter = meterRegistry.counter("iot.ingestion.overload.priority.total");
+        this.laneBlockedCounter = meterRegistry.counter("iot.ingestion.lane.blocked.total");
+        this.virtualPermitWaitedCounter = meterRegistry.counter("iot.ingestion.virtual.permit.waited.total");
+        this.spoolAppendedCounter = meterRegistry.counter("iot.ingestion.spool.appended.total");
+        this.spoolRejectedCounter = meterRegistry.counter("iot.ingestion.spool.rejected.total");
+        this.spoolReplayedCounter = meterRegistry.counter("iot.ingestion.spool.replayed.total");
+        this.spoolReplayFailureCounter = meterRegistry.counter("iot.ingestion.spool.replay.failure.total");
+        this.deadLetterStoredCounter = meterRegistry.counter("iot.ingestion.dead_letter.stored.total");
+        this.deadLetterRejectedCounter = meterRegistry.counter("iot.ingestion.dead_letter.rejected.total");
+        this.deadLetterReplayedCounter = meterRegistry.counter("iot.ingestion.dead_letter.replayed.total");
+        this.deadLetterReplayFailureCounter = meterRegistry.counter("iot.ingestion.dead_letter.replay.failure.total");
+        this.lastValueLookupCounters = Map.of(
+                LAST_VALUE_HIT, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", LAST_VALUE_HIT),
+                LAST_VALUE_MIRROR, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", LAST_VALUE_MIRROR),
+                LAST_VALUE_MISS, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", LAST_VALUE_MISS));
         this.processingLatencyTimer = meterRegistry.timer("iot.ingestion.processing.latency");
         this.endToEndLatencyTimer = meterRegistry.timer("iot.ingestion.e2e.latency");
         this.executorQueueWaitTimer = meterRegistry.timer("iot.ingestion.executor.queue.wait");
         this.influxWriteLatencyTimer = meterRegistry.timer("iot.ingestion.influx.write.latency");
         this.redisHeartbeatLatencyTimer = meterRegistry.timer("iot.ingestion.redis.heartbeat.latency");
         this.controlDispatchLatencyTimer = meterRegistry.timer("iot.ingestion.control.dispatch.latency");
+        this.influxBatchFlushLatencyTimer = meterRegistry.timer("iot.ingestion.influx.batch.flush.latency");
+        this.heartbeatFlushLatencyTimer = meterRegistry.timer("iot.ingestion.redis.heartbeat.flush.latency");
         Gauge.builder("iot.ingestion.inflight", inFlight, AtomicInteger::get)
                 .description("Current number of in-flight ingestion tasks")
                 .register(meterRegistry);
@@ -128,11 +182,21 @@ public class IngestionMetricsCollector {
         influxSuccessCounter.increment();
     }
 
+    public void recordInfluxSuccess(int count) {
+        influxSuccessTotal.add(count);
+        influxSuccessCounter.increment(count);
+    }
+
     public void recordInfluxFailure() {
         influxFailureTotal.increment();
         influxFailureCounter.increment();
     }
 
+    public void recordInfluxFailure(int count) {
+        influxFailureTotal.add(count);
+        influxFailureCounter.increment(count);
+    }
+
     public void recordInfluxBypass() {
         influxBypassTotal.increment();
         influxBypassCounter.increment();
@@ -143,11 +207,21 @@ public class IngestionMetricsCollector {
         redisSuccessCounter.increment();
     }
 
+    public void recordRedisSuccess(int count) {
+        redisSuccessTotal.add(count);
+        redisSuccessCounter.increment(count);
+    }
+
     public void recordRedisFailure() {
         redisFailureTotal.increment();
         redisFailureCounter.increment();
     }
 
+    public void recordRedisFailure(int count) {
+        redisFailureTotal.add(count);
+        redisFailureCounter.increment(count);
+    }
+
     public void recordProcessingFailure() {
         processingFailureTotal.increment();
         processingFailureCounter.increment();
@@ -178,6 +252,11 @@ public class IngestionMetricsCollector {
         storageReplayCandidateCounter.increment();
     }
 
+    public void recordStorageReplayCandidate(int count) {
+        storageReplayCandidateTotal.add(count);
+        storageReplayCandidateCounter.increment(count);
+    }
+
     public void recordControlReplayCandidate() {
         controlReplayCandidateTotal.increment();
         controlReplayCandidateCounter.increment();
@@ -188,6 +267,74 @@ public class IngestionMetricsCollector {
         executorRejectedCounter.increment();
     }
 
+    public void recordInfluxBufferDropped() {
+        influxBufferDroppedCounter.increment();
+    }
+
+    public void recordHeartbeatCoalesced() {
+        heartbeatCoalescedCounter.increment();
+    }
+
+    public void recordHeartbeatFlushed(int deviceCount) {
+        heartbeatFlushedCounter.increment(deviceCount);
+    }
+
+    public void recordOverloadCallerRuns() {
+        overloadCallerRunsCounter.increment();
+    }
+
+    public void recordOverloadSuperseded() {
+        overloadSupersededCounter.increment();
+    }
+
+    public void recordOverloadPriority() {
+        overloadPriorityCounter.increment();
+    }
+
+    public void recordLaneBlocked() {
+        laneBlockedCounter.increment();
+    }
+
+    public void recordVirtualPermitWaited() {
+        virtualPermitWaitedCounter.increment();
+    }
+
+    public void recordSpoolAppended(int count) {
+        spoolAppendedCounter.increment(count);
+    }
+
+    public void recordSpoolRejected(int count) {
+        spoolRejectedCounter.increment(count);
+    }
+
+    public void recordSpoolReplayed(int count) {
+        spoolReplayedCounter.increment(count);
+    }
+
+    public void recordSpoolReplayFailure() {
+        spoolReplayFailureCounter.increment();
+    }
+
+    public void recordDeadLetterStored() {
+        deadLetterStoredCounter.increment();
+    }
+
+    public void recordDeadLetterRejected() {
+        deadLetterRejectedCounter.increment();
+    }
+
+    public void recordDeadLetterReplayed() {
+        deadLetterReplayedCounter.increment();
+    }
+
+    public void recordDeadLetterReplayFailure() {
+        deadLetterReplayFailureCounter.increment();
+    }
+
+    public void recordLastValueLookup(String result) {
+        lastValueLookupCounters.get(result).increment();
+    }
+
     public void incrementInFlight() {
         inFlight.incrementAndGet();
     }
@@ -232,6 +379,159 @@ public class IngestionMetricsCollector {
         }
     }
 
+    public void recordInfluxBatchFlush(int batchSize, long nanos) {
+        influxBatchSizeSummary.record(batchSize);
+        if (nanos > 0) {
+            influxBatchFlushLatencyTimer.record(Duration.ofNanos(nanos));
+        }
+    }
+
+    public void recordHeartbeatFlushLatency(long nanos) {
+        if (nanos > 0) {
+            heartbeatFlushLatencyTimer.record(Duration.ofNanos(nanos));
+        }
+    }
+
+    public void registerHeartbeatCoalescerMetrics(Map<?, ?> pending, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.redis.heartbeat.pending", pending, Map::size)
+                .description("Current number of devices with a coalesced heartbeat waiting for flush")
+                .register(meterRegistry);
+    }
+
+    public void registerLastValueMetrics(Map<?, ?> latestByDevice, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.last_value.devices", latestByDevice, Map::size)
+                .description("Devices held in the in-process last-value cache")
+                .register(meterRegistry);
+    }
+
+    public void registerLastValueMirrorMetrics(Map<?, ?> pending, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.last_value.mirror.pending", pending, Map::size)
+                .description("Devices with a last value waiting to be mirrored to Redis")
+                .register(meterRegistry);
+    }
+
+    public void registerInfluxBufferMetrics(Collection<?> buffer, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.influx.buffer.depth", buffer, Collection::size)
+                .description("Current number of points waiting for an Influx batch flush")
+                .register(meterRegistry);
+    }
+
+    public void registerOverloadMetrics(Map<?, ?> pendingByDevice, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.overload.pending.devices", pendingByDevice, Map::size)
+                .description("Current number of devices with a reading waiting in the latest-per-device lane")
+                .register(meterRegistry);
+    }
+
+    public Timer registerLaneMetrics(int lane, Collection<?> queue, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.lane.depth", queue, Collection::size)
+                .description("Current number of messages queued on an ingestion lane")
+                .tag("lane", String.valueOf(lane))
+                .register(meterRegistry);
+        return Timer.builder("iot.ingestion.lane.wait")
+                .description("Time a message waits on its ingestion lane before processing")
+                .tag("lane", String.valueOf(lane))
+                .register(meterRegistry);
+    }
+
+    public void registerVirtualExecutorMetrics(Semaphore permits, int maxConcurrency, MeterRegistry meterRegistry) {
+        Gauge.builder("iot.ingestion.virtual.active", permits, candidate -> maxConcurrency - candidate.availablePermits())
+                .description("Current number of ingestion tasks running on virtual threads")
+                .register(meterRegistry);
+    }
+
+    public <T> Counter registerInboundConnectionMetrics(
+            String clientType,
+            int connection,
+            T client,
+            ToDoubleFunction<T> connected,
+            MeterRegistry meterRegistry
+    ) {
+        Gauge.builder("iot.ingestion.inbound.connected", client, connected)
+                .description("Whether an inbound MQTT connection is currently connected (1) or not (0)")
+                .tag("client", clientType)
+                .tag("connection", String.valueOf(connection))
+                .register(meterRegistry);
+        return Counter.builder("iot.ingestion.inbound.received.total")
+                .description("Messages received on an inbound MQTT connection")
+                .tag("client", clientType)
+                .tag("connection", String.valueOf(connection))
+                .register(meterRegistry);
+    }
+
+    public Counter registerInboundHandoffFailureCounter(String clientType, int connection, MeterRegistry meterRegistry) {
+        return Counter.builder("iot.ingestion.inbound.handoff.failure.total")
+                .description("Inbound MQTT messages that could not be handed off to the ingestion channel")
+                .tag("client", clientType)
+                .tag("connection", String.valueOf(connection))
+                .register(meterRegistry);
+    }
+
+    public <T> void registerSpoolMetrics(
+            T spool,
+            ToDoubleFunction<T> sizeBytes,
+            ToDoubleFunction<T> pendingBytes,
+            ToDoubleFunction<T> replayLagSeconds,
+            ToDoubleFunction<T> droppedSegments,
+            MeterRegistry meterRegistry
+    ) {
+        Gauge.builder("iot.ingestion.spool.size.bytes", spool, sizeBytes)
+                .description("Bytes currently held in the Influx write-ahead spool")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingestion.spool.pending.bytes", spool, pendingBytes)
+                .description("Spooled bytes not yet replayed to Influx")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingestion.spool.replay.lag.seconds", spool, replayLagSeconds)
+                .description("Age of the oldest spooled point not yet replayed")
+                .register(meterRegistry);
+        FunctionCounter.builder("iot.ingestion.spool.segments.dropped.total", spool, droppedSegments)
+                .description("Spool segments discarded because the spool exceeded its size limit")
+                .register(meterRegistry);
+    }
+
+    public Counter registerLogSuppressedCounter(String category, MeterRegistry meterRegistry) {
+        return Counter.builder("iot.ingestion.log.suppressed.total")
+                .description("Hot-path log lines skipped by sampling or rate limiting")
+                .tag("category", category)
+                .register(meterRegistry);
+    }
+
+    public <T> void registerDeadLetterMetrics(
+            T store,
+            ToDoubleFunction<T> sizeBytes,
+            ToDoubleFunction<T> droppedSegments,
+            MeterRegistry meterRegistry
+    ) {
+        Gauge.builder("iot.ingestion.dead_letter.size.bytes", store, sizeBytes)
+                .description("Bytes currently held in the dead-letter store")
+                .register(meterRegistry);
+        FunctionCounter.builder("iot.ingestion.dead_letter.segments.dropped.total", store, droppedSegments)
+                .description("Dead-letter segments discarded because the store exceeded its size limit")
+                .register(meterRegistry);
+    }
+
+    public <T> Counter registerRollupMetrics(
+            String tier,
+            T coverage,
+            ToDoubleFunction<T> lagSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        Gauge.builder("iot.ingestion.rollup.lag.seconds", coverage, lagSeconds)
+                .description("How far the rollup tier trails the current time")
+                .tag("tier", tier)
+                .register(meterRegistry);
+        return Counter.builder("iot.ingestion.rollup.failure.total")
+                .description("Rollup runs that failed and will be retried")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    public Counter registerRollupQueryCounter(String tier, MeterRegistry meterRegistry) {
+        return Counter.builder("iot.ingestion.rollup.query.total")
+                .description("Aggregated temperature queries served from each tier")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
     public void registerExecutorMetrics(ThreadPoolTaskExecutor executor, MeterRegistry meterRegistry) {
         Gauge.builder("iot.ingestion.executor.queue.depth", executor,
                         candidate -> candidate.getThreadPoolExecutor() == null
@@ -0,0 +1,207 @@
+package com.iot.IoT.ingestion.overload;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.integration.dispatcher.MessageHandlingRunnable;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.util.ErrorHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// ExecutorChannel이 넘기는 MessageHandlingRunnable을 받아 topic(= device) 단위로 과부하 정책을 적용한다.
+// ErrorHandlingTaskExecutor를 상속해야 ExecutorChannel이 task를 다시 감싸지 않아 원본 message를 볼 수 있다.
+public class IngestionOverloadExecutor extends ErrorHandlingTaskExecutor {
+
+    public static final String POLICY_REJECT = "reject";
+    public static final String POLICY_CALLER_RUNS = "caller-runs";
+    public static final String POLICY_DROP_OLDEST_PER_DEVICE = "drop-oldest-per-device";
+    public static final String POLICY_PRIORITY_LANE = "priority-lane";
+
+    private static final byte[] STATE_FIELD = "\"state\"".getBytes(StandardCharsets.US_ASCII);
+
+    private final Policy policy;
+    private final Executor priorityExecutor;
+    private final IngestionMetricsCollector ingestionMetricsCollector;
+    private final ErrorHandler errorHandler;
+    private final ConcurrentMap<String, Runnable> latestByDevice = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> lastStateByDevice = new ConcurrentHashMap<>();
+
+    public IngestionOverloadExecutor(
+            String policy,
+            Executor workerExecutor,
+            Executor priorityExecutor,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            ErrorHandler errorHandler
+    ) {
+        super(workerExecutor, errorHandler);
+        this.policy = Policy.from(policy);
+        if (this.policy == Policy.PRIORITY_LANE && priorityExecutor == null) {
+            throw new IllegalArgumentException("ingestion.overload.policy=priority-lane requires a priority executor");
+        }
+        this.priorityExecutor = priorityExecutor;
+        this.ingestionMetricsCollector = ingestionMetricsCollector;
+        this.errorHandler = errorHandler;
+        ingestionMetricsCollector.registerOverloadMetrics(latestByDevice, meterRegistry);
+    }
+
+    // 오타 난 정책이 조용히 reject로 동작하지 않도록, channel mode와 관계없이 시작 시점에 실패시킨다.
+    public static void requireKnownPolicy(String policy) {
+        Policy.from(policy);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (policy == Policy.REJECT) {
+            super.execute(task);
+            return;
+        }
+        String deviceKey = deviceKey(task);
+        if (deviceKey == null || policy == Policy.CALLER_RUNS) {
+            submitOrRunInline(task);
+            return;
+        }
+        if (policy == Policy.PRIORITY_LANE && isStateChange(deviceKey, (MessageHandlingRunnable) task)) {
+            submitPriority(deviceKey, task);
+            return;
+        }
+        submitLatest(deviceKey, task);
+    }
+
+    // device별로 대기 중인 task는 하나만 둔다. 아직 실행 전인 이전 reading은 새 reading으로 교체되어 버려진다.
+    private void submitLatest(String deviceKey, Runnable task) {
+        if (latestByDevice.put(deviceKey, task) != null) {
+            ingestionMetricsCollector.recordOverloadSuperseded();
+            return;
+        }
+        submitOrRunInline(() -> {
+            Runnable latest = latestByDevice.remove(deviceKey);
+            if (latest != null) {
+                latest.run();
+            }
+        });
+    }
+
+    private void submitPriority(String deviceKey, Runnable task) {
+        // 상태 전환보다 먼저 수신된 reading이 뒤늦게 처리되지 않도록 대기 중인 reading을 함께 버린다.
+        if (latestByDevice.remove(deviceKey) != null) {
+            ingestionMetricsCollector.recordOverloadSuperseded();
+        }
+        ingestionMetricsCollector.recordOverloadPriority();
+        try {
+            priorityExecutor.execute(() -> runInline(task));
+        } catch (RejectedExecutionException ex) {
+            ingestionMetricsCollector.recordOverloadCallerRuns();
+            runInline(task);
+        }
+    }
+
+    // worker queue가 가득 차면 Paho 수신 스레드에서 직접 처리해 broker 쪽으로 backpressure를 건다.
+    private void submitOrRunInline(Runnable task) {
+        try {
+            super.execute(task);
+        } catch (RejectedExecutionException ex) {
+            ingestionMetricsCollector.recordOverloadCallerRuns();
+            runInline(task);
+        }
+    }
+
+    private void runInline(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            errorHandler.handleError(ex);
+        }
+    }
+
+    private boolean isStateChange(String deviceKey, MessageHandlingRunnable task) {
+        if (!(task.getMessage().getPayload() instanceof byte[] payload)) {
+            return false;
+        }
+        String state = extractState(payload);
+        if (state == null) {
+            return false;
+        }
+        String previous = lastStateByDevice.put(deviceKey, state);
+        return previous != null && !previous.equals(state);
+    }
+
+    private static String deviceKey(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handling)) {
+            return null;
+        }
+        Message<?> message = handling.getMessage();
+        Object topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
+        return topic instanceof String value ? value : null;
+    }
+
+    // 전체 파싱 없이 "state":"..." 값만 찾는다. 형식이 다르면 null을 돌려 일반 lane으로 보낸다.
+    static String extractState(byte[] payload) {
+        int index = indexOf(payload, STATE_FIELD);
+        if (index < 0) {
+            return null;
+        }
+        int cursor = skipWhitespace(payload, index + STATE_FIELD.length);
+        if (cursor >= payload.length || payload[cursor] != ':') {
+            return null;
+        }
+        cursor = skipWhitespace(payload, cursor + 1);
+        if (cursor >= payload.length || payload[cursor] != '"') {
+            return null;
+        }
+        int start = cursor + 1;
+        for (int end = start; end < payload.length; end++) {
+            if (payload[end] == '"') {
+                return new String(payload, start, end - start, StandardCharsets.US_ASCII);
+            }
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(byte[] payload, int from) {
+        int cursor = from;
+        while (cursor < payload.length && Character.isWhitespace(payload[cursor])) {
+            cursor++;
+        }
+        return cursor;
+    }
+
+    private static int indexOf(byte[] payload, byte[] target) {
+        outer:
+        for (int i = 0; i <= payload.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (payload[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private enum Policy {
+        REJECT,
+        CALLER_RUNS,
+        DROP_OLDEST_PER_DEVICE,
+        PRIORITY_LANE;
+
+        static Policy from(String value) {
+            return switch (value == null ? "" : value.toLowerCase(Locale.ROOT)) {
+                case POLICY_REJECT -> REJECT;
+                case POLICY_CALLER_RUNS -> CALLER_RUNS;
+                case POLICY_DROP_OLDEST_PER_DEVICE -> DROP_OLDEST_PER_DEVICE;
+                case POLICY_PRIORITY_LANE -> PRIORITY_LANE;
+                default -> throw new IllegalArgumentException("Unknown ingestion.overload.policy: " + value
+                        + " (expected " + POLICY_REJECT + "|" + POLICY_CALLER_RUNS + "|"
+                        + POLICY_DROP_OLDEST_PER_DEVICE + "|" + POLICY_PRIORITY_LANE + ")");
+            };
+        }
+    }
+}
@@ -4,11 +4,13 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
 import com.iot.IoT.ingestion.exception.InvalidMqttPayloadException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -38,6 +40,34 @@ public class MqttPayloadParser {
         }
     }
 
+    public DeviceStatusMessage parseDeviceStatus(byte[] payload) {
+        try {
+            DeviceStatusMessage message = objectMapper.readValue(payload, DeviceStatusMessage.class);
+            validate(message);
+            return message;
+        } catch (IOException e) {
+            throw new InvalidMqttPayloadException(
+                    "MQTT payload is not valid JSON for DeviceStatusMessage",
+                    e,
+                    InvalidMqttPayloadException.FailureType.INVALID_JSON
+            );
+        }
+    }
+
+    // 1e400처럼 double 범위를 넘는 값은 BigDecimal로는 유효해도 Influx에 Infinity로 들어가므로 여기서 거른다.
+    public DeviceTelemetry parseTelemetry(byte[] payload) {
+        DeviceStatusMessage message = parseDeviceStatus(payload);
+        double temp = message.temp().doubleValue();
+        double targetTemp = message.targetTemp().doubleValue();
+        if (!Double.isFinite(temp) || !Double.isFinite(targetTemp)) {
+            throw new InvalidMqttPayloadException(
+                    "MQTT payload validation failed: temp and targetTemp must be finite numbers",
+                    InvalidMqttPayloadException.FailureType.VALIDATION_FAILED
+            );
+        }
+        return new DeviceTelemetry(message.deviceId(), temp, message.state(), targetTemp);
+    }
+
     private void validate(DeviceStatusMessage message) {
         Set<ConstraintViolation<DeviceStatusMessage>> violations = validator.validate(message);
         if (!violations.isEmpty()) {
@@ -0,0 +1,148 @@
+package com.iot.IoT.ingestion.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.exception.InvalidMqttPayloadException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// databind parser(MqttPayloadParser.parseTelemetry)와 같은 입력을 받고 같은 FailureType으로 거절한다.
+// state는 이름 외에 databind처럼 enum 순번(0, 1, 2)도 받는다. 숫자는 double로 읽으므로 소수 scale은 남지 않는다(60.50 -> 60.5).
+@Component
+public class StreamingDeviceStatusParser {
+
+    private static final String FIELD_DEVICE_ID = "deviceId";
+    private static final String FIELD_TEMP = "temp";
+    private static final String FIELD_STATE = "state";
+    private static final String FIELD_TARGET_TEMP = "targetTemp";
+    private static final DeviceState[] STATES = DeviceState.values();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public DeviceTelemetry parseDeviceStatus(byte[] payload) {
+        String deviceId = null;
+        double temp = Double.NaN;
+        double targetTemp = Double.NaN;
+        DeviceState state = null;
+
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidJson("payload must be a JSON object", null);
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (field) {
+                    case FIELD_DEVICE_ID -> deviceId = readText(parser, valueToken, field);
+                    case FIELD_TEMP -> temp = readDouble(parser, valueToken, field);
+                    case FIELD_TARGET_TEMP -> targetTemp = readDouble(parser, valueToken, field);
+                    case FIELD_STATE -> state = readState(parser, valueToken);
+                    default -> throw invalidJson("unrecognized field \"" + field + "\"", null);
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw invalidJson("unexpected token " + token, null);
+            }
+        } catch (IOException e) {
+            throw invalidJson("malformed JSON", e);
+        }
+
+        validate(deviceId, temp, state, targetTemp);
+        return new DeviceTelemetry(deviceId, temp, state, targetTemp);
+    }
+
+    private static String readText(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw invalidJson("field \"" + field + "\" must be a scalar", null);
+        }
+        return parser.getText();
+    }
+
+    private static double readDouble(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return Double.NaN;
+        }
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            double value;
+            try {
+                value = Double.parseDouble(parser.getText());
+            } catch (NumberFormatException e) {
+                throw invalidJson("field \"" + field + "\" is not a number", e);
+            }
+            if (!Double.isFinite(value)) {
+                throw invalidJson("field \"" + field + "\" is not a finite number", null);
+            }
+            return value;
+        }
+        throw invalidJson("field \"" + field + "\" must be a number", null);
+    }
+
+    private static DeviceState readState(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            int ordinal = parser.getValueAsInt(-1);
+            if (ordinal < 0 || ordinal >= STATES.length) {
+                throw invalidJson("field \"state\" has unknown ordinal", null);
+            }
+            return STATES[ordinal];
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw invalidJson("field \"state\" must be a string", null);
+        }
+        String value = parser.getText();
+        for (DeviceState candidate : STATES) {
+            if (candidate.name().equals(value)) {
+                return candidate;
+            }
+        }
+        throw invalidJson("field \"state\" has unknown value", null);
+    }
+
+    private static void validate(String deviceId, double temp, DeviceState state, double targetTemp) {
+        List<String> violations = new ArrayList<>(0);
+        if (deviceId == null || deviceId.isBlank()) {
+            violations.add("deviceId must not be blank");
+        }
+        if (Double.isNaN(temp)) {
+            violations.add("temp must not be null");
+        }
+        if (state == null) {
+            violations.add("state must not be null");
+        }
+        if (Double.isNaN(targetTemp)) {
+            violations.add("targetTemp must not be null");
+        }
+        if (Double.isInfinite(temp) || Double.isInfinite(targetTemp)) {
+            violations.add("temp and targetTemp must be finite numbers");
+        }
+        if (!violations.isEmpty()) {
+            throw new InvalidMqttPayloadException(
+                    "MQTT payload validation failed: " + String.join(", ", violations),
+                    InvalidMqttPayloadException.FailureType.VALIDATION_FAILED
+            );
+        }
+    }
+
+    private static InvalidMqttPayloadException invalidJson(String detail, Throwable cause) {
+        return new InvalidMqttPayloadException(
+                "MQTT payload is not valid JSON for DeviceStatusMessage: " + detail,
+                cause,
+                InvalidMqttPayloadException.FailureType.INVALID_JSON
+        );
+    }
+}
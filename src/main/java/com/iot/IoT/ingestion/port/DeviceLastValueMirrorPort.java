@@ -0,0 +1,16 @@
+package com.iot.IoT.ingestion.port;
+
+import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface DeviceLastValueMirrorPort {
+
+    void publish(String deviceId, DeviceTemperaturePointResponse point);
+
+    Optional<DeviceTemperaturePointResponse> find(String deviceId);
+
+    Map<String, DeviceTemperaturePointResponse> findAll(Collection<String> deviceIds);
+}
@@ -0,0 +1,20 @@
+package com.iot.IoT.ingestion.port;
+
+import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface DeviceLastValuePort {
+
+    void update(DeviceTelemetry message, Instant occurredAt);
+
+    Optional<DeviceTemperaturePointResponse> find(String deviceId);
+
+    Map<String, DeviceTemperaturePointResponse> findAll(Collection<String> deviceIds);
+
+    void prime(String deviceId, DeviceTemperaturePointResponse point);
+}
@@ -5,4 +5,7 @@ import java.time.Instant;
 public interface HeartbeatPort {
 
     void updateLastSeen(String deviceId, Instant lastSeenAt);
+
+    // true면 updateLastSeen은 큐에 넣기만 하고, Redis 성공/실패는 flush 시점에 adapter가 device 수만큼 기록한다.
+    boolean isCoalesced();
 }
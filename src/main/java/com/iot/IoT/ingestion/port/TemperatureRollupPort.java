@@ -0,0 +1,19 @@
+package com.iot.IoT.ingestion.port;
+
+import com.iot.IoT.ingestion.rollup.RollupTier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+public interface TemperatureRollupPort {
+
+    void ensureBucket(String bucket, Duration retention);
+
+    Optional<Instant> findFirstPointTime(String bucket);
+
+    Optional<Instant> findLastPointTime(String bucket);
+
+    // source가 null이면 raw bucket을 집계한다. start/stop은 target window 경계에 맞춰져 있어야 한다.
+    void rollup(RollupTier source, RollupTier target, Instant start, Instant stop);
+}
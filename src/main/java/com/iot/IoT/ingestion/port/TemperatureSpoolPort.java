@@ -0,0 +1,14 @@
+package com.iot.IoT.ingestion.port;
+
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface TemperatureSpoolPort {
+
+    boolean spool(DeviceTelemetry message, Instant occurredAt);
+
+    // 아직 Influx로 재전송되지 않은 가장 오래된 point가 spool에 들어온 시각. 비어 있으면 empty.
+    Optional<Instant> oldestPendingAt();
+}
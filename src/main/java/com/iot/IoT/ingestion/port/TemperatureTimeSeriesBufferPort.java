@@ -0,0 +1,10 @@
+package com.iot.IoT.ingestion.port;
+
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+
+import java.time.Instant;
+
+public interface TemperatureTimeSeriesBufferPort {
+
+    boolean offer(DeviceTelemetry message, Instant occurredAt);
+}
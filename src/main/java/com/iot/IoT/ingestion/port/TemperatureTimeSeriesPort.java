@@ -1,10 +1,10 @@
 package com.iot.IoT.ingestion.port;
 
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
 
 import java.time.Instant;
 
 public interface TemperatureTimeSeriesPort {
 
-    void save(DeviceStatusMessage message, Instant occurredAt);
+    void save(DeviceTelemetry message, Instant occurredAt);
 }
@@ -1,14 +1,35 @@
 package com.iot.IoT.ingestion.port;
 
 import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.dto.TemperatureAggregate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TemperatureTimeSeriesQueryPort {
 
     Optional<DeviceTemperaturePointResponse> findLatest(String deviceId);
 
+    Map<String, DeviceTemperaturePointResponse> findLatestBatch(Collection<String> deviceIds);
+
     List<DeviceTemperaturePointResponse> findRange(String deviceId, Instant from, Instant to, int limit);
+
+    List<DeviceTemperaturePointResponse> findRangeAggregated(
+            String deviceId,
+            Instant from,
+            Instant to,
+            Duration window,
+            TemperatureAggregate aggregate,
+            int limit
+    );
+
+    // 구간과 window를 rollup tier가 대신 읽을 수 있는지만 본다(조회 지표는 남기지 않는다).
+    boolean canServeFromRollup(Instant from, Instant to, Duration window);
+
+    void streamRange(String deviceId, Instant from, Instant to, Consumer<DeviceTemperaturePointResponse> consumer);
 }
@@ -0,0 +1,44 @@
+package com.iot.IoT.ingestion.rollup;
+
+import com.iot.IoT.ingestion.port.TemperatureRollupPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// influxdb.raw-retention-days가 0보다 크면 기동 시 raw bucket의 retention을 그 값으로 맞춘다. 0이면 bucket 설정을 건드리지 않는다.
+@Component
+public class RawRetentionInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(RawRetentionInitializer.class);
+
+    private final TemperatureRollupPort temperatureRollupPort;
+    private final String bucket;
+    private final long rawRetentionDays;
+
+    public RawRetentionInitializer(
+            TemperatureRollupPort temperatureRollupPort,
+            @Value("${influxdb.bucket}") String bucket,
+            @Value("${influxdb.raw-retention-days:0}") long rawRetentionDays
+    ) {
+        this.temperatureRollupPort = temperatureRollupPort;
+        this.bucket = bucket;
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void applyRawRetention() {
+        if (rawRetentionDays <= 0) {
+            return;
+        }
+        try {
+            temperatureRollupPort.ensureBucket(bucket, Duration.ofDays(rawRetentionDays));
+        } catch (RuntimeException ex) {
+            log.warn("[ROLLUP] Failed to apply raw bucket retention. bucket={}, retentionDays={}", bucket, rawRetentionDays, ex);
+        }
+    }
+}
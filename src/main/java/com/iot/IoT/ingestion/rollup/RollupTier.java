@@ -0,0 +1,13 @@
+package com.iot.IoT.ingestion.rollup;
+
+import java.time.Duration;
+
+// window마다 temp/targetTemp의 sum/count/min/max/last와 마지막 state를 담는 Influx bucket 하나.
+// retention이 0이면 만료하지 않는다.
+public record RollupTier(
+        String name,
+        String bucket,
+        Duration window,
+        Duration retention
+) {
+}
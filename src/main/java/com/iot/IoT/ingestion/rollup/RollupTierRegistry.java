@@ -0,0 +1,98 @@
+package com.iot.IoT.ingestion.rollup;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// 1분/1시간 rollup tier 정의와 tier별로 채워진 구간(coverage)을 들고, 집계 조회가 읽을 tier를 고른다.
+// coverage는 rollup job이 갱신하므로 job이 꺼져 있거나 아직 돌지 않았으면 항상 raw bucket을 읽는다.
+@Component
+public class RollupTierRegistry {
+
+    public static final String RAW = "raw";
+
+    private final boolean enabled;
+    private final List<RollupTier> tiers;
+    private final ConcurrentMap<String, Coverage> coverageByTier = new ConcurrentHashMap<>();
+    private final Map<String, Counter> queryCounters = new HashMap<>();
+
+    public RollupTierRegistry(
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${influxdb.rollup.enabled:false}") boolean enabled,
+            @Value("${influxdb.rollup.minute-bucket:sousvide_bucket_1m}") String minuteBucket,
+            @Value("${influxdb.rollup.minute-retention-days:180}") long minuteRetentionDays,
+            @Value("${influxdb.rollup.hour-bucket:sousvide_bucket_1h}") String hourBucket,
+            @Value("${influxdb.rollup.hour-retention-days:0}") long hourRetentionDays
+    ) {
+        this.enabled = enabled;
+        this.tiers = List.of(
+                new RollupTier("1m", minuteBucket, Duration.ofMinutes(1), Duration.ofDays(minuteRetentionDays)),
+                new RollupTier("1h", hourBucket, Duration.ofHours(1), Duration.ofDays(hourRetentionDays))
+        );
+        queryCounters.put(RAW, ingestionMetricsCollector.registerRollupQueryCounter(RAW, meterRegistry));
+        for (RollupTier tier : tiers) {
+            queryCounters.put(tier.name(), ingestionMetricsCollector.registerRollupQueryCounter(tier.name(), meterRegistry));
+        }
+    }
+
+    // 세밀한 tier부터 순서대로 돌려준다. 각 tier는 바로 앞 tier(첫 tier는 raw)를 source로 삼는다.
+    public List<RollupTier> tiers() {
+        return tiers;
+    }
+
+    public Optional<Coverage> coverage(RollupTier tier) {
+        return Optional.ofNullable(coverageByTier.get(tier.name()));
+    }
+
+    public void updateCoverage(RollupTier tier, Coverage coverage) {
+        coverageByTier.put(tier.name(), coverage);
+    }
+
+    // window를 tier 단위로 정확히 나눌 수 있고, 요청 구간 전체가 tier의 coverage/retention 안에 있는 가장 성긴 tier를 고른다.
+    // coverage 끝이 window 하나 이상 뒤처져 있으면 최근 구간이 비므로 쓰지 않는다.
+    public Optional<RollupTier> select(Instant from, Instant to, Duration window) {
+        Optional<RollupTier> selected = enabled ? findCoveringTier(from, to, window) : Optional.empty();
+        queryCounters.get(selected.map(RollupTier::name).orElse(RAW)).increment();
+        return selected;
+    }
+
+    // 집계 window를 tier 단위로 올림할지 정할 때 쓰며, select()와 달리 조회 지표를 세지 않는다.
+    public boolean canServe(Instant from, Instant to, Duration window) {
+        return enabled && findCoveringTier(from, to, window).isPresent();
+    }
+
+    private Optional<RollupTier> findCoveringTier(Instant from, Instant to, Duration window) {
+        Instant now = Instant.now();
+        for (int index = tiers.size() - 1; index >= 0; index--) {
+            RollupTier tier = tiers.get(index);
+            Coverage coverage = coverageByTier.get(tier.name());
+            if (coverage == null || window.toSeconds() % tier.window().toSeconds() != 0) {
+                continue;
+            }
+            if (from.isBefore(coverage.from()) || coverage.until().isBefore(to.minus(window))) {
+                continue;
+            }
+            if (!tier.retention().isZero() && from.isBefore(now.minus(tier.retention()))) {
+                continue;
+            }
+            return Optional.of(tier);
+        }
+        return Optional.empty();
+    }
+
+    // [from, until) 구간의 window가 모두 rollup되어 있다.
+    public record Coverage(Instant from, Instant until) {
+    }
+}
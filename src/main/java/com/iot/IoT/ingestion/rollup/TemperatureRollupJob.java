@@ -0,0 +1,138 @@
+package com.iot.IoT.ingestion.rollup;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.TemperatureRollupPort;
+import com.iot.IoT.ingestion.port.TemperatureSpoolPort;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// raw -> 1m -> 1h 순서로 아직 rollup되지 않은 완결 window만 증분 집계한다.
+// 늦게 도착하는 point를 위해 raw는 lag만큼 늦춰 집계하고, 상위 tier는 하위 tier coverage까지만 따라간다.
+// spool에 재전송을 기다리는 point가 있으면 raw 집계는 그 point가 spool에 들어온 시각 - lag 앞에서 멈춘다.
+// 같은 window를 다시 써도 같은 point로 덮어쓰므로 여러 노드에서 돌아도 결과는 같다.
+@Component
+@ConditionalOnProperty(prefix = "influxdb.rollup", name = "enabled", havingValue = "true")
+public class TemperatureRollupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TemperatureRollupJob.class);
+
+    private final TemperatureRollupPort temperatureRollupPort;
+    private final RollupTierRegistry rollupTierRegistry;
+    private final TemperatureSpoolPort temperatureSpoolPort;
+    private final Duration lag;
+    private final Duration backfill;
+    private final int maxWindowsPerRun;
+    private final Map<String, Counter> failureCounters = new HashMap<>();
+
+    public TemperatureRollupJob(
+            TemperatureRollupPort temperatureRollupPort,
+            RollupTierRegistry rollupTierRegistry,
+            Optional<TemperatureSpoolPort> temperatureSpoolPort,
+            IngestionMetricsCollector ingestionMetricsCollector,
+            MeterRegistry meterRegistry,
+            @Value("${influxdb.rollup.lag-seconds:60}") long lagSeconds,
+            @Value("${influxdb.rollup.backfill-days:7}") long backfillDays,
+            @Value("${influxdb.rollup.max-windows-per-run:60}") int maxWindowsPerRun
+    ) {
+        this.temperatureRollupPort = temperatureRollupPort;
+        this.rollupTierRegistry = rollupTierRegistry;
+        this.temperatureSpoolPort = temperatureSpoolPort.orElse(null);
+        this.lag = Duration.ofSeconds(Math.max(lagSeconds, 0));
+        this.backfill = Duration.ofDays(Math.max(backfillDays, 0));
+        this.maxWindowsPerRun = Math.max(maxWindowsPerRun, 1);
+        for (RollupTier tier : rollupTierRegistry.tiers()) {
+            failureCounters.put(tier.name(), ingestionMetricsCollector.registerRollupMetrics(
+                    tier.name(), tier, this::lagSeconds, meterRegistry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${influxdb.rollup.interval-ms:60000}")
+    public void run() {
+        Instant now = Instant.now();
+        RollupTier source = null;
+        RollupTierRegistry.Coverage sourceCoverage = new RollupTierRegistry.Coverage(now.minus(backfill), rawUntil(now));
+        for (RollupTier tier : rollupTierRegistry.tiers()) {
+            Instant sourceFrom = sourceCoverage.from();
+            try {
+                RollupTierRegistry.Coverage coverage = rollupTierRegistry.coverage(tier)
+                        .orElseGet(() -> loadCoverage(tier, sourceFrom));
+                Instant stop = alignDown(sourceCoverage.until(), tier.window());
+                Instant maxStop = coverage.until().plus(tier.window().multipliedBy(maxWindowsPerRun));
+                if (stop.isAfter(maxStop)) {
+                    stop = maxStop;
+                }
+                if (stop.isAfter(coverage.until())) {
+                    temperatureRollupPort.rollup(source, tier, coverage.until(), stop);
+                    coverage = new RollupTierRegistry.Coverage(coverage.from(), stop);
+                    rollupTierRegistry.updateCoverage(tier, coverage);
+                }
+                source = tier;
+                sourceCoverage = coverage;
+            } catch (RuntimeException ex) {
+                failureCounters.get(tier.name()).increment();
+                // 상위 tier는 이 tier를 source로 쓰므로 다음 실행까지 같이 멈춘다.
+                log.warn("[ROLLUP] Rollup failed; will retry. tier={}, bucket={}", tier.name(), tier.bucket(), ex);
+                return;
+            }
+        }
+    }
+
+    // spool에서 재전송될 point는 spool에 들어온 시각보다 앞선 occurredAt을 가지므로 그 구간은 아직 닫지 않는다.
+    private Instant rawUntil(Instant now) {
+        Instant until = now.minus(lag);
+        if (temperatureSpoolPort == null) {
+            return until;
+        }
+        Optional<Instant> oldestPending = temperatureSpoolPort.oldestPendingAt();
+        if (oldestPending.isPresent() && oldestPending.get().minus(lag).isBefore(until)) {
+            log.debug("[ROLLUP] Holding raw rollup behind pending spool entries. oldestPendingAt={}", oldestPending.get());
+            return oldestPending.get().minus(lag);
+        }
+        return until;
+    }
+
+    // 재기동 후 첫 실행에서 tier bucket이 이미 가진 구간을 읽어 이어서 집계한다. 비어 있으면 backfill 시작점부터 채운다.
+    private RollupTierRegistry.Coverage loadCoverage(RollupTier tier, Instant sourceFrom) {
+        temperatureRollupPort.ensureBucket(tier.bucket(), tier.retention());
+        RollupTierRegistry.Coverage coverage = temperatureRollupPort.findLastPointTime(tier.bucket())
+                .map(last -> new RollupTierRegistry.Coverage(
+                        temperatureRollupPort.findFirstPointTime(tier.bucket()).orElse(last),
+                        last.plus(tier.window())))
+                .orElseGet(() -> {
+                    Instant start = alignUp(sourceFrom, tier.window());
+                    return new RollupTierRegistry.Coverage(start, start);
+                });
+        rollupTierRegistry.updateCoverage(tier, coverage);
+        log.info("[ROLLUP] Rollup tier ready. tier={}, bucket={}, from={}, until={}",
+                tier.name(), tier.bucket(), coverage.from(), coverage.until());
+        return coverage;
+    }
+
+    private double lagSeconds(RollupTier tier) {
+        return rollupTierRegistry.coverage(tier)
+                .map(coverage -> (double) Duration.between(coverage.until(), Instant.now()).toSeconds())
+                .orElse(Double.NaN);
+    }
+
+    static Instant alignDown(Instant instant, Duration window) {
+        long windowSeconds = window.toSeconds();
+        return Instant.ofEpochSecond(Math.floorDiv(instant.getEpochSecond(), windowSeconds) * windowSeconds);
+    }
+
+    static Instant alignUp(Instant instant, Duration window) {
+        Instant aligned = alignDown(instant, window);
+        return aligned.equals(instant) ? aligned : aligned.plus(window);
+    }
+}
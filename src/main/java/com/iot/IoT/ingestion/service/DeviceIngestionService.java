@@ -1,8 +1,8 @@
 package com.iot.IoT.ingestion.service;
 
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
 
 public interface DeviceIngestionService {
 
-    void ingest(DeviceStatusMessage message);
+    void ingest(DeviceTelemetry message);
 }
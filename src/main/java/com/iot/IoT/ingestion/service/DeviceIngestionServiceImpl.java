@@ -2,9 +2,13 @@ package com.iot.IoT.ingestion.service;
 
 import com.iot.IoT.control.ControlAction;
 import com.iot.IoT.control.ControlDecisionEngine;
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.logging.HotPathLogSampler;
 import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.DeviceLastValuePort;
 import com.iot.IoT.ingestion.port.HeartbeatPort;
+import com.iot.IoT.ingestion.port.TemperatureSpoolPort;
+import com.iot.IoT.ingestion.port.TemperatureTimeSeriesBufferPort;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesPort;
 import com.iot.IoT.service.DeviceService;
 import org.slf4j.Logger;
@@ -13,44 +17,78 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.Optional;
 
 @Service
 public class DeviceIngestionServiceImpl implements DeviceIngestionService {
 
     private static final Logger log = LoggerFactory.getLogger(DeviceIngestionServiceImpl.class);
     private static final String INFLUX_WRITE_MODE_BYPASS = "bypass";
+    private static final String INFLUX_WRITE_MODE_BATCHED = "batched";
 
     private final TemperatureTimeSeriesPort temperatureTimeSeriesPort;
+    private final TemperatureTimeSeriesBufferPort temperatureTimeSeriesBufferPort;
+    private final TemperatureSpoolPort temperatureSpoolPort;
     private final HeartbeatPort heartbeatPort;
+    private final DeviceLastValuePort deviceLastValuePort;
     private final ControlDecisionEngine controlDecisionEngine;
     private final IngestionMetricsCollector ingestionMetricsCollector;
     private final DeviceService deviceService;
+    private final HotPathLogSampler hotPathLogSampler;
     private final String influxWriteMode;
 
     public DeviceIngestionServiceImpl(
             TemperatureTimeSeriesPort temperatureTimeSeriesPort,
+            Optional<TemperatureTimeSeriesBufferPort> temperatureTimeSeriesBufferPort,
+            Optional<TemperatureSpoolPort> temperatureSpoolPort,
             HeartbeatPort heartbeatPort,
+            DeviceLastValuePort deviceLastValuePort,
             ControlDecisionEngine controlDecisionEngine,
             IngestionMetricsCollector ingestionMetricsCollector,
             DeviceService deviceService,
+            HotPathLogSampler hotPathLogSampler,
             @Value("${ingestion.influx.write-mode:strict}") String influxWriteMode
     ) {
         this.temperatureTimeSeriesPort = temperatureTimeSeriesPort;
+        this.temperatureTimeSeriesBufferPort = temperatureTimeSeriesBufferPort.orElse(null);
+        this.temperatureSpoolPort = temperatureSpoolPort.orElse(null);
         this.heartbeatPort = heartbeatPort;
+        this.deviceLastValuePort = deviceLastValuePort;
         this.controlDecisionEngine = controlDecisionEngine;
         this.ingestionMetricsCollector = ingestionMetricsCollector;
         this.deviceService = deviceService;
+        this.hotPathLogSampler = hotPathLogSampler;
         this.influxWriteMode = influxWriteMode;
+        if (isInfluxWriteBatchedMode() && this.temperatureTimeSeriesBufferPort == null) {
+            throw new IllegalStateException("ingestion.influx.write-mode=batched requires a TemperatureTimeSeriesBufferPort");
+        }
     }
 
     @Override
-    public void ingest(DeviceStatusMessage message) {
+    public void ingest(DeviceTelemetry message) {
         Instant now = Instant.now();
         boolean influxWritten = false;
         boolean redisUpdated = false;
 
+        // status 조회는 이 값을 읽으므로 Influx 저장 성공 여부와 무관하게 먼저 갱신한다.
+        deviceLastValuePort.update(message, now);
+
         if (isInfluxWriteBypassMode()) {
             ingestionMetricsCollector.recordInfluxBypass();
+        } else if (isInfluxWriteBatchedMode()) {
+            if (temperatureTimeSeriesBufferPort.offer(message, now)) {
+                influxWritten = true;
+            } else {
+                ingestionMetricsCollector.recordStorageReplayCandidate();
+                if (spool(message, now)) {
+                    log.warn("[RELIABILITY] Influx batch buffer full, point spooled. deviceId={}, replayable=true",
+                            message.deviceId());
+                } else {
+                    ingestionMetricsCollector.recordInfluxBufferDropped();
+                    log.warn("[RELIABILITY] Influx batch buffer full, point dropped. deviceId={}, replayable=false",
+                            message.deviceId());
+                }
+            }
         } else {
             long influxStartedAtNanos = System.nanoTime();
             try {
@@ -60,14 +98,15 @@ public class DeviceIngestionServiceImpl implements DeviceIngestionService {
             } catch (Exception e) {
                 ingestionMetricsCollector.recordInfluxFailure();
                 ingestionMetricsCollector.recordStorageReplayCandidate();
+                boolean spooled = spool(message, now);
                 log.error("[INGESTION] Influx write failed. deviceId={}, temp={}, targetTemp={}, state={}",
                         message.deviceId(),
                         message.temp(),
                         message.targetTemp(),
                         message.state(),
                         e);
-                log.error("[RELIABILITY] Storage failure classified. store=INFLUX, deviceId={}, replayable=true",
-                        message.deviceId(), e);
+                log.error("[RELIABILITY] Storage failure classified. store=INFLUX, deviceId={}, replayable=true, spooled={}",
+                        message.deviceId(), spooled, e);
             } finally {
                 ingestionMetricsCollector.recordInfluxWriteLatency(System.nanoTime() - influxStartedAtNanos);
             }
@@ -77,7 +116,10 @@ public class DeviceIngestionServiceImpl implements DeviceIngestionService {
         try {
             heartbeatPort.updateLastSeen(message.deviceId(), now);
             redisUpdated = true;
-            ingestionMetricsCollector.recordRedisSuccess();
+            // coalesced mode는 아직 Redis에 쓰지 않았으므로 flush 결과로만 집계한다.
+            if (!heartbeatPort.isCoalesced()) {
+                ingestionMetricsCollector.recordRedisSuccess();
+            }
         } catch (Exception e) {
             ingestionMetricsCollector.recordRedisFailure();
             ingestionMetricsCollector.recordStorageReplayCandidate();
@@ -97,13 +139,9 @@ public class DeviceIngestionServiceImpl implements DeviceIngestionService {
 
         long controlDispatchStartedAtNanos = System.nanoTime();
         try {
-            ControlAction action = controlDecisionEngine.decide(message);
-            log.info("[CONTROL] Decision made. deviceId={}, temp={}, targetTemp={}, state={}, action={}",
-                    message.deviceId(),
-                    message.temp(),
-                    message.targetTemp(),
-                    message.state(),
-                    action);
+            ControlAction action = controlDecisionEngine.decide(
+                    message.deviceId(), message.temp(), message.targetTemp(), message.state());
+            logDecision(message, action);
             deviceService.sendAutoControlCommand(message.deviceId(), action, now);
         } catch (RuntimeException ex) {
             ingestionMetricsCollector.recordControlReplayCandidate();
@@ -115,7 +153,40 @@ public class DeviceIngestionServiceImpl implements DeviceIngestionService {
         }
     }
 
+    private void logDecision(DeviceTelemetry message, ControlAction action) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        long suppressed = hotPathLogSampler.admit(HotPathLogSampler.Category.CONTROL_DECISION, message.deviceId());
+        if (suppressed == HotPathLogSampler.SUPPRESSED) {
+            return;
+        }
+        log.info("[CONTROL] Decision made. deviceId={}, temp={}, targetTemp={}, state={}, action={}, suppressed={}",
+                message.deviceId(),
+                message.temp(),
+                message.targetTemp(),
+                message.state(),
+                action,
+                suppressed);
+    }
+
+    private boolean spool(DeviceTelemetry message, Instant occurredAt) {
+        if (temperatureSpoolPort == null) {
+            return false;
+        }
+        try {
+            return temperatureSpoolPort.spool(message, occurredAt);
+        } catch (RuntimeException ex) {
+            log.error("[RELIABILITY] Spool append failed. deviceId={}", message.deviceId(), ex);
+            return false;
+        }
+    }
+
     private boolean isInfluxWriteBypassMode() {
         return INFLUX_WRITE_MODE_BYPASS.equalsIgnoreCase(influxWriteMode);
     }
+
+    private boolean isInfluxWriteBatchedMode() {
+        return INFLUX_WRITE_MODE_BATCHED.equalsIgnoreCase(influxWriteMode);
+    }
 }
@@ -0,0 +1,285 @@
+package com.iot.IoT.ingestion.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// 고정 크기 segment 파일을 memory-map해 record를 append만 하는 로컬 log.
+// record = [int length][long appendedAtMillis][payload]. length를 마지막에 기록하므로 쓰다 만 record는 length 0으로 남아 무시된다.
+// mapped write는 page cache에 남아 프로세스 crash에는 안전하지만, OS crash 대비는 segment 전환/종료 시 force()까지만 보장한다.
+// 전체 크기가 maxBytes를 넘으면 가장 오래된 segment부터 버린다.
+public class MappedSegmentLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSegmentLog.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private long droppedSegments;
+
+    public MappedSegmentLog(Path directory, int segmentBytes, long maxBytes) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, HEADER_BYTES + 1);
+        this.maxSegments = (int) Math.max(maxBytes / this.segmentBytes, 2);
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to open segment log at " + directory, ex);
+        }
+    }
+
+    public synchronized boolean append(byte[] payload, long appendedAtMillis) {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            return false;
+        }
+        Segment active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (active == null || active.writePosition + recordBytes > segmentBytes) {
+            if (active != null) {
+                active.buffer.force();
+            }
+            active = openSegment(segments.isEmpty() ? 0L : segments.lastKey() + 1);
+            enforceRetention();
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.putLong(position + Integer.BYTES, appendedAtMillis);
+        buffer.put(position + HEADER_BYTES, payload);
+        buffer.putInt(position, payload.length);
+        active.writePosition = position + recordBytes;
+        return true;
+    }
+
+    // from 이후 record를 최대 maxRecords개 읽는다. from이 이미 버려진 segment를 가리키면 남아 있는 가장 오래된 위치부터 읽는다.
+    public synchronized List<Entry> read(Position from, int maxRecords) {
+        List<Entry> entries = new ArrayList<>();
+        Position cursor = clamp(from);
+        while (entries.size() < maxRecords) {
+            Segment segment = segments.get(cursor.segment());
+            if (segment == null) {
+                break;
+            }
+            if (cursor.offset() + HEADER_BYTES > segment.writePosition) {
+                Long next = segments.higherKey(cursor.segment());
+                if (next == null) {
+                    break;
+                }
+                cursor = new Position(next, 0);
+                continue;
+            }
+            MappedByteBuffer buffer = segment.buffer;
+            int length = cursor.offset() < 0 ? 0 : buffer.getInt(cursor.offset());
+            if (length <= 0 || cursor.offset() + HEADER_BYTES + length > segment.writePosition) {
+                throw new IllegalArgumentException("no record at position " + cursor);
+            }
+            long appendedAtMillis = buffer.getLong(cursor.offset() + Integer.BYTES);
+            byte[] payload = new byte[length];
+            buffer.get(cursor.offset() + HEADER_BYTES, payload);
+            Position next = new Position(cursor.segment(), cursor.offset() + HEADER_BYTES + length);
+            entries.add(new Entry(cursor, next, appendedAtMillis, payload));
+            cursor = next;
+        }
+        return entries;
+    }
+
+    // 외부에서 받은 position이 record 시작이나 segment 끝을 가리키는지 record 길이를 따라가며 확인한다.
+    // 이미 버려진 segment는 read가 남아 있는 가장 오래된 위치로 당기므로 유효하다.
+    public synchronized boolean isRecordBoundary(Position position) {
+        if (position.offset() < 0) {
+            return false;
+        }
+        if (segments.isEmpty()) {
+            return position.offset() == 0;
+        }
+        if (position.segment() < segments.firstKey()) {
+            return true;
+        }
+        Segment segment = segments.get(position.segment());
+        if (segment == null || position.offset() > segment.writePosition) {
+            return false;
+        }
+        int offset = 0;
+        while (offset < position.offset()) {
+            offset += HEADER_BYTES + segment.buffer.getInt(offset);
+        }
+        return offset == position.offset();
+    }
+
+    public synchronized Position head() {
+        return segments.isEmpty() ? new Position(0L, 0) : new Position(segments.firstKey(), 0);
+    }
+
+    public synchronized Position tail() {
+        if (segments.isEmpty()) {
+            return new Position(0L, 0);
+        }
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        return new Position(last.getKey(), last.getValue().writePosition);
+    }
+
+    // position보다 앞선 segment를 모두 지운다. 현재 쓰는 segment는 지우지 않는다.
+    public synchronized void truncateBefore(Position position) {
+        while (segments.size() > 1 && segments.firstKey() < position.segment()) {
+            deleteSegment(segments.firstKey());
+        }
+    }
+
+    public synchronized long sizeBytes() {
+        long size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.writePosition;
+        }
+        return size;
+    }
+
+    public synchronized long bytesAfter(Position position) {
+        Position cursor = clamp(position);
+        long size = 0;
+        for (Map.Entry<Long, Segment> entry : segments.tailMap(cursor.segment(), true).entrySet()) {
+            size += entry.getValue().writePosition;
+        }
+        return Math.max(size - cursor.offset(), 0);
+    }
+
+    public synchronized long droppedSegments() {
+        return droppedSegments;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            closeQuietly(segment.channel);
+        }
+        segments.clear();
+    }
+
+    private Position clamp(Position position) {
+        if (segments.isEmpty() || position.segment() >= segments.firstKey()) {
+            return position;
+        }
+        return new Position(segments.firstKey(), 0);
+    }
+
+    private void enforceRetention() {
+        while (segments.size() > maxSegments) {
+            deleteSegment(segments.firstKey());
+            droppedSegments++;
+        }
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> sequences = files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(this::parseSequence)
+                    .flatMap(Optional::stream)
+                    .sorted()
+                    .toList();
+            for (Long sequence : sequences) {
+                Segment segment = openSegment(sequence);
+                segment.writePosition = scanWritePosition(segment.buffer);
+            }
+        }
+    }
+
+    // 손으로 복사해 둔 파일처럼 sequence가 아닌 이름 때문에 기동이 막히지 않게 건너뛴다.
+    private Optional<Long> parseSequence(String name) {
+        String sequence = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        try {
+            long parsed = Long.parseLong(sequence);
+            if (parsed >= 0) {
+                return Optional.of(parsed);
+            }
+        } catch (NumberFormatException ignored) {
+            // 아래에서 경고만 남긴다.
+        }
+        log.warn("[RELIABILITY] Ignoring unrecognized segment file. directory={}, file={}", directory, name);
+        return Optional.empty();
+    }
+
+    private int scanWritePosition(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private Segment openSegment(long sequence) {
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%020d", sequence) + SEGMENT_SUFFIX);
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            Segment segment = new Segment(path, channel, buffer);
+            segments.put(sequence, segment);
+            return segment;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to open segment " + path, ex);
+        }
+    }
+
+    private void deleteSegment(long sequence) {
+        Segment segment = segments.remove(sequence);
+        if (segment == null) {
+            return;
+        }
+        closeQuietly(segment.channel);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("failed to delete segment " + segment.path, ex);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // mapping은 channel과 무관하게 GC 시 해제된다.
+        }
+    }
+
+    public record Position(long segment, int offset) {
+    }
+
+    public record Entry(Position position, Position next, long appendedAtMillis, byte[] payload) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.iot.IoT.mqtt.adapter;
 
 import com.iot.IoT.mqtt.port.DeviceCommandPublisherPort;
+import com.iot.IoT.service.exception.DeviceCommandPublishBusyException;
 import com.iot.IoT.service.exception.DeviceCommandPublishException;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,47 +15,188 @@ import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Component
 public class MqttDeviceCommandPublisherAdapter implements DeviceCommandPublisherPort {
 
     private static final int QOS = 1;
-    private static final long TIMEOUT_MS = 5_000L;
+    private static final long CONNECT_TIMEOUT_MS = 5_000L;
 
     private final MqttPahoClientFactory mqttClientFactory;
     private final String brokerUrl;
     private final String publisherClientId;
-    private IMqttAsyncClient client;
+    private final int maxInflight;
+    private final long publishTimeoutMs;
+    private final AtomicReferenceArray<IMqttAsyncClient> clients;
+    private final Object[] connectLocks;
+    private final Semaphore[] inflightPermits;
+    private final ThreadPoolExecutor completionExecutor;
 
     public MqttDeviceCommandPublisherAdapter(
             MqttPahoClientFactory mqttClientFactory,
             @Value("${spring.mqtt.broker-url}") String brokerUrl,
-            @Value("${spring.mqtt.client-id}") String clientId
+            @Value("${spring.mqtt.client-id}") String clientId,
+            @Value("${downlink.publisher.connections:1}") int connections,
+            @Value("${downlink.publisher.max-inflight:100}") int maxInflight,
+            @Value("${downlink.publisher.timeout-ms:5000}") long publishTimeoutMs,
+            @Value("${downlink.publisher.completion-threads:4}") int completionThreads
     ) {
         this.mqttClientFactory = mqttClientFactory;
         this.brokerUrl = brokerUrl;
         this.publisherClientId = clientId + "-downlink-publisher";
+        this.maxInflight = Math.max(maxInflight, 1);
+        this.publishTimeoutMs = Math.max(publishTimeoutMs, 1);
+
+        int poolSize = Math.max(connections, 1);
+        this.clients = new AtomicReferenceArray<>(poolSize);
+        this.connectLocks = new Object[poolSize];
+        this.inflightPermits = new Semaphore[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            connectLocks[i] = new Object();
+            inflightPermits[i] = new Semaphore(this.maxInflight);
+        }
+        // future는 Paho callback thread가 아니라 여기서 완료해, 호출자의 DB 갱신이 client를 막지 않게 한다.
+        AtomicInteger threadIndex = new AtomicInteger();
+        int threads = Math.max(completionThreads, 1);
+        this.completionExecutor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(poolSize * this.maxInflight),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "downlink-publish-completion-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        try {
+            publishAsync(topic, payload).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new DeviceCommandPublishException("MQTT publish failed. topic=" + topic, ex.getCause());
+        }
     }
 
     @Override
-    public synchronized void publish(String topic, String payload) {
+    public CompletableFuture<Void> publishAsync(String topic, String payload) {
+        // command topic은 device마다 다르므로 topic으로 나누면 한 device의 명령 순서가 한 connection 안에서 유지된다.
+        int index = Math.floorMod(topic.hashCode(), clients.length());
+        Semaphore permits = inflightPermits[index];
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // 호출자(주로 control/scheduler thread)를 slot이 빌 때까지 세워 두지 않고 바로 끝낸다.
+        // window가 찬 경우는 busy로 알려, 호출자가 시도로 세지 않고 명령을 due로 남길 수 있게 한다.
+        if (!permits.tryAcquire()) {
+            future.completeExceptionally(new DeviceCommandPublishBusyException(
+                    "MQTT publish in-flight window exhausted. topic=" + topic,
+                    new IllegalStateException("maxInflight=" + maxInflight)
+            ));
+            return future;
+        }
+
         try {
-            IMqttAsyncClient mqttClient = getConnectedClient();
             MqttMessage message = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
             message.setQos(QOS);
-            mqttClient.publish(topic, message).waitForCompletion(TIMEOUT_MS);
-        } catch (MqttException ex) {
-            throw new DeviceCommandPublishException("MQTT publish failed. topic=" + topic, ex);
+            getConnectedClient(index).publish(topic, message, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    complete(permits, () -> future.complete(null));
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                    complete(permits, () -> future.completeExceptionally(
+                            new DeviceCommandPublishException("MQTT publish failed. topic=" + topic, exception)
+                    ));
+                }
+            });
+        } catch (MqttException | RuntimeException ex) {
+            // listener를 넘기기 전에 publish(또는 connect)가 실패했으므로 다른 곳에서 permit을 돌려주지 않는다.
+            permits.release();
+            future.completeExceptionally(new DeviceCommandPublishException("MQTT publish failed. topic=" + topic, ex));
+        }
+        return future.orTimeout(publishTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // completion이 끝난 뒤에야 permit을 돌려주므로 대기 중인 completion 수도 in-flight window로 묶인다.
+    private void complete(Semaphore permits, Runnable completion) {
+        Runnable releasing = () -> {
+            try {
+                completion.run();
+            } finally {
+                permits.release();
+            }
+        };
+        try {
+            completionExecutor.execute(releasing);
+        } catch (RejectedExecutionException ex) {
+            // shutdown 이후에만 생긴다. callback thread에서 바로 완료해 호출자가 timeout까지 기다리지 않게 한다.
+            releasing.run();
         }
     }
 
-    private IMqttAsyncClient getConnectedClient() throws MqttException {
-        if (client == null) {
-            client = mqttClientFactory.getAsyncClientInstance(brokerUrl, publisherClientId);
+    @PreDestroy
+    public void shutdown() {
+        completionExecutor.shutdown();
+        for (int i = 0; i < clients.length(); i++) {
+            IMqttAsyncClient client = clients.get(i);
+            if (client == null) {
+                continue;
+            }
+            try {
+                if (client.isConnected()) {
+                    client.disconnect().waitForCompletion(CONNECT_TIMEOUT_MS);
+                }
+                client.close();
+            } catch (MqttException ignored) {
+                // 종료 중이라 깨끗이 끊기지 않는 client로 더 할 일이 없다.
+            }
         }
-        if (!client.isConnected()) {
-            client.connect().waitForCompletion(TIMEOUT_MS);
+    }
+
+    private IMqttAsyncClient getConnectedClient(int index) throws MqttException {
+        IMqttAsyncClient client = clients.get(index);
+        if (client != null && client.isConnected()) {
+            return client;
+        }
+        synchronized (connectLocks[index]) {
+            client = clients.get(index);
+            if (client == null) {
+                String clientId = clients.length() == 1 ? publisherClientId : publisherClientId + "-" + index;
+                client = mqttClientFactory.getAsyncClientInstance(brokerUrl, clientId);
+                clients.set(index, client);
+            }
+            if (!client.isConnected()) {
+                client.connect(connectOptions()).waitForCompletion(CONNECT_TIMEOUT_MS);
+            }
+            return client;
         }
-        return client;
+    }
+
+    private MqttConnectOptions connectOptions() {
+        MqttConnectOptions base = mqttClientFactory.getConnectionOptions();
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setServerURIs(base.getServerURIs());
+        options.setCleanSession(base.isCleanSession());
+        options.setUserName(base.getUserName());
+        options.setPassword(base.getPassword());
+        options.setMaxInflight(maxInflight);
+        return options;
     }
 }
@@ -1,6 +1,10 @@
 package com.iot.IoT.mqtt.port;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface DeviceCommandPublisherPort {
 
     void publish(String topic, String payload);
+
+    CompletableFuture<Void> publishAsync(String topic, String payload);
 }
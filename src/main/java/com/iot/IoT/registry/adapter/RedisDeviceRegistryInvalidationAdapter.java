@@ -0,0 +1,82 @@
+package com.iot.IoT.registry.adapter;
+
+import com.iot.IoT.registry.port.DeviceRegistryInvalidationPort;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+@Component
+public class RedisDeviceRegistryInvalidationAdapter implements DeviceRegistryInvalidationPort {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisDeviceRegistryInvalidationAdapter.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final boolean enabled;
+    private final String channel;
+    private RedisMessageListenerContainer listenerContainer;
+
+    public RedisDeviceRegistryInvalidationAdapter(
+            StringRedisTemplate redisTemplate,
+            RedisConnectionFactory redisConnectionFactory,
+            @Value("${device-registry.invalidation.broadcast:true}") boolean enabled,
+            @Value("${device-registry.invalidation.channel:device-registry:invalidate}") String channel
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.enabled = enabled;
+        this.channel = channel;
+    }
+
+    @Override
+    public void broadcast(String deviceId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, deviceId);
+        } catch (RuntimeException ex) {
+            // Other nodes fall back to the cache TTL; the local entry is already gone.
+            log.warn("[REGISTRY] Invalidation broadcast failed. deviceId={}", deviceId, ex);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> listener) {
+        if (!enabled) {
+            return;
+        }
+        if (listenerContainer == null) {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(redisConnectionFactory);
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        }
+        listenerContainer.addMessageListener(
+                (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel)
+        );
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (listenerContainer == null) {
+            return;
+        }
+        try {
+            listenerContainer.destroy();
+        } catch (Exception ex) {
+            log.warn("[REGISTRY] Invalidation listener shutdown failed.", ex);
+        }
+        listenerContainer = null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.iot.IoT.registry.dto;
+
+import com.iot.IoT.entity.Device;
+
+import java.math.BigDecimal;
+
+public record DeviceRegistryEntry(
+        Long devicePk,
+        String deviceId,
+        boolean enabled,
+        BigDecimal controlTargetTemp,
+        BigDecimal controlHysteresis
+) {
+
+    public static DeviceRegistryEntry from(Device device) {
+        return new DeviceRegistryEntry(
+                device.getId(),
+                device.getDeviceId(),
+                device.isEnabled(),
+                device.getControlTargetTemp(),
+                device.getControlHysteresis()
+        );
+    }
+}
@@ -0,0 +1,10 @@
+package com.iot.IoT.registry.port;
+
+import java.util.function.Consumer;
+
+public interface DeviceRegistryInvalidationPort {
+
+    void broadcast(String deviceId);
+
+    void subscribe(Consumer<String> listener);
+}
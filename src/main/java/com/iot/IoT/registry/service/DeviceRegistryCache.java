@@ -0,0 +1,89 @@
+package com.iot.IoT.registry.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.iot.IoT.registry.dto.DeviceRegistryEntry;
+import com.iot.IoT.registry.port.DeviceRegistryInvalidationPort;
+import com.iot.IoT.repository.DeviceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+@Component
+public class DeviceRegistryCache {
+
+    private static final String CACHE_NAME = "device-registry";
+
+    private final DeviceRepository deviceRepository;
+    private final DeviceRegistryInvalidationPort deviceRegistryInvalidationPort;
+    private final Cache<String, Optional<DeviceRegistryEntry>> cache;
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    public DeviceRegistryCache(
+            DeviceRepository deviceRepository,
+            DeviceRegistryInvalidationPort deviceRegistryInvalidationPort,
+            MeterRegistry meterRegistry,
+            @Value("${device-registry.cache.max-size:100000}") long maxSize,
+            @Value("${device-registry.cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.deviceRepository = deviceRepository;
+        this.deviceRegistryInvalidationPort = deviceRegistryInvalidationPort;
+        // Unknown devices are cached as empty too, so telemetry from unregistered senders does not hit MySQL per message.
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 1))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(ttlSeconds, 1)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @PostConstruct
+    public void subscribeInvalidations() {
+        deviceRegistryInvalidationPort.subscribe(this::onInvalidated);
+    }
+
+    // For state derived from registry entries (e.g. precomputed control bounds) that must be dropped together.
+    public void addInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    public Optional<DeviceRegistryEntry> find(String deviceId) {
+        return cache.get(deviceId, key -> deviceRepository.findByDeviceId(key).map(DeviceRegistryEntry::from));
+    }
+
+    public void invalidate(String deviceId) {
+        // After commit, so neither this node nor a peer can reload the pre-update row into the cache.
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(deviceId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(deviceId);
+            }
+        });
+    }
+
+    private void evict(String deviceId) {
+        onInvalidated(deviceId);
+        deviceRegistryInvalidationPort.broadcast(deviceId);
+    }
+
+    private void onInvalidated(String deviceId) {
+        cache.invalidate(deviceId);
+        for (Consumer<String> listener : invalidationListeners) {
+            listener.accept(deviceId);
+        }
+    }
+}
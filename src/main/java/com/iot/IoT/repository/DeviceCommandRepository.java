@@ -4,7 +4,12 @@ import com.iot.IoT.entity.DeviceCommand;
 import com.iot.IoT.entity.DeviceCommandStatus;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -17,5 +22,89 @@ public interface DeviceCommandRepository extends JpaRepository<DeviceCommand, Lo
 
     Optional<DeviceCommand> findByIdAndDevicePk(Long id, Long devicePk);
 
-    List<DeviceCommand> findByStatusIn(Collection<DeviceCommandStatus> statuses);
+    @Query("""
+            select c from DeviceCommand c
+            where c.status = com.iot.IoT.entity.DeviceCommandStatus.PENDING
+              and c.nextRetryAt <= :now
+              and (c.nextRetryAt > :afterRetryAt or (c.nextRetryAt = :afterRetryAt and c.id > :afterId))
+            order by c.nextRetryAt asc, c.id asc
+            """)
+    List<DeviceCommand> findDuePending(
+            @Param("now") Instant now,
+            @Param("afterRetryAt") Instant afterRetryAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select c from DeviceCommand c
+            where c.status = :status
+              and c.nextRetryAt <= :now
+              and c.retryCount < c.maxRetries
+              and (c.nextRetryAt > :afterRetryAt or (c.nextRetryAt = :afterRetryAt and c.id > :afterId))
+            order by c.nextRetryAt asc, c.id asc
+            """)
+    List<DeviceCommand> findDueForRetry(
+            @Param("status") DeviceCommandStatus status,
+            @Param("now") Instant now,
+            @Param("afterRetryAt") Instant afterRetryAt,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query("""
+            select new com.iot.IoT.repository.DeviceCommandTarget(c.deviceId, c.commandType, max(c.requestedAt))
+            from DeviceCommand c
+            where c.status in :statuses
+              and c.expireAt < :now
+            group by c.deviceId, c.commandType
+            """)
+    List<DeviceCommandTarget> findOverdueTargets(
+            @Param("statuses") Collection<DeviceCommandStatus> statuses,
+            @Param("now") Instant now
+    );
+
+    @Modifying
+    @Query("""
+            update DeviceCommand c
+            set c.status = com.iot.IoT.entity.DeviceCommandStatus.EXPIRED,
+                c.nextRetryAt = null,
+                c.errorMessage = :errorMessage
+            where c.status in :statuses
+              and c.expireAt < :now
+            """)
+    int expireOverdue(
+            @Param("statuses") Collection<DeviceCommandStatus> statuses,
+            @Param("now") Instant now,
+            @Param("errorMessage") String errorMessage
+    );
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update DeviceCommand c
+            set c.status = com.iot.IoT.entity.DeviceCommandStatus.SENT,
+                c.sentAt = :sentAt,
+                c.nextRetryAt = :nextRetryAt,
+                c.errorMessage = null
+            where c.id = :id
+              and c.status = com.iot.IoT.entity.DeviceCommandStatus.PENDING
+            """)
+    int markSentIfPending(
+            @Param("id") Long id,
+            @Param("sentAt") Instant sentAt,
+            @Param("nextRetryAt") Instant nextRetryAt
+    );
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update DeviceCommand c
+            set c.status = com.iot.IoT.entity.DeviceCommandStatus.FAILED,
+                c.nextRetryAt = null,
+                c.errorMessage = :errorMessage
+            where c.id = :id
+              and c.status = com.iot.IoT.entity.DeviceCommandStatus.PENDING
+            """)
+    int markFailedIfPending(@Param("id") Long id, @Param("errorMessage") String errorMessage);
 }
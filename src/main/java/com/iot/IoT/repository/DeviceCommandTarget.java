@@ -0,0 +1,9 @@
+package com.iot.IoT.repository;
+
+import com.iot.IoT.control.ControlAction;
+
+import java.time.Instant;
+
+// device/action별로 가장 늦게 요청된 command 시각. 전체 command row를 읽지 않고 dispatch tracker에 실패를 알릴 때 쓴다.
+public record DeviceCommandTarget(String deviceId, ControlAction commandType, Instant requestedAt) {
+}
@@ -1,76 +1,140 @@
 package com.iot.IoT.service;
 
+import com.iot.IoT.control.ControlDispatchTracker;
 import com.iot.IoT.entity.DeviceCommand;
 import com.iot.IoT.entity.DeviceCommandStatus;
 import com.iot.IoT.mqtt.port.DeviceCommandPublisherPort;
 import com.iot.IoT.repository.DeviceCommandRepository;
+import com.iot.IoT.repository.DeviceCommandTarget;
+import com.iot.IoT.service.exception.DeviceCommandPublishBusyException;
 import com.iot.IoT.service.metrics.DownlinkMetricsRecorder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class DeviceCommandReliabilityService {
 
     private static final EnumSet<DeviceCommandStatus> RELIABILITY_TARGET_STATUSES =
             EnumSet.of(DeviceCommandStatus.SENT, DeviceCommandStatus.PENDING);
+    private static final String EXPIRED_ERROR_MESSAGE = "ack timeout expired";
 
     private final DeviceCommandRepository deviceCommandRepository;
     private final DeviceCommandPublisherPort deviceCommandPublisherPort;
     private final DownlinkMetricsRecorder downlinkMetricsRecorder;
+    private final ControlDispatchTracker controlDispatchTracker;
+    private final TransactionTemplate transactionTemplate;
     private final Duration commandRetryInterval;
+    private final Pageable chunk;
+    private final int publishWindow;
 
     public DeviceCommandReliabilityService(
             DeviceCommandRepository deviceCommandRepository,
             DeviceCommandPublisherPort deviceCommandPublisherPort,
             DownlinkMetricsRecorder downlinkMetricsRecorder,
-            @Value("${downlink.retry-interval-seconds:10}") long commandRetryIntervalSeconds
+            ControlDispatchTracker controlDispatchTracker,
+            PlatformTransactionManager transactionManager,
+            @Value("${downlink.retry-interval-seconds:10}") long commandRetryIntervalSeconds,
+            @Value("${downlink.reliability.chunk-size:200}") int chunkSize,
+            @Value("${downlink.publisher.max-inflight:100}") int publishWindow
     ) {
         this.deviceCommandRepository = deviceCommandRepository;
         this.deviceCommandPublisherPort = deviceCommandPublisherPort;
         this.downlinkMetricsRecorder = downlinkMetricsRecorder;
+        this.controlDispatchTracker = controlDispatchTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.commandRetryInterval = Duration.ofSeconds(commandRetryIntervalSeconds);
+        this.chunk = PageRequest.of(0, Math.max(chunkSize, 1));
+        this.publishWindow = Math.max(publishWindow, 1);
     }
 
-    @Transactional
     public void processCommandReliability() {
         Instant now = Instant.now();
-        List<DeviceCommand> targets = deviceCommandRepository.findByStatusIn(RELIABILITY_TARGET_STATUSES);
-        for (DeviceCommand command : targets) {
-            if (command.getStatus() == DeviceCommandStatus.ACKED
-                    || command.getStatus() == DeviceCommandStatus.EXPIRED
-                    || command.getStatus() == DeviceCommandStatus.FAILED) {
-                continue;
-            }
-            if (command.getExpireAt() != null && now.isAfter(command.getExpireAt())) {
-                command.setStatus(DeviceCommandStatus.EXPIRED);
-                command.setNextRetryAt(null);
-                command.setErrorMessage("ack timeout expired");
-                deviceCommandRepository.save(command);
-                downlinkMetricsRecorder.recordExpired();
-                continue;
+
+        // 만료를 먼저 (status, expire_at) bulk UPDATE 한 번으로 처리해, 만료된 row는 retry 조회에서 빠진다.
+        // 같은 트랜잭션에서 (device, action)별로 묶어 조회한 결과로 dispatch tracker가 다시 낼 결정을 정한다.
+        List<DeviceCommandTarget> expiredTargets = transactionTemplate.execute(status -> {
+            List<DeviceCommandTarget> targets = deviceCommandRepository.findOverdueTargets(RELIABILITY_TARGET_STATUSES, now);
+            int expired = deviceCommandRepository.expireOverdue(RELIABILITY_TARGET_STATUSES, now, EXPIRED_ERROR_MESSAGE);
+            if (expired > 0) {
+                downlinkMetricsRecorder.recordExpired(expired);
             }
-            if (command.getStatus() == DeviceCommandStatus.PENDING) {
-                retryPublish(command, now);
-                continue;
+            return targets;
+        });
+        if (expiredTargets != null) {
+            for (DeviceCommandTarget target : expiredTargets) {
+                controlDispatchTracker.markFailed(target.deviceId(), target.commandType(), target.requestedAt());
             }
-            if (command.getStatus() == DeviceCommandStatus.SENT
-                    && command.getNextRetryAt() != null
-                    && !now.isBefore(command.getNextRetryAt())
-                    && command.getRetryCount() < command.getMaxRetries()) {
-                retryPublish(command, now);
+        }
+
+        processDueChunks(DeviceCommandStatus.PENDING, now);
+        processDueChunks(DeviceCommandStatus.SENT, now);
+    }
+
+    private void processDueChunks(DeviceCommandStatus targetStatus, Instant now) {
+        DueCursor cursor = DueCursor.START;
+        while (true) {
+            DueCursor after = cursor;
+            // chunk마다 짧은 트랜잭션을 써서 backlog 전체에 걸쳐 row lock을 잡지 않는다.
+            DueCursor next = transactionTemplate.execute(status -> {
+                List<DeviceCommand> due = findDueChunk(targetStatus, now, after);
+                if (due.isEmpty()) {
+                    return null;
+                }
+                // applyRetryResult가 nextRetryAt을 now 뒤로 옮기므로 cursor는 publish 전에 잡는다.
+                DeviceCommand last = due.get(due.size() - 1);
+                DueCursor lastSeen = due.size() < chunk.getPageSize()
+                        ? null
+                        : new DueCursor(last.getNextRetryAt(), last.getId());
+                // publisher window 하나만 in-flight로 두고 완료를 기다린 뒤 다음 window를 보낸다. chunk당 broker 왕복은 chunk/window번이고,
+                // 이 pass 혼자서는 publisher의 in-flight 한도를 넘지 않는다.
+                for (int from = 0; from < due.size(); from += publishWindow) {
+                    List<DeviceCommand> window = due.subList(from, Math.min(from + publishWindow, due.size()));
+                    List<CompletableFuture<Void>> publishes = window.stream()
+                            .map(command -> publishAsync(command.getTopic(), command.getPayload()))
+                            .toList();
+                    for (int i = 0; i < window.size(); i++) {
+                        applyRetryResult(window.get(i), publishes.get(i), now);
+                    }
+                }
+                return lastSeen;
+            });
+            if (next == null) {
+                return;
             }
+            cursor = next;
+        }
+    }
+
+    // (next_retry_at, id)로 페이지를 나눠 chunk마다 (status, next_retry_at, id) 인덱스 range scan이 되게 한다.
+    private List<DeviceCommand> findDueChunk(DeviceCommandStatus targetStatus, Instant now, DueCursor after) {
+        if (targetStatus == DeviceCommandStatus.PENDING) {
+            return deviceCommandRepository.findDuePending(now, after.nextRetryAt(), after.id(), chunk);
         }
+        return deviceCommandRepository.findDueForRetry(targetStatus, now, after.nextRetryAt(), after.id(), chunk);
     }
 
-    private void retryPublish(DeviceCommand command, Instant now) {
+    private CompletableFuture<Void> publishAsync(String topic, String payload) {
         try {
-            deviceCommandPublisherPort.publish(command.getTopic(), command.getPayload());
+            return deviceCommandPublisherPort.publishAsync(topic, payload);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private void applyRetryResult(DeviceCommand command, CompletableFuture<Void> publish, Instant now) {
+        try {
+            awaitPublish(publish);
             command.setStatus(DeviceCommandStatus.SENT);
             command.setSentAt(now);
             command.setRetryCount(command.getRetryCount() + 1);
@@ -78,6 +142,11 @@ public class DeviceCommandReliabilityService {
             command.setErrorMessage(null);
             downlinkMetricsRecorder.recordRetried();
             downlinkMetricsRecorder.recordSent();
+        } catch (DeviceCommandPublishBusyException ex) {
+            // window가 찬 것(auto control burst와 공유 등)은 시도가 아니라 backpressure다.
+            // row를 그대로 두어 다음 pass에서 다시 due로 잡히게 한다.
+            downlinkMetricsRecorder.recordPublishDeferred();
+            return;
         } catch (RuntimeException ex) {
             int nextRetry = command.getRetryCount() + 1;
             command.setRetryCount(nextRetry);
@@ -85,6 +154,7 @@ public class DeviceCommandReliabilityService {
                 command.setStatus(DeviceCommandStatus.FAILED);
                 command.setNextRetryAt(null);
                 downlinkMetricsRecorder.recordFailed();
+                controlDispatchTracker.markFailed(command.getDeviceId(), command.getCommandType(), command.getRequestedAt());
             } else {
                 command.setStatus(DeviceCommandStatus.SENT);
                 command.setNextRetryAt(now.plus(commandRetryInterval));
@@ -94,4 +164,20 @@ public class DeviceCommandReliabilityService {
         }
         deviceCommandRepository.save(command);
     }
+
+    private record DueCursor(Instant nextRetryAt, long id) {
+
+        private static final DueCursor START = new DueCursor(Instant.EPOCH, 0L);
+    }
+
+    private static void awaitPublish(CompletableFuture<Void> publish) {
+        try {
+            publish.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
 }
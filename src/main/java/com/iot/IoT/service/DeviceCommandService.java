@@ -1,31 +1,47 @@
 package com.iot.IoT.service;
 
 import com.iot.IoT.control.ControlAction;
+import com.iot.IoT.control.ControlDispatchTracker;
 import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.entity.Device;
 import com.iot.IoT.entity.DeviceCommand;
 import com.iot.IoT.entity.DeviceCommandStatus;
 import com.iot.IoT.mqtt.port.DeviceCommandPublisherPort;
+import com.iot.IoT.registry.dto.DeviceRegistryEntry;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
 import com.iot.IoT.repository.DeviceCommandRepository;
 import com.iot.IoT.repository.DeviceRepository;
 import com.iot.IoT.service.exception.DeviceCommandNotFoundException;
+import com.iot.IoT.service.exception.DeviceCommandPublishBusyException;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import com.iot.IoT.service.metrics.DownlinkMetricsRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class DeviceCommandService {
 
+    private static final Logger log = LoggerFactory.getLogger(DeviceCommandService.class);
+
     private final DeviceRepository deviceRepository;
     private final DeviceCommandRepository deviceCommandRepository;
     private final DeviceCommandPublisherPort deviceCommandPublisherPort;
     private final DownlinkMetricsRecorder downlinkMetricsRecorder;
+    private final DeviceRegistryCache deviceRegistryCache;
+    private final ControlDispatchTracker controlDispatchTracker;
+    private final TransactionTemplate transactionTemplate;
     private final Duration commandRetryInterval;
     private final Duration commandAckTimeout;
     private final Duration autoControlDedupWindow;
@@ -36,6 +52,9 @@ public class DeviceCommandService {
             DeviceCommandRepository deviceCommandRepository,
             DeviceCommandPublisherPort deviceCommandPublisherPort,
             DownlinkMetricsRecorder downlinkMetricsRecorder,
+            DeviceRegistryCache deviceRegistryCache,
+            ControlDispatchTracker controlDispatchTracker,
+            PlatformTransactionManager transactionManager,
             @Value("${downlink.retry-interval-seconds:10}") long commandRetryIntervalSeconds,
             @Value("${downlink.ack-timeout-seconds:30}") long commandAckTimeoutSeconds,
             @Value("${control.auto-command-dedup-window-seconds:30}") long autoControlDedupWindowSeconds,
@@ -45,6 +64,9 @@ public class DeviceCommandService {
         this.deviceCommandRepository = deviceCommandRepository;
         this.deviceCommandPublisherPort = deviceCommandPublisherPort;
         this.downlinkMetricsRecorder = downlinkMetricsRecorder;
+        this.deviceRegistryCache = deviceRegistryCache;
+        this.controlDispatchTracker = controlDispatchTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.commandRetryInterval = Duration.ofSeconds(commandRetryIntervalSeconds);
         this.commandAckTimeout = Duration.ofSeconds(commandAckTimeoutSeconds);
         this.autoControlDedupWindow = Duration.ofSeconds(Math.max(autoControlDedupWindowSeconds, 1));
@@ -69,11 +91,15 @@ public class DeviceCommandService {
             command.setErrorMessage(null);
             command = deviceCommandRepository.save(command);
             downlinkMetricsRecorder.recordAcked();
+            // ack가 commit된 뒤에만 tracker가 같은 action의 re-assert를 멈춘다.
+            String deviceId = command.getDeviceId();
+            ControlAction commandType = command.getCommandType();
+            Instant requestedAt = command.getRequestedAt();
+            runAfterCommit(() -> controlDispatchTracker.markAcked(deviceId, commandType, requestedAt));
         }
         return toCommandResponse(command);
     }
 
-    @Transactional
     public void sendAutoControlCommand(String deviceId, ControlAction commandType, Instant decidedAt) {
         if (commandType == ControlAction.HOLD) {
             return;
@@ -84,13 +110,57 @@ public class DeviceCommandService {
             return;
         }
 
-        Optional<Device> device = deviceRepository.findByDeviceId(normalizedDeviceId);
-        if (device.isEmpty() || !device.get().isEnabled()) {
+        // MySQL 대신 registry cache로 확인해, 미등록/비활성 device는 트랜잭션을 열지 않고 여기서 끝난다.
+        Optional<DeviceRegistryEntry> device = deviceRegistryCache.find(normalizedDeviceId);
+        if (device.isEmpty() || !device.get().enabled()) {
             return;
         }
 
+        // edge-triggered: 같은 action은 re-assert interval이 지나야 다시 보내므로,
+        // 반복되는 같은 결정은 idempotency 조회도 publish도 하지 않는다.
+        if (!controlDispatchTracker.tryIssue(normalizedDeviceId, commandType, decidedAt)) {
+            downlinkMetricsRecorder.recordAutoControlSuppressed();
+            return;
+        }
+
+        Long devicePk = device.get().devicePk();
         String idempotencyKey = buildAutoControlIdempotencyKey(normalizedDeviceId, commandType, decidedAt);
-        sendCommand(device.get(), commandType, idempotencyKey);
+        try {
+            persistAndPublishAutoCommand(devicePk, normalizedDeviceId, commandType, idempotencyKey);
+        } catch (RuntimeException ex) {
+            controlDispatchTracker.markFailed(normalizedDeviceId, commandType);
+            throw ex;
+        }
+    }
+
+    private void persistAndPublishAutoCommand(
+            Long devicePk,
+            String deviceId,
+            ControlAction commandType,
+            String idempotencyKey
+    ) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<DeviceCommand> existing = deviceCommandRepository.findByDevicePkAndIdempotencyKey(
+                    devicePk,
+                    idempotencyKey
+            );
+            if (existing.isPresent()) {
+                downlinkMetricsRecorder.recordIdempotencyHit();
+                return;
+            }
+
+            // auto control은 broker 왕복 동안 ingestion thread를 잡지 않는다. PENDING으로 저장하고 commit 후 publish하며,
+            // 완료 callback이 SENT/FAILED로 옮긴다. callback이 반영되지 못하면
+            // nextRetryAt 이후 reliability pass가 PENDING row를 다시 보낸다.
+            DeviceCommand created = createPendingCommand(devicePk, deviceId, commandType, idempotencyKey);
+            created.setNextRetryAt(created.getRequestedAt().plus(commandRetryInterval));
+            DeviceCommand saved = deviceCommandRepository.save(created);
+            Long commandId = saved.getId();
+            String topic = saved.getTopic();
+            String payload = saved.getPayload();
+            runAfterCommit(() -> deviceCommandPublisherPort.publishAsync(topic, payload)
+                    .whenComplete((ignored, ex) -> onAutoCommandPublished(commandId, deviceId, commandType, ex)));
+        });
     }
 
     private DeviceCommandResponse sendCommand(Device device, ControlAction commandType, String idempotencyKey) {
@@ -103,17 +173,49 @@ public class DeviceCommandService {
             return toCommandResponse(existing.get());
         }
 
-        String topic = buildCommandTopic(device.getDeviceId());
+        DeviceCommand created = createPendingCommand(device.getId(), device.getDeviceId(), commandType, idempotencyKey);
+        String topic = created.getTopic();
+        String payload = created.getPayload();
 
+        try {
+            deviceCommandPublisherPort.publish(topic, payload);
+            Instant sentAt = Instant.now();
+            created.setStatus(DeviceCommandStatus.SENT);
+            created.setSentAt(sentAt);
+            created.setNextRetryAt(sentAt.plus(commandRetryInterval));
+            created.setErrorMessage(null);
+            downlinkMetricsRecorder.recordSent();
+        } catch (DeviceCommandPublishBusyException ex) {
+            // PENDING으로 두고 바로 due로 만든다. reliability pass가 retry를 쓰지 않고 발행한다.
+            created.setNextRetryAt(Instant.now());
+            created.setErrorMessage(ex.getMessage());
+            downlinkMetricsRecorder.recordPublishDeferred();
+        } catch (RuntimeException ex) {
+            created.setStatus(DeviceCommandStatus.FAILED);
+            created.setSentAt(null);
+            created.setNextRetryAt(null);
+            created.setErrorMessage(ex.getMessage());
+            downlinkMetricsRecorder.recordFailed();
+        }
+
+        return toCommandResponse(deviceCommandRepository.save(created));
+    }
+
+    private DeviceCommand createPendingCommand(
+            Long devicePk,
+            String deviceId,
+            ControlAction commandType,
+            String idempotencyKey
+    ) {
         DeviceCommand command = new DeviceCommand();
-        command.setDevicePk(device.getId());
-        command.setDeviceId(device.getDeviceId());
+        command.setDevicePk(devicePk);
+        command.setDeviceId(deviceId);
         command.setIdempotencyKey(idempotencyKey);
         command.setCommandType(commandType);
         command.setStatus(DeviceCommandStatus.PENDING);
         command.setRetryCount(0);
         command.setMaxRetries(commandMaxRetries);
-        command.setTopic(topic);
+        command.setTopic(buildCommandTopic(deviceId));
         command.setPayload("");
 
         DeviceCommand created = deviceCommandRepository.save(command);
@@ -123,26 +225,48 @@ public class DeviceCommandService {
         Instant requestedAt = created.getRequestedAt() == null ? Instant.now() : created.getRequestedAt();
         created.setRequestedAt(requestedAt);
         created.setExpireAt(requestedAt.plus(commandAckTimeout));
-        String payload = buildCommandPayload(created.getId(), commandType, requestedAt);
-        created.setPayload(payload);
+        // 호출자가 바꾸지 않으면 바로 due다. reliability scan은 nextRetryAt이 있는 row만 읽는다.
+        created.setNextRetryAt(requestedAt);
+        created.setPayload(buildCommandPayload(created.getId(), commandType, requestedAt));
+        return created;
+    }
 
+    private void onAutoCommandPublished(Long commandId, String deviceId, ControlAction commandType, Throwable failure) {
+        Instant completedAt = Instant.now();
         try {
-            deviceCommandPublisherPort.publish(topic, payload);
-            Instant sentAt = Instant.now();
-            created.setStatus(DeviceCommandStatus.SENT);
-            created.setSentAt(sentAt);
-            created.setNextRetryAt(sentAt.plus(commandRetryInterval));
-            created.setErrorMessage(null);
-            downlinkMetricsRecorder.recordSent();
-        } catch (RuntimeException ex) {
-            created.setStatus(DeviceCommandStatus.FAILED);
-            created.setSentAt(null);
-            created.setNextRetryAt(null);
-            created.setErrorMessage(ex.getMessage());
+            if (failure == null) {
+                deviceCommandRepository.markSentIfPending(commandId, completedAt, completedAt.plus(commandRetryInterval));
+                downlinkMetricsRecorder.recordSent();
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure;
+            if (cause instanceof DeviceCommandPublishBusyException) {
+                // window가 찬 것은 실패한 시도가 아니라 backpressure다. row는 PENDING으로 남아 nextRetryAt 이후
+                // reliability pass가 발행하므로 tracker 입장에서도 결정은 아직 진행 중이다.
+                downlinkMetricsRecorder.recordPublishDeferred();
+                return;
+            }
+            controlDispatchTracker.markFailed(deviceId, commandType);
+            deviceCommandRepository.markFailedIfPending(commandId, cause.getMessage());
             downlinkMetricsRecorder.recordFailed();
+        } catch (RuntimeException ex) {
+            log.error("[DOWNLINK] Command status update failed after publish. commandId={}", commandId, ex);
         }
+    }
 
-        return toCommandResponse(deviceCommandRepository.save(created));
+    private static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private Device findEntity(Long id) {
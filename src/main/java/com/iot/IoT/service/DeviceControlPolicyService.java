@@ -2,6 +2,7 @@ package com.iot.IoT.service;
 
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.entity.Device;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
 import com.iot.IoT.repository.DeviceRepository;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,9 +14,11 @@ import java.math.BigDecimal;
 public class DeviceControlPolicyService {
 
     private final DeviceRepository deviceRepository;
+    private final DeviceRegistryCache deviceRegistryCache;
 
-    public DeviceControlPolicyService(DeviceRepository deviceRepository) {
+    public DeviceControlPolicyService(DeviceRepository deviceRepository, DeviceRegistryCache deviceRegistryCache) {
         this.deviceRepository = deviceRepository;
+        this.deviceRegistryCache = deviceRegistryCache;
     }
 
     @Transactional(readOnly = true)
@@ -28,7 +31,9 @@ public class DeviceControlPolicyService {
         Device device = findEntity(id);
         device.setControlTargetTemp(targetTemp);
         device.setControlHysteresis(hysteresis);
-        return toControlPolicyResponse(deviceRepository.save(device));
+        Device saved = deviceRepository.save(device);
+        deviceRegistryCache.invalidate(saved.getDeviceId());
+        return toControlPolicyResponse(saved);
     }
 
     private Device findEntity(Long id) {
@@ -5,16 +5,24 @@ import com.iot.IoT.dto.DeviceCommandPageResponse;
 import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
+import com.iot.IoT.dto.DeviceStatusPageResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
 import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
+import com.iot.IoT.dto.TemperatureAggregate;
+import com.iot.IoT.dto.TemperatureExportFormat;
 import com.iot.IoT.entity.Device;
 import com.iot.IoT.entity.DeviceCommand;
+import com.iot.IoT.ingestion.port.DeviceLastValuePort;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesQueryPort;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
 import com.iot.IoT.repository.DeviceCommandRepository;
 import com.iot.IoT.repository.DeviceRepository;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import com.iot.IoT.service.exception.DuplicateDeviceException;
+import com.iot.IoT.service.exception.ExportLimitExceededException;
 import com.iot.IoT.service.exception.InvalidDeviceQueryException;
 import com.iot.IoT.watchdog.port.WatchdogStatePort;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,10 +32,26 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class DeviceQueryService {
@@ -40,26 +64,46 @@ public class DeviceQueryService {
     private static final int DEFAULT_COMMAND_LIMIT = 20;
     private static final int MIN_COMMAND_LIMIT = 1;
     private static final int MAX_COMMAND_LIMIT = 100;
+    private static final int MAX_STATUS_BATCH_SIZE = 500;
     private static final Duration DEFAULT_RANGE = Duration.ofHours(1);
+    private static final long MINUTE_SECONDS = 60L;
+    private static final long HOUR_SECONDS = 3_600L;
+    private static final Duration MAX_EXPORT_RANGE = Duration.ofDays(31);
+    private static final String CSV_HEADER = "occurredAt,temp,targetTemp,state\n";
+    private static final Pattern RESOLUTION_PATTERN = Pattern.compile("(\\d{1,6})([smhd])");
 
     private final DeviceRepository deviceRepository;
     private final DeviceCommandRepository deviceCommandRepository;
     private final WatchdogStatePort watchdogStatePort;
     private final TemperatureTimeSeriesQueryPort temperatureTimeSeriesQueryPort;
+    private final DeviceLastValuePort deviceLastValuePort;
+    private final DeviceRegistryCache deviceRegistryCache;
     private final Duration heartbeatTtl;
+    private final boolean lastValueInfluxFallback;
+    private final int maxConcurrentExports;
+    private final Semaphore exportPermits;
 
     public DeviceQueryService(
             DeviceRepository deviceRepository,
             DeviceCommandRepository deviceCommandRepository,
             WatchdogStatePort watchdogStatePort,
             TemperatureTimeSeriesQueryPort temperatureTimeSeriesQueryPort,
-            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds
+            DeviceLastValuePort deviceLastValuePort,
+            DeviceRegistryCache deviceRegistryCache,
+            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds,
+            @Value("${ingestion.last-value.influx-fallback:true}") boolean lastValueInfluxFallback,
+            @Value("${device-query.export.max-concurrent:4}") int maxConcurrentExports
     ) {
         this.deviceRepository = deviceRepository;
         this.deviceCommandRepository = deviceCommandRepository;
         this.watchdogStatePort = watchdogStatePort;
         this.temperatureTimeSeriesQueryPort = temperatureTimeSeriesQueryPort;
+        this.deviceLastValuePort = deviceLastValuePort;
+        this.deviceRegistryCache = deviceRegistryCache;
         this.heartbeatTtl = Duration.ofSeconds(heartbeatTtlSeconds);
+        this.lastValueInfluxFallback = lastValueInfluxFallback;
+        this.maxConcurrentExports = Math.max(maxConcurrentExports, 1);
+        this.exportPermits = new Semaphore(this.maxConcurrentExports);
     }
 
     @Transactional
@@ -75,6 +119,7 @@ public class DeviceQueryService {
         device.setEnabled(request.enabled() == null || request.enabled());
 
         Device saved = deviceRepository.save(device);
+        deviceRegistryCache.invalidate(saved.getDeviceId());
         return toResponse(saved);
     }
 
@@ -105,51 +150,162 @@ public class DeviceQueryService {
     public DeviceResponse updateEnabled(Long id, boolean enabled) {
         Device device = findEntity(id);
         device.setEnabled(enabled);
-        return toResponse(deviceRepository.save(device));
+        Device saved = deviceRepository.save(device);
+        deviceRegistryCache.invalidate(saved.getDeviceId());
+        return toResponse(saved);
     }
 
     @Transactional(readOnly = true)
     public DeviceStatusResponse getStatus(Long id) {
         Device device = findEntity(id);
         Optional<Instant> lastSeen = watchdogStatePort.findLastSeen(device.getDeviceId());
-        Optional<DeviceTemperaturePointResponse> latest = temperatureTimeSeriesQueryPort.findLatest(device.getDeviceId());
+        Optional<DeviceTemperaturePointResponse> latest = findLatest(device.getDeviceId());
+        return toStatusResponse(device, lastSeen.orElse(null), latest.orElse(null));
+    }
 
-        return new DeviceStatusResponse(
-                device.getId(),
-                device.getDeviceId(),
-                device.getName(),
-                device.isEnabled(),
-                lastSeen.orElse(null),
-                isOnline(lastSeen),
-                latest.map(DeviceTemperaturePointResponse::temp).orElse(null),
-                latest.map(DeviceTemperaturePointResponse::targetTemp).orElse(null),
-                latest.map(DeviceTemperaturePointResponse::state).orElse(null),
-                latest.map(DeviceTemperaturePointResponse::occurredAt).orElse(null)
+    // 존재하지 않는 id는 응답에서 빠지며, 요청한 id 순서를 유지한다.
+    @Transactional(readOnly = true)
+    public DeviceStatusListResponse getStatuses(List<Long> ids) {
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_STATUS_BATCH_SIZE) {
+            throw new InvalidDeviceQueryException(
+                    "ids must contain between 1 and %d device ids".formatted(MAX_STATUS_BATCH_SIZE)
+            );
+        }
+        Map<Long, Device> devicesById = new HashMap<>(distinctIds.size() * 2);
+        deviceRepository.findAllById(distinctIds).forEach(device -> devicesById.put(device.getId(), device));
+
+        List<Device> devices = new ArrayList<>(devicesById.size());
+        for (Long id : distinctIds) {
+            Device device = devicesById.get(id);
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        return new DeviceStatusListResponse(toStatusResponses(devices));
+    }
+
+    @Transactional(readOnly = true)
+    public DeviceStatusPageResponse getStatusPage(int page, int size) {
+        int normalizedPage = Math.max(page, 0);
+        int normalizedSize = clamp(size, MIN_PAGE_SIZE, MAX_STATUS_BATCH_SIZE);
+
+        Page<Device> result = deviceRepository.findAll(
+                PageRequest.of(normalizedPage, normalizedSize, Sort.by(Sort.Direction.ASC, "id"))
+        );
+
+        return new DeviceStatusPageResponse(
+                toStatusResponses(result.getContent()),
+                result.getTotalElements(),
+                result.getTotalPages(),
+                normalizedPage,
+                normalizedSize
         );
     }
 
+    // aggregate/resolution이 모두 없으면 raw point를 최신순으로 limit개 돌려준다.
+    // 하나라도 있으면 구간을 limit개 이하의 window로 나눠 Influx aggregateWindow 결과를 돌려준다.
     @Transactional(readOnly = true)
-    public DeviceTemperatureSeriesResponse getTemperatures(Long id, Instant from, Instant to, int limit) {
+    public DeviceTemperatureSeriesResponse getTemperatures(
+            Long id,
+            Instant from,
+            Instant to,
+            int limit,
+            String aggregate,
+            String resolution
+    ) {
         Device device = findEntity(id);
         Range range = resolveRange(from, to);
         int normalizedLimit = normalizeTempLimit(limit);
-        List<DeviceTemperaturePointResponse> items = temperatureTimeSeriesQueryPort.findRange(
+        if (isBlank(aggregate) && isBlank(resolution)) {
+            List<DeviceTemperaturePointResponse> items = temperatureTimeSeriesQueryPort.findRange(
+                    device.getDeviceId(),
+                    range.from(),
+                    range.to(),
+                    normalizedLimit
+            );
+            return new DeviceTemperatureSeriesResponse(
+                    device.getId(),
+                    device.getDeviceId(),
+                    range.from(),
+                    range.to(),
+                    normalizedLimit,
+                    null,
+                    null,
+                    items
+            );
+        }
+
+        TemperatureAggregate resolvedAggregate = parseAggregate(aggregate);
+        Duration window = resolveWindow(range, normalizedLimit, parseResolution(resolution));
+        List<DeviceTemperaturePointResponse> items = temperatureTimeSeriesQueryPort.findRangeAggregated(
                 device.getDeviceId(),
                 range.from(),
                 range.to(),
+                window,
+                resolvedAggregate,
                 normalizedLimit
         );
-
         return new DeviceTemperatureSeriesResponse(
                 device.getId(),
                 device.getDeviceId(),
                 range.from(),
                 range.to(),
                 normalizedLimit,
+                resolvedAggregate,
+                window.toSeconds(),
                 items
         );
     }
 
+    // device 조회와 파라미터 검증은 응답을 쓰기 전에 끝내 404/400을 일반 오류 응답으로 돌려준다.
+    // 동시 export 수도 여기서 permit으로 막아 429를 일반 오류 응답으로 주고, permit은 exportTemperatures가 끝날 때 돌려준다.
+    @Transactional(readOnly = true)
+    public DeviceTemperatureExport prepareTemperatureExport(Long id, Instant from, Instant to, String format) {
+        Device device = findEntity(id);
+        Range range = resolveRange(from, to);
+        if (Duration.between(range.from(), range.to()).compareTo(MAX_EXPORT_RANGE) > 0) {
+            throw new InvalidDeviceQueryException(
+                    "export range must be %d days or less".formatted(MAX_EXPORT_RANGE.toDays())
+            );
+        }
+        TemperatureExportFormat exportFormat = parseExportFormat(format);
+        if (!exportPermits.tryAcquire()) {
+            throw new ExportLimitExceededException(maxConcurrentExports);
+        }
+        return new DeviceTemperatureExport(
+                device.getId(),
+                device.getDeviceId(),
+                range.from(),
+                range.to(),
+                exportFormat
+        );
+    }
+
+    // point를 받는 대로 고정 크기 buffer writer로 흘려보내므로 구간 길이와 관계없이 메모리 사용량이 일정하다.
+    // 값은 숫자, enum 이름, ISO-8601 시각뿐이라 CSV/JSON escape가 필요 없다.
+    public void exportTemperatures(DeviceTemperatureExport export, OutputStream outputStream) throws IOException {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            boolean csv = export.format() == TemperatureExportFormat.CSV;
+            if (csv) {
+                writer.write(CSV_HEADER);
+            }
+            temperatureTimeSeriesQueryPort.streamRange(export.deviceId(), export.from(), export.to(), point -> {
+                try {
+                    writer.write(csv ? toCsvLine(point) : toNdjsonLine(point));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            exportPermits.release();
+        }
+    }
+
     @Transactional(readOnly = true)
     public DeviceCommandPageResponse getCommands(Long id, int limit) {
         Device device = findEntity(id);
@@ -163,6 +319,65 @@ public class DeviceQueryService {
         return new DeviceCommandPageResponse(device.getId(), device.getDeviceId(), normalizedLimit, items);
     }
 
+    // 재기동 직후나 아직 telemetry를 받지 못한 device만 Influx를 조회하고, 찾은 값은 cache에 채운다.
+    private Optional<DeviceTemperaturePointResponse> findLatest(String deviceId) {
+        Optional<DeviceTemperaturePointResponse> cached = deviceLastValuePort.find(deviceId);
+        if (cached.isPresent() || !lastValueInfluxFallback) {
+            return cached;
+        }
+        Optional<DeviceTemperaturePointResponse> latest = temperatureTimeSeriesQueryPort.findLatest(deviceId);
+        latest.ifPresent(point -> deviceLastValuePort.prime(deviceId, point));
+        return latest;
+    }
+
+    // device 수와 관계없이 Redis MGET 한 번, last-value 일괄 조회 한 번, (miss가 있으면) Influx 조회 한 번으로 끝낸다.
+    private List<DeviceStatusResponse> toStatusResponses(List<Device> devices) {
+        if (devices.isEmpty()) {
+            return List.of();
+        }
+        List<String> deviceIds = devices.stream().map(Device::getDeviceId).toList();
+        Map<String, Instant> lastSeenByDevice = watchdogStatePort.findLastSeenBatch(deviceIds);
+        Map<String, DeviceTemperaturePointResponse> latestByDevice = findLatestBatch(deviceIds);
+
+        return devices.stream()
+                .map(device -> toStatusResponse(
+                        device,
+                        lastSeenByDevice.get(device.getDeviceId()),
+                        latestByDevice.get(device.getDeviceId())
+                ))
+                .toList();
+    }
+
+    private Map<String, DeviceTemperaturePointResponse> findLatestBatch(List<String> deviceIds) {
+        Map<String, DeviceTemperaturePointResponse> latestByDevice = new HashMap<>(deviceLastValuePort.findAll(deviceIds));
+        if (!lastValueInfluxFallback || latestByDevice.size() == deviceIds.size()) {
+            return latestByDevice;
+        }
+        List<String> misses = deviceIds.stream()
+                .filter(deviceId -> !latestByDevice.containsKey(deviceId))
+                .toList();
+        temperatureTimeSeriesQueryPort.findLatestBatch(misses).forEach((deviceId, point) -> {
+            deviceLastValuePort.prime(deviceId, point);
+            latestByDevice.put(deviceId, point);
+        });
+        return latestByDevice;
+    }
+
+    private DeviceStatusResponse toStatusResponse(Device device, Instant lastSeen, DeviceTemperaturePointResponse latest) {
+        return new DeviceStatusResponse(
+                device.getId(),
+                device.getDeviceId(),
+                device.getName(),
+                device.isEnabled(),
+                lastSeen,
+                isOnline(Optional.ofNullable(lastSeen)),
+                latest == null ? null : latest.temp(),
+                latest == null ? null : latest.targetTemp(),
+                latest == null ? null : latest.state(),
+                latest == null ? null : latest.occurredAt()
+        );
+    }
+
     private Device findEntity(Long id) {
         return deviceRepository.findById(id)
                 .orElseThrow(() -> new DeviceNotFoundException(id));
@@ -226,6 +441,86 @@ public class DeviceQueryService {
         return limit;
     }
 
+    // 요청한 resolution이 구간을 limit개보다 잘게 나누면 limit개가 되도록 window를 넓힌다.
+    // 1시간(또는 1분)을 넘는 window는 그 단위로 올렸을 때 rollup tier가 구간을 읽을 수 있는 경우에만 올림한다.
+    private Duration resolveWindow(Range range, int limit, Duration requested) {
+        long rangeMillis = Duration.between(range.from(), range.to()).toMillis();
+        long minimumSeconds = Math.max(1L, (rangeMillis + limit * 1_000L - 1) / (limit * 1_000L));
+        long seconds = requested == null ? minimumSeconds : Math.max(requested.toSeconds(), minimumSeconds);
+        for (long unit : new long[]{HOUR_SECONDS, MINUTE_SECONDS}) {
+            if (seconds <= unit || seconds % unit == 0) {
+                continue;
+            }
+            Duration aligned = Duration.ofSeconds(roundUp(seconds, unit));
+            if (temperatureTimeSeriesQueryPort.canServeFromRollup(range.from(), range.to(), aligned)) {
+                return aligned;
+            }
+        }
+        return Duration.ofSeconds(seconds);
+    }
+
+    private static long roundUp(long value, long unit) {
+        return (value + unit - 1) / unit * unit;
+    }
+
+    private static TemperatureExportFormat parseExportFormat(String format) {
+        if (isBlank(format)) {
+            return TemperatureExportFormat.NDJSON;
+        }
+        try {
+            return TemperatureExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidDeviceQueryException("format must be one of ndjson, csv");
+        }
+    }
+
+    private static String toCsvLine(DeviceTemperaturePointResponse point) {
+        return point.occurredAt() + "," + plain(point.temp()) + "," + plain(point.targetTemp()) + ","
+                + point.state().name() + "\n";
+    }
+
+    private static String toNdjsonLine(DeviceTemperaturePointResponse point) {
+        return "{\"occurredAt\":\"" + point.occurredAt()
+                + "\",\"temp\":" + plain(point.temp())
+                + ",\"targetTemp\":" + plain(point.targetTemp())
+                + ",\"state\":\"" + point.state().name() + "\"}\n";
+    }
+
+    private static String plain(BigDecimal value) {
+        return value.toPlainString();
+    }
+
+    private static TemperatureAggregate parseAggregate(String aggregate) {
+        if (isBlank(aggregate)) {
+            return TemperatureAggregate.MEAN;
+        }
+        try {
+            return TemperatureAggregate.valueOf(aggregate.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidDeviceQueryException("aggregate must be one of mean, min, max, last");
+        }
+    }
+
+    private static Duration parseResolution(String resolution) {
+        if (isBlank(resolution)) {
+            return null;
+        }
+        Matcher matcher = RESOLUTION_PATTERN.matcher(resolution.trim());
+        if (!matcher.matches()) {
+            throw new InvalidDeviceQueryException("resolution must be a positive duration such as 30s, 5m, 1h or 1d");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        if (amount == 0) {
+            throw new InvalidDeviceQueryException("resolution must be a positive duration such as 30s, 5m, 1h or 1d");
+        }
+        return switch (matcher.group(2)) {
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+    }
+
     private Range resolveRange(Instant from, Instant to) {
         Instant resolvedTo = to == null ? Instant.now() : to;
         Instant resolvedFrom = from == null ? resolvedTo.minus(DEFAULT_RANGE) : from;
@@ -235,6 +530,10 @@ public class DeviceQueryService {
         return new Range(resolvedFrom, resolvedTo);
     }
 
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     private static String normalize(String value) {
         return value == null ? null : value.trim();
     }
@@ -6,12 +6,18 @@ import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
+import com.iot.IoT.dto.DeviceStatusPageResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
 import com.iot.IoT.control.ControlAction;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 
 public interface DeviceService {
 
@@ -25,7 +31,22 @@ public interface DeviceService {
 
     DeviceStatusResponse getStatus(Long id);
 
-    DeviceTemperatureSeriesResponse getTemperatures(Long id, Instant from, Instant to, int limit);
+    DeviceStatusListResponse getStatuses(List<Long> ids);
+
+    DeviceStatusPageResponse getStatusPage(int page, int size);
+
+    DeviceTemperatureSeriesResponse getTemperatures(
+            Long id,
+            Instant from,
+            Instant to,
+            int limit,
+            String aggregate,
+            String resolution
+    );
+
+    DeviceTemperatureExport prepareTemperatureExport(Long id, Instant from, Instant to, String format);
+
+    void exportTemperatures(DeviceTemperatureExport export, OutputStream outputStream) throws IOException;
 
     DeviceControlPolicyResponse getControlPolicy(Long id);
 
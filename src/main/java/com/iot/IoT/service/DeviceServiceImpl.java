@@ -7,12 +7,18 @@ import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
+import com.iot.IoT.dto.DeviceStatusPageResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 
 @Service
 public class DeviceServiceImpl implements DeviceService {
@@ -60,8 +66,35 @@ public class DeviceServiceImpl implements DeviceService {
     }
 
     @Override
-    public DeviceTemperatureSeriesResponse getTemperatures(Long id, Instant from, Instant to, int limit) {
-        return deviceQueryService.getTemperatures(id, from, to, limit);
+    public DeviceStatusListResponse getStatuses(List<Long> ids) {
+        return deviceQueryService.getStatuses(ids);
+    }
+
+    @Override
+    public DeviceStatusPageResponse getStatusPage(int page, int size) {
+        return deviceQueryService.getStatusPage(page, size);
+    }
+
+    @Override
+    public DeviceTemperatureSeriesResponse getTemperatures(
+            Long id,
+            Instant from,
+            Instant to,
+            int limit,
+            String aggregate,
+            String resolution
+    ) {
+        return deviceQueryService.getTemperatures(id, from, to, limit, aggregate, resolution);
+    }
+
+    @Override
+    public DeviceTemperatureExport prepareTemperatureExport(Long id, Instant from, Instant to, String format) {
+        return deviceQueryService.prepareTemperatureExport(id, from, to, format);
+    }
+
+    @Override
+    public void exportTemperatures(DeviceTemperatureExport export, OutputStream outputStream) throws IOException {
+        deviceQueryService.exportTemperatures(export, outputStream);
     }
 
     @Override
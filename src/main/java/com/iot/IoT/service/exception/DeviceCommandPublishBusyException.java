@@ -0,0 +1,8 @@
+package com.iot.IoT.service.exception;
+
+public class DeviceCommandPublishBusyException extends DeviceCommandPublishException {
+
+    public DeviceCommandPublishBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
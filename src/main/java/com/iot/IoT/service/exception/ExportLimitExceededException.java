@@ -0,0 +1,8 @@
+package com.iot.IoT.service.exception;
+
+public class ExportLimitExceededException extends RuntimeException {
+
+    public ExportLimitExceededException(int maxConcurrent) {
+        super("Too many temperature exports in progress. maxConcurrent=" + maxConcurrent);
+    }
+}
@@ -13,6 +13,8 @@ public class DownlinkMetricsRecorder {
     private final Counter expiredCounter;
     private final Counter retriedCounter;
     private final Counter idempotencyHitCounter;
+    private final Counter autoControlSuppressedCounter;
+    private final Counter publishDeferredCounter;
 
     public DownlinkMetricsRecorder(MeterRegistry meterRegistry) {
         this.sentCounter = meterRegistry.counter("iot.downlink.command.sent.total");
@@ -21,6 +23,8 @@ public class DownlinkMetricsRecorder {
         this.expiredCounter = meterRegistry.counter("iot.downlink.command.expired.total");
         this.retriedCounter = meterRegistry.counter("iot.downlink.command.retried.total");
         this.idempotencyHitCounter = meterRegistry.counter("iot.downlink.command.idempotency.hit.total");
+        this.autoControlSuppressedCounter = meterRegistry.counter("iot.downlink.command.auto.suppressed.total");
+        this.publishDeferredCounter = meterRegistry.counter("iot.downlink.command.publish.deferred.total");
     }
 
     public void recordSent() {
@@ -35,8 +39,8 @@ public class DownlinkMetricsRecorder {
         ackedCounter.increment();
     }
 
-    public void recordExpired() {
-        expiredCounter.increment();
+    public void recordExpired(int count) {
+        expiredCounter.increment(count);
     }
 
     public void recordRetried() {
@@ -46,4 +50,12 @@ public class DownlinkMetricsRecorder {
     public void recordIdempotencyHit() {
         idempotencyHitCounter.increment();
     }
+
+    public void recordAutoControlSuppressed() {
+        autoControlSuppressedCounter.increment();
+    }
+
+    public void recordPublishDeferred() {
+        publishDeferredCounter.increment();
+    }
 }
@@ -0,0 +1,77 @@
+package com.iot.IoT.watchdog.adapter;
+
+import com.iot.IoT.watchdog.port.WatchdogShardLeasePort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Component
+public class RedisWatchdogShardLeaseAdapter implements WatchdogShardLeasePort {
+
+    private static final String NODES_KEY = "watchdog:nodes";
+    private static final String LEASE_KEY_PREFIX = "watchdog:shard:";
+    private static final String LEASE_KEY_SUFFIX = ":lease";
+
+    private static final RedisScript<Long> ACQUIRE_OR_RENEW_SCRIPT = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if owner == ARGV[1] then
+              redis.call('PEXPIRE', KEYS[1], ARGV[2])
+              return 1
+            end
+            if owner then
+              return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisWatchdogShardLeaseAdapter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public int registerNode(String nodeId, Instant now, Duration leaseTtl) {
+        redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now.toEpochMilli());
+        redisTemplate.opsForZSet().removeRangeByScore(
+                NODES_KEY,
+                Double.NEGATIVE_INFINITY,
+                now.minus(leaseTtl).toEpochMilli() - 1
+        );
+        Long liveNodes = redisTemplate.opsForZSet().zCard(NODES_KEY);
+        return liveNodes == null ? 1 : liveNodes.intValue();
+    }
+
+    @Override
+    public boolean acquireOrRenew(int shard, String nodeId, Duration leaseTtl) {
+        Long acquired = redisTemplate.execute(
+                ACQUIRE_OR_RENEW_SCRIPT,
+                List.of(leaseKey(shard)),
+                nodeId,
+                String.valueOf(leaseTtl.toMillis())
+        );
+        return acquired != null && acquired == 1L;
+    }
+
+    @Override
+    public void release(int shard, String nodeId) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(shard)), nodeId);
+    }
+
+    private String leaseKey(int shard) {
+        return LEASE_KEY_PREFIX + shard + LEASE_KEY_SUFFIX;
+    }
+}
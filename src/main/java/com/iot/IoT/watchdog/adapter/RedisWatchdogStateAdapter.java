@@ -1,13 +1,25 @@
 package com.iot.IoT.watchdog.adapter;
 
 import com.iot.IoT.watchdog.port.WatchdogStatePort;
+import com.iot.IoT.watchdog.shard.WatchdogShards;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -17,24 +29,40 @@ public class RedisWatchdogStateAdapter implements WatchdogStatePort {
     private static final String HEARTBEAT_KEY_PREFIX = "device:";
     private static final String HEARTBEAT_KEY_SUFFIX = ":lastSeen";
     private static final String TRACKED_DEVICES_KEY = "devices:active";
+    private static final String LAST_SEEN_INDEX_KEY = "devices:lastSeen";
+    private static final String SHARD_KEY_INFIX = ":shard:";
     private static final String OFFLINE_NOTIFIED_KEY_PREFIX = "watchdog:";
     private static final String OFFLINE_NOTIFIED_KEY_SUFFIX = ":offline-notified";
 
     private final StringRedisTemplate redisTemplate;
     private final Duration notifyCooldown;
+    private final Duration heartbeatTtl;
+    private final int chunkSize;
+    private final int shardCount;
 
     public RedisWatchdogStateAdapter(
             StringRedisTemplate redisTemplate,
-            @Value("${watchdog.offline-notify-cooldown-seconds:60}") long cooldownSeconds
+            @Value("${watchdog.offline-notify-cooldown-seconds:60}") long cooldownSeconds,
+            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds,
+            @Value("${watchdog.scan-chunk-size:500}") int chunkSize,
+            @Value("${watchdog.sharding.enabled:false}") boolean shardingEnabled,
+            @Value("${watchdog.sharding.shard-count:16}") int shardCount
     ) {
         this.redisTemplate = redisTemplate;
         this.notifyCooldown = Duration.ofSeconds(cooldownSeconds);
+        this.heartbeatTtl = Duration.ofSeconds(heartbeatTtlSeconds);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.shardCount = shardingEnabled ? Math.max(shardCount, 1) : 0;
     }
 
     @Override
     public Set<String> findTrackedDeviceIds() {
-        Set<String> members = redisTemplate.opsForSet().members(TRACKED_DEVICES_KEY);
-        return members == null ? Collections.emptySet() : members;
+        return trackedMembers(TRACKED_DEVICES_KEY);
+    }
+
+    @Override
+    public Set<String> findTrackedDeviceIds(int shard) {
+        return trackedMembers(TRACKED_DEVICES_KEY + SHARD_KEY_INFIX + shard);
     }
 
     @Override
@@ -44,16 +72,33 @@ public class RedisWatchdogStateAdapter implements WatchdogStatePort {
     }
 
     @Override
-    public Optional<Instant> findLastSeen(String deviceId) {
-        String value = redisTemplate.opsForValue().get(heartbeatKey(deviceId));
-        if (value == null || value.isBlank()) {
-            return Optional.empty();
+    public Map<String, Boolean> findAliveness(Collection<String> deviceIds) {
+        Map<String, Boolean> aliveness = new HashMap<>(deviceIds.size() * 2);
+        for (List<String> chunk : chunks(deviceIds)) {
+            List<String> values = multiGetHeartbeats(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                aliveness.put(chunk.get(i), values.get(i) != null);
+            }
         }
-        try {
-            return Optional.of(Instant.ofEpochMilli(Long.parseLong(value)));
-        } catch (NumberFormatException ignored) {
-            return Optional.empty();
+        return aliveness;
+    }
+
+    @Override
+    public Optional<Instant> findLastSeen(String deviceId) {
+        return parseLastSeen(redisTemplate.opsForValue().get(heartbeatKey(deviceId)));
+    }
+
+    @Override
+    public Map<String, Instant> findLastSeenBatch(Collection<String> deviceIds) {
+        Map<String, Instant> lastSeen = new HashMap<>(deviceIds.size() * 2);
+        for (List<String> chunk : chunks(deviceIds)) {
+            List<String> values = multiGetHeartbeats(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                String deviceId = chunk.get(i);
+                parseLastSeen(values.get(i)).ifPresent(instant -> lastSeen.put(deviceId, instant));
+            }
         }
+        return lastSeen;
     }
 
     @Override
@@ -66,6 +111,100 @@ public class RedisWatchdogStateAdapter implements WatchdogStatePort {
         return Boolean.TRUE.equals(created);
     }
 
+    @Override
+    public Set<String> markOfflineNotifiedIfAbsent(Collection<String> deviceIds, Instant detectedAt) {
+        Set<String> marked = new HashSet<>();
+        String value = String.valueOf(detectedAt.toEpochMilli());
+        Expiration expiration = Expiration.from(notifyCooldown);
+        for (List<String> chunk : chunks(deviceIds)) {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String deviceId : chunk) {
+                    stringConnection.set(offlineNotifiedKey(deviceId), value, expiration, SetOption.SET_IF_ABSENT);
+                }
+                return null;
+            });
+            for (int i = 0; i < chunk.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i))) {
+                    marked.add(chunk.get(i));
+                }
+            }
+        }
+        return marked;
+    }
+
+    @Override
+    public Set<String> findDevicesLastSeenBefore(Instant threshold, int limit) {
+        return rangeLastSeenBefore(LAST_SEEN_INDEX_KEY, threshold, limit);
+    }
+
+    @Override
+    public Set<String> findDevicesLastSeenBefore(int shard, Instant threshold, int limit) {
+        return rangeLastSeenBefore(LAST_SEEN_INDEX_KEY + SHARD_KEY_INFIX + shard, threshold, limit);
+    }
+
+    private Set<String> rangeLastSeenBefore(String indexKey, Instant threshold, int limit) {
+        Set<String> deviceIds = redisTemplate.opsForZSet().rangeByScore(
+                indexKey,
+                Double.NEGATIVE_INFINITY,
+                threshold.toEpochMilli() - 1,
+                0,
+                limit
+        );
+        return deviceIds == null ? Collections.emptySet() : deviceIds;
+    }
+
+    @Override
+    public void deferExpiredDevices(Collection<String> deviceIds, Instant detectedAt) {
+        // Re-score so the device shows up again once the notify cooldown lapses. GT keeps a fresher heartbeat score intact.
+        double deferredScore = detectedAt.plus(notifyCooldown).minus(heartbeatTtl).toEpochMilli();
+        ZAddArgs gt = ZAddArgs.empty().gt();
+        for (List<String> chunk : chunks(deviceIds)) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String deviceId : chunk) {
+                    stringConnection.zAdd(lastSeenIndexKey(deviceId), deferredScore, deviceId, gt);
+                }
+                return null;
+            });
+        }
+    }
+
+    private Set<String> trackedMembers(String trackedKey) {
+        Set<String> members = redisTemplate.opsForSet().members(trackedKey);
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    private String lastSeenIndexKey(String deviceId) {
+        return shardCount == 0 ? LAST_SEEN_INDEX_KEY : LAST_SEEN_INDEX_KEY + SHARD_KEY_INFIX + WatchdogShards.shardOf(deviceId, shardCount);
+    }
+
+    private List<String> multiGetHeartbeats(List<String> deviceIds) {
+        List<String> keys = deviceIds.stream().map(this::heartbeatKey).toList();
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        return values == null ? Collections.nCopies(deviceIds.size(), null) : values;
+    }
+
+    private List<List<String>> chunks(Collection<String> deviceIds) {
+        List<String> ordered = new ArrayList<>(deviceIds);
+        List<List<String>> chunks = new ArrayList<>((ordered.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < ordered.size(); from += chunkSize) {
+            chunks.add(ordered.subList(from, Math.min(from + chunkSize, ordered.size())));
+        }
+        return chunks;
+    }
+
+    private static Optional<Instant> parseLastSeen(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Instant.ofEpochMilli(Long.parseLong(value)));
+        } catch (NumberFormatException ignored) {
+            return Optional.empty();
+        }
+    }
+
     private String heartbeatKey(String deviceId) {
         return HEARTBEAT_KEY_PREFIX + deviceId + HEARTBEAT_KEY_SUFFIX;
     }
@@ -0,0 +1,13 @@
+package com.iot.IoT.watchdog.port;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public interface WatchdogShardLeasePort {
+
+    int registerNode(String nodeId, Instant now, Duration leaseTtl);
+
+    boolean acquireOrRenew(int shard, String nodeId, Duration leaseTtl);
+
+    void release(int shard, String nodeId);
+}
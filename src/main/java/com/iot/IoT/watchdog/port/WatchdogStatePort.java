@@ -1,6 +1,8 @@
 package com.iot.IoT.watchdog.port;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -8,9 +10,23 @@ public interface WatchdogStatePort {
 
     Set<String> findTrackedDeviceIds();
 
+    Set<String> findTrackedDeviceIds(int shard);
+
     boolean isHeartbeatAlive(String deviceId);
 
+    Map<String, Boolean> findAliveness(Collection<String> deviceIds);
+
     Optional<Instant> findLastSeen(String deviceId);
 
+    Map<String, Instant> findLastSeenBatch(Collection<String> deviceIds);
+
     boolean markOfflineNotifiedIfAbsent(String deviceId, Instant detectedAt);
+
+    Set<String> markOfflineNotifiedIfAbsent(Collection<String> deviceIds, Instant detectedAt);
+
+    Set<String> findDevicesLastSeenBefore(Instant threshold, int limit);
+
+    Set<String> findDevicesLastSeenBefore(int shard, Instant threshold, int limit);
+
+    void deferExpiredDevices(Collection<String> deviceIds, Instant detectedAt);
 }
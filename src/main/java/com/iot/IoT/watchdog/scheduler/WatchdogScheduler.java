@@ -1,6 +1,7 @@
 package com.iot.IoT.watchdog.scheduler;
 
 import com.iot.IoT.watchdog.service.WatchdogService;
+import com.iot.IoT.watchdog.shard.WatchdogShardCoordinator;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -8,13 +9,20 @@ import org.springframework.stereotype.Component;
 public class WatchdogScheduler {
 
     private final WatchdogService watchdogService;
+    private final WatchdogShardCoordinator watchdogShardCoordinator;
 
-    public WatchdogScheduler(WatchdogService watchdogService) {
+    public WatchdogScheduler(WatchdogService watchdogService, WatchdogShardCoordinator watchdogShardCoordinator) {
         this.watchdogService = watchdogService;
+        this.watchdogShardCoordinator = watchdogShardCoordinator;
     }
 
     @Scheduled(fixedDelayString = "${watchdog.scan-interval-ms:5000}")
     public void scan() {
         watchdogService.scanAndPublishOfflineEvents();
     }
+
+    @Scheduled(fixedDelayString = "${watchdog.sharding.renew-interval-ms:5000}")
+    public void renewShardLeases() {
+        watchdogShardCoordinator.renewLeases();
+    }
 }
@@ -3,43 +3,105 @@ package com.iot.IoT.watchdog.service;
 import com.iot.IoT.watchdog.event.DeviceOfflineEvent;
 import com.iot.IoT.watchdog.port.FailSafeEventPublisher;
 import com.iot.IoT.watchdog.port.WatchdogStatePort;
+import com.iot.IoT.watchdog.shard.WatchdogShardCoordinator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
 public class WatchdogService {
 
     private static final String OFFLINE_REASON = "heartbeat_expired";
+    private static final String WATCHDOG_MODE_DEADLINE_INDEX = "deadline-index";
 
     private final WatchdogStatePort watchdogStatePort;
     private final FailSafeEventPublisher failSafeEventPublisher;
+    private final WatchdogShardCoordinator watchdogShardCoordinator;
+    private final boolean deadlineIndexMode;
+    private final Duration heartbeatTtl;
+    private final int maxExpiredPerScan;
 
     public WatchdogService(
             WatchdogStatePort watchdogStatePort,
-            FailSafeEventPublisher failSafeEventPublisher
+            FailSafeEventPublisher failSafeEventPublisher,
+            WatchdogShardCoordinator watchdogShardCoordinator,
+            @Value("${watchdog.mode:scan}") String watchdogMode,
+            @Value("${ingestion.heartbeat-ttl-seconds:120}") long heartbeatTtlSeconds,
+            @Value("${watchdog.deadline-index.max-per-scan:1000}") int maxExpiredPerScan
     ) {
         this.watchdogStatePort = watchdogStatePort;
         this.failSafeEventPublisher = failSafeEventPublisher;
+        this.watchdogShardCoordinator = watchdogShardCoordinator;
+        this.deadlineIndexMode = WATCHDOG_MODE_DEADLINE_INDEX.equalsIgnoreCase(watchdogMode);
+        this.heartbeatTtl = Duration.ofSeconds(heartbeatTtlSeconds);
+        this.maxExpiredPerScan = Math.max(maxExpiredPerScan, 1);
     }
 
     public void scanAndPublishOfflineEvents() {
         Instant detectedAt = Instant.now();
-        Set<String> trackedDevices = watchdogStatePort.findTrackedDeviceIds();
+        if (!watchdogShardCoordinator.isEnabled()) {
+            if (deadlineIndexMode) {
+                scanDeadlineIndex(watchdogStatePort.findDevicesLastSeenBefore(detectedAt.minus(heartbeatTtl), maxExpiredPerScan), detectedAt);
+            } else {
+                scanTrackedDevices(watchdogStatePort.findTrackedDeviceIds(), detectedAt);
+            }
+            return;
+        }
 
-        for (String deviceId : trackedDevices) {
-            if (watchdogStatePort.isHeartbeatAlive(deviceId)) {
-                continue;
+        // Sharded: only the shards this node currently holds a lease on; the other shards belong to other nodes.
+        for (Integer shard : watchdogShardCoordinator.ownedShards()) {
+            if (deadlineIndexMode) {
+                scanDeadlineIndex(watchdogStatePort.findDevicesLastSeenBefore(shard, detectedAt.minus(heartbeatTtl), maxExpiredPerScan), detectedAt);
+            } else {
+                scanTrackedDevices(watchdogStatePort.findTrackedDeviceIds(shard), detectedAt);
             }
+        }
+    }
+
+    private void scanTrackedDevices(Set<String> trackedDevices, Instant detectedAt) {
+        if (trackedDevices.isEmpty()) {
+            return;
+        }
+
+        Map<String, Boolean> aliveness = watchdogStatePort.findAliveness(trackedDevices);
+        List<String> expiredDevices = trackedDevices.stream()
+                .filter(deviceId -> !Boolean.TRUE.equals(aliveness.get(deviceId)))
+                .toList();
+        publishOfflineEvents(expiredDevices, detectedAt);
+    }
 
-            if (!watchdogStatePort.markOfflineNotifiedIfAbsent(deviceId, detectedAt)) {
+    private void scanDeadlineIndex(Set<String> expiredDevices, Instant detectedAt) {
+        if (expiredDevices.isEmpty()) {
+            return;
+        }
+        publishOfflineEvents(expiredDevices, detectedAt);
+        watchdogStatePort.deferExpiredDevices(expiredDevices, detectedAt);
+    }
+
+    private void publishOfflineEvents(Collection<String> expiredDevices, Instant detectedAt) {
+        if (expiredDevices.isEmpty()) {
+            return;
+        }
+
+        Set<String> newlyNotified = watchdogStatePort.markOfflineNotifiedIfAbsent(expiredDevices, detectedAt);
+        if (newlyNotified.isEmpty()) {
+            return;
+        }
+
+        Map<String, Instant> lastSeen = watchdogStatePort.findLastSeenBatch(newlyNotified);
+        for (String deviceId : expiredDevices) {
+            if (!newlyNotified.contains(deviceId)) {
                 continue;
             }
-
             DeviceOfflineEvent event = new DeviceOfflineEvent(
                     deviceId,
-                    watchdogStatePort.findLastSeen(deviceId).orElse(null),
+                    lastSeen.get(deviceId),
                     detectedAt,
                     OFFLINE_REASON
             );
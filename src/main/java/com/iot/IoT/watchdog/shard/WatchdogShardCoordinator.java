@@ -0,0 +1,104 @@
+package com.iot.IoT.watchdog.shard;
+
+import com.iot.IoT.watchdog.port.WatchdogShardLeasePort;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+@Component
+public class WatchdogShardCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchdogShardCoordinator.class);
+
+    private final WatchdogShardLeasePort watchdogShardLeasePort;
+    private final boolean enabled;
+    private final int shardCount;
+    private final Duration leaseTtl;
+    private final String nodeId;
+    private volatile Set<Integer> ownedShards = Collections.emptySet();
+
+    public WatchdogShardCoordinator(
+            WatchdogShardLeasePort watchdogShardLeasePort,
+            @Value("${watchdog.sharding.enabled:false}") boolean enabled,
+            @Value("${watchdog.sharding.shard-count:16}") int shardCount,
+            @Value("${watchdog.sharding.lease-ttl-ms:15000}") long leaseTtlMs,
+            @Value("${watchdog.sharding.node-id:}") String nodeId
+    ) {
+        this.watchdogShardLeasePort = watchdogShardLeasePort;
+        this.enabled = enabled;
+        this.shardCount = Math.max(shardCount, 1);
+        this.leaseTtl = Duration.ofMillis(Math.max(leaseTtlMs, 1));
+        this.nodeId = nodeId == null || nodeId.isBlank() ? "watchdog-" + UUID.randomUUID() : nodeId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public Set<Integer> ownedShards() {
+        return ownedShards;
+    }
+
+    public void renewLeases() {
+        if (!enabled) {
+            return;
+        }
+
+        int liveNodes = Math.max(watchdogShardLeasePort.registerNode(nodeId, Instant.now(), leaseTtl), 1);
+        int targetShards = (shardCount + liveNodes - 1) / liveNodes;
+        Set<Integer> current = ownedShards;
+        Set<Integer> next = new TreeSet<>();
+
+        // Keep what we already own first so shards do not bounce between nodes; hand back the surplus when nodes join.
+        for (Integer shard : current) {
+            if (next.size() < targetShards && watchdogShardLeasePort.acquireOrRenew(shard, nodeId, leaseTtl)) {
+                next.add(shard);
+            } else if (next.size() >= targetShards) {
+                watchdogShardLeasePort.release(shard, nodeId);
+            }
+        }
+
+        // Start probing at a node-specific offset so concurrently starting nodes spread over different shards.
+        int offset = Math.floorMod(nodeId.hashCode(), shardCount);
+        for (int i = 0; i < shardCount && next.size() < targetShards; i++) {
+            int shard = (offset + i) % shardCount;
+            if (!next.contains(shard) && watchdogShardLeasePort.acquireOrRenew(shard, nodeId, leaseTtl)) {
+                next.add(shard);
+            }
+        }
+
+        ownedShards = Collections.unmodifiableSet(next);
+        if (!next.equals(current)) {
+            log.info("[WATCHDOG] Shard ownership changed. nodeId={}, liveNodes={}, shards={}", nodeId, liveNodes, next);
+        }
+    }
+
+    @PreDestroy
+    public void releaseLeases() {
+        if (!enabled) {
+            return;
+        }
+        Set<Integer> released = ownedShards;
+        ownedShards = Collections.emptySet();
+        for (Integer shard : released) {
+            try {
+                watchdogShardLeasePort.release(shard, nodeId);
+            } catch (RuntimeException ex) {
+                log.warn("[WATCHDOG] Shard lease release failed. nodeId={}, shard={}", nodeId, shard, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.iot.IoT.watchdog.shard;
+
+public final class WatchdogShards {
+
+    private WatchdogShards() {
+    }
+
+    public static int shardOf(String deviceId, int shardCount) {
+        return Math.floorMod(deviceId.hashCode(), shardCount);
+    }
+}
@@ -1,13 +1,22 @@
 package com.iot.IoT.control;
 
 import com.iot.IoT.ingestion.dto.DeviceState;
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.registry.dto.DeviceRegistryEntry;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 
 import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class ControlDecisionEngineTest {
 
@@ -16,9 +25,9 @@ class ControlDecisionEngineTest {
     @Test
     @DisplayName("Should return HEAT_ON when temp is below lower bound")
     void decide_heatOn() {
-        DeviceStatusMessage message = message("60.0", "65.0", DeviceState.HEATING);
+        DeviceTelemetry message = message(60.0, 65.0, DeviceState.HEATING);
 
-        ControlAction result = engine.decide(message);
+        ControlAction result = decide(message);
 
         assertEquals(ControlAction.HEAT_ON, result);
     }
@@ -26,9 +35,9 @@ class ControlDecisionEngineTest {
     @Test
     @DisplayName("Should return HEAT_OFF when temp is above upper bound")
     void decide_heatOff() {
-        DeviceStatusMessage message = message("65.5", "65.0", DeviceState.HEATING);
+        DeviceTelemetry message = message(65.5, 65.0, DeviceState.HEATING);
 
-        ControlAction result = engine.decide(message);
+        ControlAction result = decide(message);
 
         assertEquals(ControlAction.HEAT_OFF, result);
     }
@@ -36,9 +45,9 @@ class ControlDecisionEngineTest {
     @Test
     @DisplayName("Should return HOLD when temp is within deadband")
     void decide_holdInsideDeadband() {
-        DeviceStatusMessage message = message("65.1", "65.0", DeviceState.HOLDING);
+        DeviceTelemetry message = message(65.1, 65.0, DeviceState.HOLDING);
 
-        ControlAction result = engine.decide(message);
+        ControlAction result = decide(message);
 
         assertEquals(ControlAction.HOLD, result);
     }
@@ -46,9 +55,9 @@ class ControlDecisionEngineTest {
     @Test
     @DisplayName("Should return HEAT_OFF when state is OFF")
     void decide_offState() {
-        DeviceStatusMessage message = message("60.0", "65.0", DeviceState.OFF);
+        DeviceTelemetry message = message(60.0, 65.0, DeviceState.OFF);
 
-        ControlAction result = engine.decide(message);
+        ControlAction result = decide(message);
 
         assertEquals(ControlAction.HEAT_OFF, result);
     }
@@ -56,19 +65,61 @@ class ControlDecisionEngineTest {
     @Test
     @DisplayName("Should return HOLD at deadband boundary")
     void decide_deadbandBoundary() {
-        DeviceStatusMessage lowerBoundary = message("64.7", "65.0", DeviceState.HEATING);
-        DeviceStatusMessage upperBoundary = message("65.3", "65.0", DeviceState.HEATING);
+        DeviceTelemetry lowerBoundary = message(64.7, 65.0, DeviceState.HEATING);
+        DeviceTelemetry upperBoundary = message(65.3, 65.0, DeviceState.HEATING);
 
-        assertEquals(ControlAction.HOLD, engine.decide(lowerBoundary));
-        assertEquals(ControlAction.HOLD, engine.decide(upperBoundary));
+        assertEquals(ControlAction.HOLD, decide(lowerBoundary));
+        assertEquals(ControlAction.HOLD, decide(upperBoundary));
     }
 
-    private DeviceStatusMessage message(String temp, String targetTemp, DeviceState state) {
-        return new DeviceStatusMessage(
-                "SV-001",
-                new BigDecimal(temp),
-                state,
-                new BigDecimal(targetTemp)
-        );
+    @Test
+    @DisplayName("Should match BigDecimal boundaries on the primitive path")
+    void decide_primitiveBoundary() {
+        assertEquals(ControlAction.HOLD, engine.decide("SV-001", 64.7, 65.0, DeviceState.HEATING));
+        assertEquals(ControlAction.HOLD, engine.decide("SV-001", 65.3, 65.0, DeviceState.HEATING));
+        assertEquals(ControlAction.HEAT_ON, engine.decide("SV-001", 64.69, 65.0, DeviceState.HEATING));
+        assertEquals(ControlAction.HEAT_OFF, engine.decide("SV-001", 65.31, 65.0, DeviceState.HEATING));
+    }
+
+    @Test
+    @DisplayName("Should use per-device target and hysteresis from control policy")
+    void decide_perDevicePolicy() {
+        DeviceRegistryCache registry = Mockito.mock(DeviceRegistryCache.class);
+        when(registry.find("SV-002")).thenReturn(Optional.of(
+                new DeviceRegistryEntry(2L, "SV-002", true, new BigDecimal("60.00"), new BigDecimal("1.00"))
+        ));
+        ControlDecisionEngine policyEngine = new ControlDecisionEngine(new BigDecimal("0.3"), registry);
+
+        assertEquals(ControlAction.HOLD, policyEngine.decide("SV-002", 59.2, 65.0, DeviceState.HEATING));
+        assertEquals(ControlAction.HEAT_ON, policyEngine.decide("SV-002", 58.9, 65.0, DeviceState.HEATING));
+        assertEquals(ControlAction.HEAT_OFF, policyEngine.decide("SV-002", 61.1, 65.0, DeviceState.HEATING));
+        verify(registry, times(1)).find("SV-002");
+    }
+
+    @Test
+    @DisplayName("Should reload bounds after the registry entry is invalidated")
+    void decide_policyRefreshedOnInvalidation() {
+        DeviceRegistryCache registry = Mockito.mock(DeviceRegistryCache.class);
+        when(registry.find("SV-003"))
+                .thenReturn(Optional.of(new DeviceRegistryEntry(3L, "SV-003", true, null, new BigDecimal("0.50"))))
+                .thenReturn(Optional.of(new DeviceRegistryEntry(3L, "SV-003", true, null, new BigDecimal("2.00"))));
+        ControlDecisionEngine policyEngine = new ControlDecisionEngine(new BigDecimal("0.3"), registry);
+        policyEngine.subscribePolicyChanges();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(registry).addInvalidationListener(listener.capture());
+
+        assertEquals(ControlAction.HEAT_ON, policyEngine.decide("SV-003", 64.0, 65.0, DeviceState.HEATING));
+        listener.getValue().accept("SV-003");
+
+        assertEquals(ControlAction.HOLD, policyEngine.decide("SV-003", 64.0, 65.0, DeviceState.HEATING));
+    }
+
+    private ControlAction decide(DeviceTelemetry message) {
+        return engine.decide(message.deviceId(), message.temp(), message.targetTemp(), message.state());
+    }
+
+    private DeviceTelemetry message(double temp, double targetTemp, DeviceState state) {
+        return new DeviceTelemetry("SV-001", temp, state, targetTemp);
     }
 }
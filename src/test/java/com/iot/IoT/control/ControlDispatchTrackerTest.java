@@ -0,0 +1,93 @@
+package com.iot.IoT.control;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControlDispatchTrackerTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-02T00:00:00Z");
+
+    private final ControlDispatchTracker tracker = new ControlDispatchTracker("edge", 60);
+
+    @Test
+    @DisplayName("Should issue first action and suppress the same action within re-assert interval")
+    void tryIssue_suppressesRepeat() {
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0));
+        assertFalse(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(59)));
+    }
+
+    @Test
+    @DisplayName("Should issue on action transition")
+    void tryIssue_transition() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_OFF, T0.plusSeconds(1)));
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(2)));
+    }
+
+    @Test
+    @DisplayName("Should re-assert the same action once the interval elapses")
+    void tryIssue_reassert() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(60)));
+    }
+
+    @Test
+    @DisplayName("Should not suppress the same action after the last dispatch failed")
+    void tryIssue_afterFailure() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+        tracker.markFailed("SV-001", ControlAction.HEAT_ON);
+
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("Should re-issue after an expired command of the current dispatch but ignore older ones")
+    void tryIssue_afterReliabilityFailure() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+        tracker.markFailed("SV-001", ControlAction.HEAT_ON, T0.minusSeconds(30));
+        assertFalse(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(1)));
+
+        tracker.markFailed("SV-001", ControlAction.HEAT_ON, T0.plusMillis(5));
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(2)));
+    }
+
+    @Test
+    @DisplayName("Should stop re-asserting an acked action until a transition or failure")
+    void tryIssue_afterAck() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+        tracker.markAcked("SV-001", ControlAction.HEAT_ON, T0);
+
+        assertFalse(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(600)));
+
+        tracker.markFailed("SV-001", ControlAction.HEAT_ON);
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(601)));
+
+        tracker.markAcked("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(601));
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_OFF, T0.plusSeconds(602)));
+    }
+
+    @Test
+    @DisplayName("Should ignore an ack for a command older than the current dispatch")
+    void markAcked_ignoresOlderCommand() {
+        tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0);
+        tracker.markAcked("SV-001", ControlAction.HEAT_ON, T0.minusSeconds(30));
+
+        assertTrue(tracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(60)));
+    }
+
+    @Test
+    @DisplayName("Should issue every decision in level mode")
+    void tryIssue_levelMode() {
+        ControlDispatchTracker levelTracker = new ControlDispatchTracker("level", 60);
+
+        assertTrue(levelTracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0));
+        assertTrue(levelTracker.tryIssue("SV-001", ControlAction.HEAT_ON, T0.plusSeconds(1)));
+    }
+}
@@ -7,13 +7,18 @@ import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
+import com.iot.IoT.dto.DeviceStatusPageResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperaturePointResponse;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
+import com.iot.IoT.dto.TemperatureExportFormat;
 import com.iot.IoT.ingestion.dto.DeviceState;
 import com.iot.IoT.service.DeviceService;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import com.iot.IoT.service.exception.DuplicateDeviceException;
+import com.iot.IoT.service.exception.ExportLimitExceededException;
 import com.iot.IoT.service.exception.InvalidDeviceQueryException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -21,21 +26,30 @@ import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class DeviceControllerTest {
@@ -172,6 +186,29 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.latestState").value("HEATING"));
     }
 
+    @Test
+    @DisplayName("GET /devices/status?ids= should return bulk status")
+    void getStatuses_success() throws Exception {
+        DeviceStatusResponse item = new DeviceStatusResponse(
+                2L, "SV-002", "bath-2", true, null, false, null, null, null, null);
+        when(deviceService.getStatuses(List.of(2L, 1L))).thenReturn(new DeviceStatusListResponse(List.of(item)));
+
+        mockMvc.perform(get("/devices/status").param("ids", "2,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].deviceId").value("SV-002"))
+                .andExpect(jsonPath("$.items.length()").value(1));
+    }
+
+    @Test
+    @DisplayName("GET /devices/status should return paged fleet status")
+    void getStatusPage_success() throws Exception {
+        when(deviceService.getStatusPage(0, 100)).thenReturn(new DeviceStatusPageResponse(List.of(), 0, 0, 0, 100));
+
+        mockMvc.perform(get("/devices/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(100));
+    }
+
     @Test
     @DisplayName("GET /devices/{id}/temps should return series")
     void getTemps_success() throws Exception {
@@ -181,6 +218,8 @@ class DeviceControllerTest {
                 Instant.parse("2026-03-02T00:00:00Z"),
                 Instant.parse("2026-03-02T00:10:00Z"),
                 100,
+                null,
+                null,
                 List.of(
                         new DeviceTemperaturePointResponse(
                                 Instant.parse("2026-03-02T00:00:30Z"),
@@ -190,7 +229,7 @@ class DeviceControllerTest {
                         )
                 )
         );
-        when(deviceService.getTemperatures(eq(1L), any(Instant.class), any(Instant.class), eq(100)))
+        when(deviceService.getTemperatures(eq(1L), any(Instant.class), any(Instant.class), eq(100), isNull(), isNull()))
                 .thenReturn(response);
 
         mockMvc.perform(get("/devices/1/temps")
@@ -205,7 +244,7 @@ class DeviceControllerTest {
     @Test
     @DisplayName("GET /devices/{id}/temps should return 400 for invalid query")
     void getTemps_invalidRequest() throws Exception {
-        when(deviceService.getTemperatures(eq(1L), isNull(), isNull(), eq(0)))
+        when(deviceService.getTemperatures(eq(1L), isNull(), isNull(), eq(0), isNull(), isNull()))
                 .thenThrow(new InvalidDeviceQueryException("from must be before or equal to to"));
 
         mockMvc.perform(get("/devices/1/temps"))
@@ -213,6 +252,60 @@ class DeviceControllerTest {
                 .andExpect(jsonPath("$.code").value("INVALID_REQUEST"));
     }
 
+    @Test
+    @DisplayName("GET /devices/{id}/temps/export should stream the export as an attachment")
+    void exportTemps_streams() throws Exception {
+        DeviceTemperatureExport export = new DeviceTemperatureExport(
+                1L,
+                "SV-001",
+                Instant.parse("2026-03-02T00:00:00Z"),
+                Instant.parse("2026-03-02T00:10:00Z"),
+                TemperatureExportFormat.CSV
+        );
+        when(deviceService.prepareTemperatureExport(eq(1L), any(Instant.class), any(Instant.class), eq("csv")))
+                .thenReturn(export);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("occurredAt,temp,targetTemp,state\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(deviceService).exportTemperatures(eq(export), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/devices/1/temps/export")
+                        .param("from", "2026-03-02T00:00:00Z")
+                        .param("to", "2026-03-02T00:10:00Z")
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"SV-001-temps.csv\""))
+                .andExpect(content().string("occurredAt,temp,targetTemp,state\n"));
+    }
+
+    @Test
+    @DisplayName("GET /devices/{id}/temps/export should return 429 when too many exports are running")
+    void exportTemps_limitExceeded() throws Exception {
+        when(deviceService.prepareTemperatureExport(eq(1L), isNull(), isNull(), isNull()))
+                .thenThrow(new ExportLimitExceededException(4));
+
+        mockMvc.perform(get("/devices/1/temps/export"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.code").value("EXPORT_LIMIT_EXCEEDED"));
+        verify(deviceService, never()).exportTemperatures(any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /devices/{id}/temps/export should return 400 for invalid query")
+    void exportTemps_invalidRequest() throws Exception {
+        when(deviceService.prepareTemperatureExport(eq(1L), isNull(), isNull(), eq("xml")))
+                .thenThrow(new InvalidDeviceQueryException("format must be one of ndjson, csv"));
+
+        mockMvc.perform(get("/devices/1/temps/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_REQUEST"));
+    }
+
     @Test
     @DisplayName("GET /devices/{id}/control-policy should return policy")
     void getControlPolicy_success() throws Exception {
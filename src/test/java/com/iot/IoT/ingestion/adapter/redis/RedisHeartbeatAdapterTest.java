@@ -0,0 +1,105 @@
+package com.iot.IoT.ingestion.adapter.redis;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisHeartbeatAdapterTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-02T00:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StringRedisTemplate redisTemplate;
+    private StringRedisConnection connection;
+    private RedisHeartbeatAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = Mockito.mock(StringRedisTemplate.class);
+        connection = Mockito.mock(StringRedisConnection.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            RedisCallback<?> callback = invocation.getArgument(0);
+            callback.doInRedis(connection);
+            return List.of();
+        });
+        adapter = new RedisHeartbeatAdapter(
+                redisTemplate, new IngestionMetricsCollector(meterRegistry), meterRegistry,
+                120, "coalesced", "scan", false, 16);
+    }
+
+    @Test
+    @DisplayName("Should queue heartbeats and flush the newest lastSeen per device with SETEX and one SADD")
+    void flushPending_writesSetexAndSadd() {
+        adapter.updateLastSeen("SV-001", T0.plusSeconds(5));
+        adapter.updateLastSeen("SV-001", T0);
+        adapter.updateLastSeen("SV-002", T0);
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        assertTrue(adapter.isCoalesced());
+
+        adapter.flushPending();
+
+        verify(connection).setEx("device:SV-001:lastSeen", 120, String.valueOf(T0.plusSeconds(5).toEpochMilli()));
+        verify(connection).setEx("device:SV-002:lastSeen", 120, String.valueOf(T0.toEpochMilli()));
+        verify(connection).sAdd("devices:active", "SV-001", "SV-002");
+        assertEquals(2.0, meterRegistry.counter("iot.ingestion.redis.success.total").count());
+    }
+
+    @Test
+    @DisplayName("Should merge a failed chunk back and keep the newer lastSeen queued meanwhile")
+    void flushPending_mergesFailedChunkBack() {
+        adapter.updateLastSeen("SV-001", T0);
+        adapter.updateLastSeen("SV-002", T0.plusSeconds(10));
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new IllegalStateException("redis down"))
+                .thenAnswer(invocation -> {
+                    RedisCallback<?> callback = invocation.getArgument(0);
+                    callback.doInRedis(connection);
+                    return List.of();
+                });
+
+        adapter.flushPending();
+        assertEquals(2.0, meterRegistry.counter("iot.ingestion.redis.failure.total").count());
+
+        adapter.updateLastSeen("SV-001", T0.plusSeconds(3));
+        adapter.updateLastSeen("SV-002", T0.plusSeconds(1));
+        adapter.flushPending();
+
+        verify(connection).setEx("device:SV-001:lastSeen", 120, String.valueOf(T0.plusSeconds(3).toEpochMilli()));
+        verify(connection).setEx("device:SV-002:lastSeen", 120, String.valueOf(T0.plusSeconds(10).toEpochMilli()));
+        verify(connection, times(1)).sAdd(any(String.class), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Should drain pending heartbeats in the @PreDestroy callback")
+    void preDestroy_drainsPending() throws Exception {
+        adapter.updateLastSeen("SV-001", T0);
+
+        Method preDestroy = Arrays.stream(RedisHeartbeatAdapter.class.getMethods())
+                .filter(method -> method.isAnnotationPresent(PreDestroy.class))
+                .findFirst()
+                .orElseThrow();
+        preDestroy.invoke(adapter);
+
+        verify(connection).setEx("device:SV-001:lastSeen", 120, String.valueOf(T0.toEpochMilli()));
+    }
+}
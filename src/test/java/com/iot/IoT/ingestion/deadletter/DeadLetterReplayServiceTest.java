@@ -0,0 +1,88 @@
+package com.iot.IoT.ingestion.deadletter;
+
+import com.iot.IoT.ingestion.exception.InvalidDeadLetterQueryException;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.spool.MappedSegmentLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterReplayServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeadLetterStore store;
+    private MessageChannel channel;
+    private DeadLetterReplayService replayService;
+
+    @BeforeEach
+    void setUp() {
+        IngestionMetricsCollector collector = new IngestionMetricsCollector(meterRegistry);
+        store = new DeadLetterStore(new MappedSegmentLog(directory, 4096, 65536), collector, meterRegistry, 2);
+        channel = Mockito.mock(MessageChannel.class);
+        when(channel.send(any(Message.class))).thenReturn(true);
+        replayService = new DeadLetterReplayService(store, channel, collector, 1_000_000, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        replayService.stop();
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should replay matching entries page by page across scan limits and report the reached cursor")
+    void start_replaysAcrossPages() throws InterruptedException {
+        for (int index = 0; index < 5; index++) {
+            store.store("sousvide/SV-00" + index + "/status", "INVALID_JSON",
+                    ("payload-" + index).getBytes(StandardCharsets.UTF_8), Instant.now());
+        }
+        String tail = store.find(null, null, null, 10).nextCursor();
+
+        DeadLetterReplayService.ReplayStatus started = replayService.start(null, null, null, 100);
+        DeadLetterReplayService.ReplayStatus finished = awaitFinished();
+
+        assertEquals(100, started.requested());
+        assertEquals(5, finished.sent());
+        assertEquals(tail, finished.nextCursor());
+        verify(channel, times(5)).send(any(Message.class));
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid cursor before starting the replay")
+    void start_rejectsInvalidCursor() {
+        assertThrows(InvalidDeadLetterQueryException.class, () -> replayService.start("0-1", null, null, 10));
+        assertFalse(replayService.status().running());
+    }
+
+    private DeadLetterReplayService.ReplayStatus awaitFinished() throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            DeadLetterReplayService.ReplayStatus status = replayService.status();
+            if (!status.running()) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("replay did not finish");
+    }
+}
@@ -0,0 +1,122 @@
+package com.iot.IoT.ingestion.deadletter;
+
+import com.iot.IoT.ingestion.exception.InvalidDeadLetterQueryException;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.spool.MappedSegmentLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadLetterStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeadLetterStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new DeadLetterStore(
+                new MappedSegmentLog(directory, 4096, 65536), new IngestionMetricsCollector(meterRegistry), meterRegistry, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should keep raw bytes, topic, failure type and timestamp of a dead letter")
+    void store_roundTripsRawMessage() {
+        byte[] payload = {'{', 'b', 'a', 'd', (byte) 0xFF};
+        Instant receivedAt = Instant.parse("2026-01-01T00:00:00Z");
+
+        assertTrue(store.store("sousvide/SV-001/status", "INVALID_JSON", payload, receivedAt));
+
+        DeadLetterStore.DeadLetterPage page = store.find(null, null, null, 10);
+        assertEquals(1, page.items().size());
+        DeadLetterStore.DeadLetter deadLetter = page.items().get(0);
+        assertEquals("sousvide/SV-001/status", deadLetter.topic());
+        assertEquals("INVALID_JSON", deadLetter.failureType());
+        assertEquals(receivedAt, deadLetter.receivedAt());
+        assertArrayEquals(payload, deadLetter.payload());
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.dead_letter.stored.total").count());
+    }
+
+    @Test
+    @DisplayName("Should filter by failure type and page with the returned cursor")
+    void find_filtersAndPages() {
+        for (int index = 0; index < 5; index++) {
+            store.store("sousvide/SV-00" + index + "/status", index % 2 == 0 ? "INVALID_JSON" : "VALIDATION_FAILED",
+                    bytes("payload-" + index), Instant.now());
+        }
+
+        DeadLetterStore.DeadLetterPage first = store.find(null, null, "invalid_json", 2);
+        assertEquals(List.of("payload-0", "payload-2"), texts(first));
+
+        DeadLetterStore.DeadLetterPage second = store.find(first.nextCursor(), null, "INVALID_JSON", 2);
+        assertEquals(List.of("payload-4"), texts(second));
+
+        DeadLetterStore.DeadLetterPage byTopic = store.find(null, "sousvide/SV-003/status", null, 10);
+        assertEquals(List.of("payload-3"), texts(byTopic));
+    }
+
+    @Test
+    @DisplayName("Should stop a sparse filtered scan at max-scan-records and continue from the returned cursor")
+    void find_boundsScanPerRequest() {
+        for (int index = 0; index < 5; index++) {
+            store.store("sousvide/SV-00" + index + "/status", index == 4 ? "PROCESSING_FAILED" : "INVALID_JSON",
+                    bytes("payload-" + index), Instant.now());
+        }
+
+        DeadLetterStore.DeadLetterPage first = store.find(null, null, "PROCESSING_FAILED", 10);
+        assertTrue(first.items().isEmpty());
+
+        DeadLetterStore.DeadLetterPage second = store.find(first.nextCursor(), null, "PROCESSING_FAILED", 10);
+        assertEquals(List.of("payload-4"), texts(second));
+        assertEquals(second.nextCursor(), store.find(second.nextCursor(), null, null, 10).nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed cursor")
+    void find_rejectsMalformedCursor() {
+        assertThrows(InvalidDeadLetterQueryException.class, () -> store.find("not-a-cursor", null, null, 10));
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor that does not point at a record boundary")
+    void find_rejectsForgedCursor() {
+        store.store("sousvide/SV-001/status", "INVALID_JSON", bytes("payload"), Instant.now());
+        String tail = store.find(null, null, null, 10).nextCursor();
+
+        assertThrows(InvalidDeadLetterQueryException.class, () -> store.find("0--5", null, null, 10));
+        assertThrows(InvalidDeadLetterQueryException.class, () -> store.find("0-1", null, null, 10));
+        assertThrows(InvalidDeadLetterQueryException.class, () -> store.find("0-4000", null, null, 10));
+        assertThrows(InvalidDeadLetterQueryException.class, () -> store.find("7-0", null, null, 10));
+        assertTrue(store.find(tail, null, null, 10).items().isEmpty());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(DeadLetterStore.DeadLetterPage page) {
+        return page.items().stream()
+                .map(item -> new String(item.payload(), StandardCharsets.UTF_8))
+                .toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.iot.IoT.ingestion.dedup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryDeduplicatorTest {
+
+    private static final byte[] PAYLOAD =
+            "{\"deviceId\":\"SV-001\",\"temp\":60.5,\"targetTemp\":65.0,\"state\":\"HEATING\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OTHER_PAYLOAD =
+            "{\"deviceId\":\"SV-001\",\"temp\":60.6,\"targetTemp\":65.0,\"state\":\"HEATING\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final TelemetryDeduplicator deduplicator = new TelemetryDeduplicator(2);
+
+    @Test
+    @DisplayName("Should suppress identical payload from same device within window")
+    void isDuplicate_sameDeviceSamePayloadWithinWindow() {
+        assertFalse(deduplicator.isDuplicate("SV-001", PAYLOAD, 1_000));
+        assertTrue(deduplicator.isDuplicate("SV-001", PAYLOAD, 2_500));
+    }
+
+    @Test
+    @DisplayName("Should accept identical payload after window elapses")
+    void isDuplicate_afterWindow() {
+        assertFalse(deduplicator.isDuplicate("SV-001", PAYLOAD, 1_000));
+        assertFalse(deduplicator.isDuplicate("SV-001", PAYLOAD, 3_000));
+    }
+
+    @Test
+    @DisplayName("Should accept changed payload and payloads from other devices")
+    void isDuplicate_differentPayloadOrDevice() {
+        assertFalse(deduplicator.isDuplicate("SV-001", PAYLOAD, 1_000));
+        assertFalse(deduplicator.isDuplicate("SV-001", OTHER_PAYLOAD, 1_100));
+        assertFalse(deduplicator.isDuplicate("SV-002", OTHER_PAYLOAD, 1_200));
+    }
+
+    @Test
+    @DisplayName("Should evict stale device slots on periodic sweep")
+    void isDuplicate_sweepsStaleSlots() {
+        deduplicator.isDuplicate("SV-001", PAYLOAD, 1_000);
+        deduplicator.isDuplicate("SV-002", PAYLOAD, 1_000);
+
+        deduplicator.isDuplicate("SV-003", PAYLOAD, 10_000);
+
+        assertEquals(1, deduplicator.trackedDeviceCount());
+    }
+}
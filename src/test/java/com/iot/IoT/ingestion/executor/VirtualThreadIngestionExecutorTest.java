@@ -0,0 +1,57 @@
+package com.iot.IoT.ingestion.executor;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadIngestionExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualThreadIngestionExecutor executor =
+            new VirtualThreadIngestionExecutor(2, new IngestionMetricsCollector(meterRegistry), meterRegistry);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should run tasks on virtual threads without exceeding the concurrency limit")
+    void execute_respectsConcurrencyLimit() throws InterruptedException {
+        int taskCount = 20;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger virtualTasks = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(taskCount);
+
+        for (int index = 0; index < taskCount; index++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                if (Thread.currentThread().isVirtual()) {
+                    virtualTasks.incrementAndGet();
+                }
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(peak.get() <= 2);
+        assertEquals(taskCount, virtualTasks.get());
+        assertTrue(meterRegistry.counter("iot.ingestion.virtual.permit.waited.total").count() > 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.iot.IoT.ingestion.inbound;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class HiveMqSharedSubscriptionInboundTest {
+
+    private static final String TOPIC = "sousvide/+/status";
+
+    @Test
+    @DisplayName("Should subscribe with a $share/<group>/ filter and keep the requested connection count")
+    void sharedGroup_usesSharedFilter() {
+        assertEquals("$share/ingestion/" + TOPIC, HiveMqSharedSubscriptionInbound.topicFilter(TOPIC, "ingestion"));
+        assertEquals(3, HiveMqSharedSubscriptionInbound.connectionCount("ingestion", 3));
+        assertEquals(1, HiveMqSharedSubscriptionInbound.connectionCount("ingestion", 0));
+    }
+
+    @Test
+    @DisplayName("Should fall back to a single plain subscription when no shared group is configured")
+    void blankSharedGroup_singlePlainSubscription() {
+        assertEquals(TOPIC, HiveMqSharedSubscriptionInbound.topicFilter(TOPIC, ""));
+        assertEquals(1, HiveMqSharedSubscriptionInbound.connectionCount(" ", 4));
+    }
+
+    @Test
+    @DisplayName("Should assign distinct client identifiers per node and per connection")
+    void clientIdentifiers_distinct() {
+        String nodeA = HiveMqSharedSubscriptionInbound.clientIdPrefix("iot-backend");
+        String nodeB = HiveMqSharedSubscriptionInbound.clientIdPrefix("iot-backend");
+
+        Set<String> identifiers = IntStream.range(0, 4)
+                .boxed()
+                .flatMap(index -> Set.of(
+                        HiveMqSharedSubscriptionInbound.clientIdentifier(nodeA, index),
+                        HiveMqSharedSubscriptionInbound.clientIdentifier(nodeB, index)).stream())
+                .collect(Collectors.toSet());
+
+        assertNotEquals(nodeA, nodeB);
+        assertTrue(nodeA.startsWith("iot-backend-"));
+        assertEquals(nodeA + "-2", HiveMqSharedSubscriptionInbound.clientIdentifier(nodeA, 2));
+        assertEquals(8, identifiers.size());
+    }
+
+    @Test
+    @DisplayName("Should run publish callbacks on a dedicated daemon thread per connection")
+    void callbackExecutor_dedicatedThread() throws Exception {
+        ExecutorService executor = HiveMqSharedSubscriptionInbound.callbackExecutor(2);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertEquals("hivemq-inbound-2", thread.getName());
+            assertTrue(thread.isDaemon());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should count every handoff failure without throwing back into the client thread")
+    void handoff_countsFailures() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IngestionMetricsCollector collector = new IngestionMetricsCollector(meterRegistry);
+        MessageChannel channel = Mockito.mock(MessageChannel.class);
+        when(channel.send(any(Message.class))).thenThrow(new IllegalStateException("queue full"));
+        HiveMqSharedSubscriptionInbound inbound = new HiveMqSharedSubscriptionInbound(
+                channel, collector, meterRegistry, "tcp://localhost:1883", "iot-backend", "", "", TOPIC, "ingestion", 2);
+        Counter received = collector.registerInboundConnectionMetrics("hivemq", 0, channel, candidate -> 1, meterRegistry);
+        Counter failures = collector.registerInboundHandoffFailureCounter("hivemq", 0, meterRegistry);
+        Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("sousvide/SV-001/status")
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .payload("{}".getBytes(StandardCharsets.UTF_8))
+                .build();
+
+        for (int index = 0; index < 5; index++) {
+            inbound.handoff(publish, 0, received, failures);
+        }
+
+        assertEquals(5.0, received.count());
+        assertEquals(5.0, meterRegistry.counter("iot.ingestion.inbound.handoff.failure.total",
+                "client", "hivemq", "connection", "0").count());
+    }
+}
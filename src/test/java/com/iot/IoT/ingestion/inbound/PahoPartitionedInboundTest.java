@@ -0,0 +1,77 @@
+package com.iot.IoT.ingestion.inbound;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class PahoPartitionedInboundTest {
+
+    private static final String TOPIC = "sousvide/+/status";
+
+    @Test
+    @DisplayName("Should spread topic partitions round-robin across connections")
+    void assignFilters_partitions() {
+        List<String[]> assigned = PahoPartitionedInbound.assignFilters(
+                TOPIC, "", 2, new String[]{"sousvide/a/+/status", " sousvide/b/+/status", "sousvide/c/+/status"});
+
+        assertEquals(2, assigned.size());
+        assertArrayEquals(new String[]{"sousvide/a/+/status", "sousvide/c/+/status"}, assigned.get(0));
+        assertArrayEquals(new String[]{"sousvide/b/+/status"}, assigned.get(1));
+    }
+
+    @Test
+    @DisplayName("Should use a shared subscription per connection when no partitions are configured")
+    void assignFilters_sharedGroup() {
+        List<String[]> assigned = PahoPartitionedInbound.assignFilters(TOPIC, "ingestion", 3, new String[0]);
+
+        assertEquals(3, assigned.size());
+        assigned.forEach(filters -> assertArrayEquals(new String[]{"$share/ingestion/" + TOPIC}, filters));
+    }
+
+    @Test
+    @DisplayName("Should fall back to a single plain subscription to avoid duplicate delivery")
+    void assignFilters_singleConnectionFallback() {
+        List<String[]> assigned = PahoPartitionedInbound.assignFilters(TOPIC, "", 4, new String[0]);
+
+        assertEquals(1, assigned.size());
+        assertArrayEquals(new String[]{TOPIC}, assigned.get(0));
+    }
+
+    @Test
+    @DisplayName("Should count every handoff failure without throwing back into the callback thread")
+    void handoff_countsFailures() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IngestionMetricsCollector collector = new IngestionMetricsCollector(meterRegistry);
+        MessageChannel channel = Mockito.mock(MessageChannel.class);
+        when(channel.send(any(Message.class))).thenThrow(new IllegalStateException("queue full"));
+        PahoPartitionedInbound inbound = new PahoPartitionedInbound(
+                channel, Mockito.mock(MqttPahoClientFactory.class), collector, meterRegistry,
+                "tcp://localhost:1883", "iot-backend", TOPIC, "ingestion", 2, new String[0]);
+        Counter received = collector.registerInboundConnectionMetrics("paho", 0, channel, candidate -> 1, meterRegistry);
+        Counter failures = collector.registerInboundHandoffFailureCounter("paho", 0, meterRegistry);
+        MqttMessage message = new MqttMessage("{}".getBytes(StandardCharsets.UTF_8));
+
+        for (int index = 0; index < 5; index++) {
+            inbound.handoff("sousvide/SV-001/status", message, 0, received, failures);
+        }
+
+        assertEquals(5.0, received.count());
+        assertEquals(5.0, meterRegistry.counter("iot.ingestion.inbound.handoff.failure.total",
+                "client", "paho", "connection", "0").count());
+    }
+}
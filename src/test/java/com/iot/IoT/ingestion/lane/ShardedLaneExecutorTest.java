@@ -0,0 +1,100 @@
+package com.iot.IoT.ingestion.lane;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.dispatcher.MessageHandlingRunnable;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedLaneExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShardedLaneExecutor executor = new ShardedLaneExecutor(
+            4, 16, new IngestionMetricsCollector(meterRegistry), meterRegistry, throwable -> {
+            });
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should process messages of the same device in order on a single lane thread")
+    void execute_preservesPerDeviceOrder() throws InterruptedException {
+        int messageCount = 200;
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(messageCount);
+
+        for (int sequence = 0; sequence < messageCount; sequence++) {
+            int value = sequence;
+            executor.execute(task("sousvide/SV-001/status", () -> {
+                processed.add(value);
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            }));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int sequence = 0; sequence < messageCount; sequence++) {
+            expected.add(sequence);
+        }
+        assertEquals(expected, processed);
+        assertEquals(1, threads.size());
+    }
+
+    @Test
+    @DisplayName("Should map a topic to a stable lane and export per-lane metrics")
+    void laneOf_isStablePerTopic() {
+        int lane = executor.laneOf(task("sousvide/SV-001/status", () -> {
+        }));
+
+        assertEquals(lane, executor.laneOf(task("sousvide/SV-001/status", () -> {
+        })));
+        for (int index = 0; index < executor.laneCount(); index++) {
+            assertNotNull(meterRegistry.find("iot.ingestion.lane.depth").tag("lane", String.valueOf(index)).gauge());
+            assertNotNull(meterRegistry.find("iot.ingestion.lane.wait").tag("lane", String.valueOf(index)).timer());
+        }
+    }
+
+    private MessageHandlingRunnable task(String topic, Runnable body) {
+        Message<String> message = MessageBuilder.withPayload("{}")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, topic)
+                .build();
+        MessageHandler handler = ignored -> body.run();
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return handler;
+            }
+
+            @Override
+            public void run() {
+                handler.handleMessage(message);
+            }
+        };
+    }
+}
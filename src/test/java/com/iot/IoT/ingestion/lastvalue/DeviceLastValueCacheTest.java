@@ -0,0 +1,71 @@
+package com.iot.IoT.ingestion.lastvalue;
+
+import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.DeviceLastValueMirrorPort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class DeviceLastValueCacheTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeviceLastValueMirrorPort mirror;
+    private DeviceLastValueCache cache;
+
+    @BeforeEach
+    void setUp() {
+        mirror = Mockito.mock(DeviceLastValueMirrorPort.class);
+        cache = new DeviceLastValueCache(
+                Optional.of(mirror), new IngestionMetricsCollector(meterRegistry), meterRegistry, 1000);
+    }
+
+    @Test
+    @DisplayName("Should serve the mirror value when another node received a newer reading")
+    void find_prefersNewerMirrorValue() {
+        cache.update(message(60.0), NOW);
+        DeviceTemperaturePointResponse newer = point("61.0", NOW.plusSeconds(5));
+        when(mirror.find("SV-001")).thenReturn(Optional.of(newer));
+
+        assertEquals(newer, cache.find("SV-001").orElseThrow());
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", "mirror").count());
+    }
+
+    @Test
+    @DisplayName("Should keep the local value when the mirror lags behind")
+    void findAll_keepsNewerLocalValue() {
+        cache.update(message(60.0), NOW);
+        when(mirror.findAll(any())).thenReturn(Map.of("SV-001", point("59.0", NOW.minusSeconds(5))));
+
+        Map<String, DeviceTemperaturePointResponse> found = cache.findAll(List.of("SV-001", "SV-404"));
+
+        assertEquals(1, found.size());
+        assertEquals(new BigDecimal("60.0"), found.get("SV-001").temp());
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.last_value.lookup.total", "result", "miss").count());
+    }
+
+    private static DeviceTelemetry message(double temp) {
+        return new DeviceTelemetry("SV-001", temp, DeviceState.HEATING, 65.0);
+    }
+
+    private static DeviceTemperaturePointResponse point(String temp, Instant occurredAt) {
+        return new DeviceTemperaturePointResponse(occurredAt, new BigDecimal(temp), new BigDecimal("65.0"), DeviceState.HEATING);
+    }
+}
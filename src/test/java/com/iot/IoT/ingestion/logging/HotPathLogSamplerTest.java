@@ -0,0 +1,90 @@
+package com.iot.IoT.ingestion.logging;
+
+import com.iot.IoT.ingestion.exception.HotLogDebugDeviceLimitException;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotPathLogSamplerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should cap emitted lines per second and report the suppressed count on the next emitted line")
+    void admit_rateLimitsAndReportsSuppressed() throws InterruptedException {
+        HotPathLogSampler sampler = sampler(true, 1.0, 10, new String[0]);
+
+        int emitted = 0;
+        for (int index = 0; index < 100; index++) {
+            if (sampler.admit(HotPathLogSampler.Category.PARSED, "SV-001") != HotPathLogSampler.SUPPRESSED) {
+                emitted++;
+            }
+        }
+
+        assertTrue(emitted <= 11);
+        assertEquals(100 - emitted, suppressedCount("parsed"));
+        Thread.sleep(200);
+        assertEquals(100 - emitted, sampler.admit(HotPathLogSampler.Category.PARSED, "SV-001"));
+    }
+
+    @Test
+    @DisplayName("Should apply sampling per category")
+    void admit_samplesPerCategory() {
+        HotPathLogSampler sampler = sampler(true, 0.0, 1_000_000, new String[0]);
+
+        for (int index = 0; index < 50; index++) {
+            assertEquals(HotPathLogSampler.SUPPRESSED, sampler.admit(HotPathLogSampler.Category.PARSED, "SV-001"));
+            assertTrue(sampler.admit(HotPathLogSampler.Category.CONTROL_DECISION, "SV-001") >= 0);
+        }
+        assertEquals(50.0, suppressedCount("parsed"));
+        assertEquals(0.0, suppressedCount("control_decision"));
+    }
+
+    @Test
+    @DisplayName("Should always emit lines for debug devices and everything when disabled")
+    void admit_debugDeviceAndDisabledBypassLimits() {
+        HotPathLogSampler sampler = sampler(true, 0.0, 1, new String[]{" SV-042 "});
+        HotPathLogSampler disabled = sampler(false, 0.0, 1, new String[0]);
+
+        for (int index = 0; index < 20; index++) {
+            assertTrue(sampler.admit(HotPathLogSampler.Category.PARSED, "SV-042") >= 0);
+            assertTrue(disabled.admit(HotPathLogSampler.Category.PARSED, "SV-001") >= 0);
+        }
+        assertEquals(HotPathLogSampler.SUPPRESSED, sampler.admit(HotPathLogSampler.Category.PARSED, "SV-001"));
+    }
+
+    @Test
+    @DisplayName("Should reject debug devices beyond the configured maximum")
+    void addDebugDevice_rejectsBeyondMax() {
+        HotPathLogSampler sampler = sampler(true, 1.0, 100, new String[]{"SV-001", "SV-002"});
+
+        sampler.addDebugDevice("SV-002");
+        assertThrows(HotLogDebugDeviceLimitException.class, () -> sampler.addDebugDevice("SV-003"));
+        sampler.removeDebugDevice("SV-001");
+        sampler.addDebugDevice("SV-003");
+
+        assertEquals(2, sampler.debugDevices().size());
+        assertTrue(sampler.debugDevices().contains("SV-003"));
+    }
+
+    private HotPathLogSampler sampler(boolean enabled, double parsedSampleRate, double maxLinesPerSecond, String[] debugDevices) {
+        return new HotPathLogSampler(
+                new IngestionMetricsCollector(meterRegistry),
+                meterRegistry,
+                enabled,
+                parsedSampleRate,
+                1.0,
+                maxLinesPerSecond,
+                debugDevices,
+                2);
+    }
+
+    private double suppressedCount(String category) {
+        return meterRegistry.counter("iot.ingestion.log.suppressed.total", "category", category).count();
+    }
+}
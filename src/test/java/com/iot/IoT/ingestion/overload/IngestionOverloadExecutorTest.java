@@ -0,0 +1,137 @@
+package com.iot.IoT.ingestion.overload;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.dispatcher.MessageHandlingRunnable;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IngestionOverloadExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IngestionMetricsCollector metrics = new IngestionMetricsCollector(meterRegistry);
+    private final List<Runnable> workerQueue = new ArrayList<>();
+    private final List<Runnable> priorityQueue = new ArrayList<>();
+    private final List<String> handled = new ArrayList<>();
+
+    @Test
+    @DisplayName("drop-oldest-per-device should keep only the newest pending reading per device")
+    void dropOldest_keepsLatestPerDevice() {
+        IngestionOverloadExecutor executor = executor(IngestionOverloadExecutor.POLICY_DROP_OLDEST_PER_DEVICE);
+
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a1"));
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a2"));
+        executor.execute(task("sousvide/SV-002/status", "HEATING", "b1"));
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a3"));
+
+        assertEquals(2, workerQueue.size());
+        workerQueue.forEach(Runnable::run);
+        assertEquals(List.of("a3", "b1"), handled);
+        assertEquals(2.0, meterRegistry.counter("iot.ingestion.overload.superseded.total").count());
+    }
+
+    @Test
+    @DisplayName("caller-runs should process the message on the calling thread when the worker queue is full")
+    void callerRuns_runsInlineOnRejection() {
+        IngestionOverloadExecutor executor = new IngestionOverloadExecutor(
+                IngestionOverloadExecutor.POLICY_CALLER_RUNS,
+                task -> {
+                    throw new RejectedExecutionException("full");
+                },
+                priorityQueue::add,
+                metrics,
+                meterRegistry,
+                throwable -> {
+                });
+
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a1"));
+
+        assertEquals(List.of("a1"), handled);
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.overload.caller_runs.total").count());
+    }
+
+    @Test
+    @DisplayName("priority-lane should route state changes ahead of pending readings and drop the stale reading")
+    void priorityLane_routesStateChange() {
+        IngestionOverloadExecutor executor = executor(IngestionOverloadExecutor.POLICY_PRIORITY_LANE);
+
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a1"));
+        workerQueue.remove(0).run();
+        executor.execute(task("sousvide/SV-001/status", "HEATING", "a2"));
+        executor.execute(task("sousvide/SV-001/status", "HOLDING", "a3"));
+
+        assertEquals(1, priorityQueue.size());
+        priorityQueue.forEach(Runnable::run);
+        workerQueue.forEach(Runnable::run);
+        assertEquals(List.of("a1", "a3"), handled);
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.overload.priority.total").count());
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.overload.superseded.total").count());
+    }
+
+    @Test
+    @DisplayName("Should fail on an unknown policy instead of acting as reject")
+    void unknownPolicy_fails() {
+        assertThrows(IllegalArgumentException.class, () -> IngestionOverloadExecutor.requireKnownPolicy("drop-oldest"));
+        assertThrows(IllegalArgumentException.class, () -> executor("rejects"));
+        IngestionOverloadExecutor.requireKnownPolicy("Caller-Runs");
+    }
+
+    @Test
+    @DisplayName("priority-lane should require a priority executor")
+    void priorityLane_requiresPriorityExecutor() {
+        assertThrows(IllegalArgumentException.class, () -> new IngestionOverloadExecutor(
+                IngestionOverloadExecutor.POLICY_PRIORITY_LANE, workerQueue::add, null, metrics, meterRegistry, throwable -> {
+        }));
+    }
+
+    @Test
+    @DisplayName("extractState should read the state value without full parsing")
+    void extractState() {
+        assertEquals("HOLDING", IngestionOverloadExecutor.extractState(
+                "{\"deviceId\":\"SV-001\", \"state\" : \"HOLDING\"}".getBytes(StandardCharsets.UTF_8)));
+        assertNull(IngestionOverloadExecutor.extractState(
+                "{\"deviceId\":\"SV-001\",\"state\":null}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private IngestionOverloadExecutor executor(String policy) {
+        return new IngestionOverloadExecutor(policy, workerQueue::add, priorityQueue::add, metrics, meterRegistry, throwable -> {
+        });
+    }
+
+    private MessageHandlingRunnable task(String topic, String state, String label) {
+        byte[] payload = ("{\"deviceId\":\"x\",\"state\":\"" + state + "\"}").getBytes(StandardCharsets.UTF_8);
+        Message<byte[]> message = MessageBuilder.withPayload(payload)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, topic)
+                .build();
+        MessageHandler handler = ignored -> handled.add(label);
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return handler;
+            }
+
+            @Override
+            public void run() {
+                handler.handleMessage(message);
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.iot.IoT.ingestion.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.exception.InvalidMqttPayloadException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingDeviceStatusParserTest {
+
+    private final StreamingDeviceStatusParser parser = new StreamingDeviceStatusParser();
+    private final MqttPayloadParser databindParser = new MqttPayloadParser(
+            new ObjectMapper(),
+            Validation.buildDefaultValidatorFactory().getValidator()
+    );
+
+    @Test
+    @DisplayName("Valid JSON payload should map to primitive telemetry")
+    void parseDeviceStatus_success() {
+        DeviceTelemetry result = parser.parseDeviceStatus(
+                bytes("{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":70.0,\"state\":\"HEATING\"}"));
+
+        assertEquals("SV-001", result.deviceId());
+        assertEquals(65.5, result.temp());
+        assertEquals(70.0, result.targetTemp());
+        assertEquals(DeviceState.HEATING, result.state());
+    }
+
+    @Test
+    @DisplayName("Streaming result should match databind parser values")
+    void parseDeviceStatus_parityWithDatabind() {
+        String payload = "{\"state\":\"HOLDING\",\"targetTemp\":\"63.25\",\"deviceId\":\"SV-042\",\"temp\":62}";
+
+        DeviceTelemetry expected = databindParser.parseTelemetry(bytes(payload));
+        DeviceTelemetry actual = parser.parseDeviceStatus(bytes(payload));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Numeric state should map by enum ordinal like databind parser")
+    void parseDeviceStatus_stateOrdinal() {
+        String payload = "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":70.0,\"state\":1}";
+
+        DeviceTelemetry expected = databindParser.parseTelemetry(bytes(payload));
+        DeviceTelemetry actual = parser.parseDeviceStatus(bytes(payload));
+
+        assertEquals(DeviceState.HOLDING, actual.state());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Decimal scale is not preserved in either parser mode")
+    void parseDeviceStatus_scaleNotPreserved() {
+        String payload = "{\"deviceId\":\"SV-001\",\"temp\":60.50,\"targetTemp\":\"70.00\",\"state\":\"HEATING\"}";
+
+        DeviceTelemetry actual = parser.parseDeviceStatus(bytes(payload));
+
+        assertEquals(databindParser.parseTelemetry(bytes(payload)), actual);
+        assertEquals("60.5", BigDecimal.valueOf(actual.temp()).toPlainString());
+        assertEquals("70.0", BigDecimal.valueOf(actual.targetTemp()).toPlainString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\" \",\"temp\":65.5,\"targetTemp\":70.0,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":null,\"targetTemp\":70.0,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":1e400,\"targetTemp\":70.0,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":-1e400,\"state\":\"HEATING\"}"
+    })
+    @DisplayName("Missing or blank required field should fail validation like databind parser")
+    void parseDeviceStatus_validationFailed(String payload) {
+        assertFailureType(payload, InvalidMqttPayloadException.FailureType.VALIDATION_FAILED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":70.0,\"state\":\"RUNNING\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":70.0,\"state\":3}",
+            "{\"deviceId\":\"SV-001\",\"temp\":\"hot\",\"targetTemp\":70.0,\"state\":\"HEATING\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":65.5,\"targetTemp\":70.0,\"state\":\"HEATING\",\"foo\":\"bar\"}",
+            "{\"deviceId\":\"SV-001\",\"temp\":{\"v\":1},\"targetTemp\":70.0,\"state\":\"HEATING\"}",
+            "[1,2,3]",
+            "{\"deviceId\":\"SV-001\",",
+            ""
+    })
+    @DisplayName("Malformed or unexpected JSON should fail parsing like databind parser")
+    void parseDeviceStatus_invalidJson(String payload) {
+        assertFailureType(payload, InvalidMqttPayloadException.FailureType.INVALID_JSON);
+    }
+
+    private void assertFailureType(String payload, InvalidMqttPayloadException.FailureType expected) {
+        InvalidMqttPayloadException streaming =
+                assertThrows(InvalidMqttPayloadException.class, () -> parser.parseDeviceStatus(bytes(payload)));
+        InvalidMqttPayloadException databind =
+                assertThrows(InvalidMqttPayloadException.class, () -> databindParser.parseTelemetry(bytes(payload)));
+
+        assertEquals(expected, streaming.failureType());
+        assertEquals(databind.failureType(), streaming.failureType());
+    }
+
+    private static byte[] bytes(String payload) {
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package com.iot.IoT.ingestion.rollup;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupTierRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should pick the coarsest tier that divides the window and covers the range")
+    void select_prefersCoarsestCoveringTier() {
+        RollupTierRegistry registry = registry(true);
+        Instant now = Instant.now();
+        RollupTier minute = registry.tiers().get(0);
+        RollupTier hour = registry.tiers().get(1);
+        registry.updateCoverage(minute, new RollupTierRegistry.Coverage(now.minus(Duration.ofDays(30)), now.minusSeconds(60)));
+        registry.updateCoverage(hour, new RollupTierRegistry.Coverage(now.minus(Duration.ofDays(30)), now.minus(Duration.ofMinutes(70))));
+
+        assertEquals(Optional.of(hour), registry.select(now.minus(Duration.ofDays(7)), now, Duration.ofHours(2)));
+        assertEquals(Optional.of(minute), registry.select(now.minus(Duration.ofDays(1)), now, Duration.ofMinutes(5)));
+        assertEquals(Optional.of(minute), registry.select(now.minus(Duration.ofDays(1)), now, Duration.ofMinutes(60)));
+        assertEquals(1.0, queryCount("1h"));
+        assertEquals(2.0, queryCount("1m"));
+    }
+
+    @Test
+    @DisplayName("Should fall back to raw when no tier covers the range or window")
+    void select_fallsBackToRaw() {
+        RollupTierRegistry registry = registry(true);
+        Instant now = Instant.now();
+        RollupTier minute = registry.tiers().get(0);
+        registry.updateCoverage(minute, new RollupTierRegistry.Coverage(now.minus(Duration.ofDays(1)), now.minusSeconds(60)));
+
+        assertEquals(Optional.empty(), registry.select(now.minus(Duration.ofHours(1)), now, Duration.ofSeconds(18)));
+        assertEquals(Optional.empty(), registry.select(now.minus(Duration.ofHours(1)), now, Duration.ofSeconds(90)));
+        assertEquals(Optional.empty(), registry.select(now.minus(Duration.ofDays(2)), now, Duration.ofMinutes(10)));
+        assertEquals(Optional.empty(), registry(false).select(now.minus(Duration.ofHours(1)), now, Duration.ofMinutes(1)));
+        assertEquals(4.0, queryCount(RollupTierRegistry.RAW));
+    }
+
+    @Test
+    @DisplayName("Should report whether a tier can serve a window without counting a query")
+    void canServe_doesNotCountQueries() {
+        RollupTierRegistry registry = registry(true);
+        Instant now = Instant.now();
+        RollupTier minute = registry.tiers().get(0);
+        registry.updateCoverage(minute, new RollupTierRegistry.Coverage(now.minus(Duration.ofDays(1)), now.minusSeconds(60)));
+
+        assertTrue(registry.canServe(now.minus(Duration.ofHours(1)), now, Duration.ofMinutes(5)));
+        assertFalse(registry.canServe(now.minus(Duration.ofHours(1)), now, Duration.ofSeconds(90)));
+        assertFalse(registry(false).canServe(now.minus(Duration.ofHours(1)), now, Duration.ofMinutes(5)));
+        assertEquals(0.0, queryCount("1m"));
+        assertEquals(0.0, queryCount(RollupTierRegistry.RAW));
+    }
+
+    private RollupTierRegistry registry(boolean enabled) {
+        return new RollupTierRegistry(
+                new IngestionMetricsCollector(meterRegistry),
+                meterRegistry,
+                enabled,
+                "bucket_1m",
+                180,
+                "bucket_1h",
+                0);
+    }
+
+    private double queryCount(String tier) {
+        return meterRegistry.counter("iot.ingestion.rollup.query.total", "tier", tier).count();
+    }
+}
@@ -0,0 +1,106 @@
+package com.iot.IoT.ingestion.rollup;
+
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.TemperatureRollupPort;
+import com.iot.IoT.ingestion.port.TemperatureSpoolPort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TemperatureRollupJobTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TemperatureRollupPort temperatureRollupPort;
+    private TemperatureSpoolPort temperatureSpoolPort;
+    private RollupTierRegistry registry;
+    private TemperatureRollupJob job;
+
+    @BeforeEach
+    void setUp() {
+        IngestionMetricsCollector collector = new IngestionMetricsCollector(meterRegistry);
+        temperatureRollupPort = Mockito.mock(TemperatureRollupPort.class);
+        temperatureSpoolPort = Mockito.mock(TemperatureSpoolPort.class);
+        registry = new RollupTierRegistry(collector, meterRegistry, true, "bucket_1m", 180, "bucket_1h", 0);
+        job = new TemperatureRollupJob(
+                temperatureRollupPort, registry, Optional.of(temperatureSpoolPort), collector, meterRegistry, 60, 1, 1440);
+        when(temperatureRollupPort.findLastPointTime(any())).thenReturn(Optional.empty());
+        when(temperatureSpoolPort.oldestPendingAt()).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Should backfill empty tiers from raw up to the lag, then roll the hour tier from the minute tier")
+    void run_backfillsEmptyTiersInOrder() {
+        RollupTier minute = registry.tiers().get(0);
+        RollupTier hour = registry.tiers().get(1);
+
+        job.run();
+
+        verify(temperatureRollupPort).ensureBucket("bucket_1m", Duration.ofDays(180));
+        verify(temperatureRollupPort).ensureBucket("bucket_1h", Duration.ZERO);
+        ArgumentCaptor<Instant> start = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> stop = ArgumentCaptor.forClass(Instant.class);
+        verify(temperatureRollupPort).rollup(eq(null), eq(minute), start.capture(), stop.capture());
+        assertEquals(0, start.getValue().getEpochSecond() % 60);
+        assertEquals(0, stop.getValue().getEpochSecond() % 60);
+        assertTrue(stop.getValue().isBefore(Instant.now().minusSeconds(59)));
+        assertEquals(stop.getValue(), registry.coverage(minute).orElseThrow().until());
+
+        RollupTierRegistry.Coverage hourCoverage = registry.coverage(hour).orElseThrow();
+        assertEquals(0, hourCoverage.until().getEpochSecond() % 3600);
+        assertTrue(!hourCoverage.until().isAfter(stop.getValue()));
+        verify(temperatureRollupPort).rollup(eq(minute), eq(hour), eq(hourCoverage.from()), eq(hourCoverage.until()));
+    }
+
+    @Test
+    @DisplayName("Should continue after existing tier data and stop at the failed tier")
+    void run_resumesAndStopsOnFailure() {
+        RollupTier minute = registry.tiers().get(0);
+        RollupTier hour = registry.tiers().get(1);
+        Instant last = TemperatureRollupJob.alignDown(Instant.now().minus(Duration.ofMinutes(30)), Duration.ofMinutes(1));
+        when(temperatureRollupPort.findLastPointTime("bucket_1m")).thenReturn(Optional.of(last));
+        when(temperatureRollupPort.findFirstPointTime("bucket_1m")).thenReturn(Optional.of(last.minus(Duration.ofDays(3))));
+        Mockito.doThrow(new IllegalStateException("influx down"))
+                .when(temperatureRollupPort).rollup(eq(null), eq(minute), any(), any());
+
+        job.run();
+
+        verify(temperatureRollupPort).rollup(eq(null), eq(minute), eq(last.plusSeconds(60)), any());
+        verify(temperatureRollupPort, never()).rollup(eq(minute), eq(hour), any(), any());
+        assertEquals(last.plusSeconds(60), registry.coverage(minute).orElseThrow().until());
+        assertNull(registry.coverage(hour).orElse(null));
+        assertEquals(1.0, meterRegistry.counter("iot.ingestion.rollup.failure.total", "tier", "1m").count());
+    }
+
+    @Test
+    @DisplayName("Should hold the raw rollup behind the oldest pending spool entry")
+    void run_holdsRawRollupBehindPendingSpool() {
+        RollupTier minute = registry.tiers().get(0);
+        Instant last = TemperatureRollupJob.alignDown(Instant.now().minus(Duration.ofMinutes(30)), Duration.ofMinutes(1));
+        when(temperatureRollupPort.findLastPointTime("bucket_1m")).thenReturn(Optional.of(last));
+        when(temperatureRollupPort.findFirstPointTime("bucket_1m")).thenReturn(Optional.of(last));
+        Instant pendingAt = last.plus(Duration.ofMinutes(10)).plusSeconds(30);
+        when(temperatureSpoolPort.oldestPendingAt()).thenReturn(Optional.of(pendingAt));
+
+        job.run();
+
+        Instant expectedStop = TemperatureRollupJob.alignDown(pendingAt.minusSeconds(60), Duration.ofMinutes(1));
+        verify(temperatureRollupPort).rollup(eq(null), eq(minute), eq(last.plusSeconds(60)), eq(expectedStop));
+        assertEquals(expectedStop, registry.coverage(minute).orElseThrow().until());
+    }
+}
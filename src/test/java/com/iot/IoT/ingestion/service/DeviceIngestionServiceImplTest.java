@@ -2,9 +2,13 @@ package com.iot.IoT.ingestion.service;
 
 import com.iot.IoT.control.ControlDecisionEngine;
 import com.iot.IoT.ingestion.dto.DeviceState;
-import com.iot.IoT.ingestion.dto.DeviceStatusMessage;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.logging.HotPathLogSampler;
 import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
+import com.iot.IoT.ingestion.port.DeviceLastValuePort;
 import com.iot.IoT.ingestion.port.HeartbeatPort;
+import com.iot.IoT.ingestion.port.TemperatureSpoolPort;
+import com.iot.IoT.ingestion.port.TemperatureTimeSeriesBufferPort;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesPort;
 import com.iot.IoT.control.ControlAction;
 import com.iot.IoT.service.DeviceService;
@@ -13,9 +17,10 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
-import java.math.BigDecimal;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
@@ -27,29 +32,38 @@ class DeviceIngestionServiceImplTest {
 
     private static final String INFLUX_MODE_STRICT = "strict";
     private static final String INFLUX_MODE_BYPASS = "bypass";
+    private static final String INFLUX_MODE_BATCHED = "batched";
 
     private TemperatureTimeSeriesPort temperatureTimeSeriesPort;
+    private TemperatureTimeSeriesBufferPort temperatureTimeSeriesBufferPort;
+    private TemperatureSpoolPort temperatureSpoolPort;
     private HeartbeatPort heartbeatPort;
+    private DeviceLastValuePort deviceLastValuePort;
     private ControlDecisionEngine controlDecisionEngine;
     private IngestionMetricsCollector ingestionMetricsCollector;
     private DeviceService deviceService;
+    private HotPathLogSampler hotPathLogSampler;
     private DeviceIngestionServiceImpl service;
 
     @BeforeEach
     void setUp() {
         temperatureTimeSeriesPort = Mockito.mock(TemperatureTimeSeriesPort.class);
+        temperatureTimeSeriesBufferPort = Mockito.mock(TemperatureTimeSeriesBufferPort.class);
+        temperatureSpoolPort = Mockito.mock(TemperatureSpoolPort.class);
         heartbeatPort = Mockito.mock(HeartbeatPort.class);
+        deviceLastValuePort = Mockito.mock(DeviceLastValuePort.class);
         controlDecisionEngine = Mockito.mock(ControlDecisionEngine.class);
         ingestionMetricsCollector = Mockito.mock(IngestionMetricsCollector.class);
         deviceService = Mockito.mock(DeviceService.class);
+        hotPathLogSampler = Mockito.mock(HotPathLogSampler.class);
         service = createService(INFLUX_MODE_STRICT);
-        when(controlDecisionEngine.decide(any())).thenReturn(ControlAction.HEAT_ON);
+        when(controlDecisionEngine.decide(any(), anyDouble(), anyDouble(), any())).thenReturn(ControlAction.HEAT_ON);
     }
 
     @Test
     @DisplayName("Should write both Influx and Redis when ingestion succeeds")
     void ingest_success() {
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
 
         service.ingest(message);
 
@@ -61,14 +75,27 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, times(0)).recordRedisFailure();
         verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
         verify(ingestionMetricsCollector, times(1)).recordOverallPipelineSuccess();
-        verify(controlDecisionEngine, times(1)).decide(eq(message));
+        verify(controlDecisionEngine, times(1)).decide("SV-001", 60.5, 65.0, DeviceState.HEATING);
         verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
     }
 
+    @Test
+    @DisplayName("Should leave Redis success to the flush when heartbeats are coalesced")
+    void ingest_coalescedHeartbeat_noRedisSuccessAtEnqueue() {
+        DeviceTelemetry message = sampleMessage();
+        when(heartbeatPort.isCoalesced()).thenReturn(true);
+
+        service.ingest(message);
+
+        verify(heartbeatPort, times(1)).updateLastSeen(eq("SV-001"), any());
+        verify(ingestionMetricsCollector, never()).recordRedisSuccess();
+        verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
+    }
+
     @Test
     @DisplayName("Should still update Redis when Influx write fails")
     void ingest_influxFails_redisStillUpdates() {
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
         doThrow(new RuntimeException("influx down")).when(temperatureTimeSeriesPort).save(eq(message), any());
 
         service.ingest(message);
@@ -82,14 +109,15 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, times(0)).recordRedisFailure();
         verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
         verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
-        verify(controlDecisionEngine, times(1)).decide(eq(message));
+        verify(deviceLastValuePort, times(1)).update(eq(message), any());
+        verify(controlDecisionEngine, times(1)).decide("SV-001", 60.5, 65.0, DeviceState.HEATING);
         verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
     }
 
     @Test
     @DisplayName("Should still attempt Influx write when Redis update fails")
     void ingest_redisFails_influxStillWrites() {
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
         doThrow(new RuntimeException("redis down")).when(heartbeatPort).updateLastSeen(eq("SV-001"), any());
 
         service.ingest(message);
@@ -103,7 +131,7 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, times(1)).recordStorageReplayCandidate();
         verify(ingestionMetricsCollector, never()).recordCorePipelineSuccess();
         verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
-        verify(controlDecisionEngine, times(1)).decide(eq(message));
+        verify(controlDecisionEngine, times(1)).decide("SV-001", 60.5, 65.0, DeviceState.HEATING);
         verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
     }
 
@@ -111,7 +139,7 @@ class DeviceIngestionServiceImplTest {
     @DisplayName("Should bypass Influx write but still update Redis and control")
     void ingest_bypassMode_skipsInfluxButRunsRedisAndControl() {
         service = createService(INFLUX_MODE_BYPASS);
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
 
         service.ingest(message);
 
@@ -124,7 +152,7 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, never()).recordRedisFailure();
         verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
         verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
-        verify(controlDecisionEngine, times(1)).decide(eq(message));
+        verify(controlDecisionEngine, times(1)).decide("SV-001", 60.5, 65.0, DeviceState.HEATING);
         verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
     }
 
@@ -132,7 +160,7 @@ class DeviceIngestionServiceImplTest {
     @DisplayName("Should treat bypass mode case-insensitively and still run control when Redis fails")
     void ingest_bypassModeCaseInsensitive_redisFails_controlStillRuns() {
         service = createService("ByPaSs");
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
         doThrow(new RuntimeException("redis down")).when(heartbeatPort).updateLastSeen(eq("SV-001"), any());
 
         service.ingest(message);
@@ -146,14 +174,14 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, times(1)).recordRedisFailure();
         verify(ingestionMetricsCollector, never()).recordCorePipelineSuccess();
         verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
-        verify(controlDecisionEngine, times(1)).decide(eq(message));
+        verify(controlDecisionEngine, times(1)).decide("SV-001", 60.5, 65.0, DeviceState.HEATING);
         verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
     }
 
     @Test
     @DisplayName("Should classify control dispatch failure as replay candidate")
     void ingest_controlDispatchFails_replayCandidate() {
-        DeviceStatusMessage message = sampleMessage();
+        DeviceTelemetry message = sampleMessage();
         doThrow(new RuntimeException("publish down")).when(deviceService).sendAutoControlCommand(eq("SV-001"), any(), any());
 
         service.ingest(message);
@@ -165,22 +193,77 @@ class DeviceIngestionServiceImplTest {
         verify(ingestionMetricsCollector, times(1)).recordControlReplayCandidate();
     }
 
-    private DeviceStatusMessage sampleMessage() {
-        return new DeviceStatusMessage(
+    @Test
+    @DisplayName("Should enqueue point instead of blocking write in batched mode")
+    void ingest_batchedMode_enqueuesPoint() {
+        service = createService(INFLUX_MODE_BATCHED);
+        DeviceTelemetry message = sampleMessage();
+        when(temperatureTimeSeriesBufferPort.offer(eq(message), any())).thenReturn(true);
+
+        service.ingest(message);
+
+        verify(temperatureTimeSeriesPort, never()).save(any(), any());
+        verify(temperatureTimeSeriesBufferPort, times(1)).offer(eq(message), any());
+        verify(ingestionMetricsCollector, never()).recordInfluxBufferDropped();
+        verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
+        verify(ingestionMetricsCollector, times(1)).recordOverallPipelineSuccess();
+        verify(deviceService, times(1)).sendAutoControlCommand(eq("SV-001"), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should count dropped point when batch buffer is full")
+    void ingest_batchedMode_bufferFull_dropsPoint() {
+        service = createService(INFLUX_MODE_BATCHED);
+        DeviceTelemetry message = sampleMessage();
+        when(temperatureTimeSeriesBufferPort.offer(eq(message), any())).thenReturn(false);
+
+        service.ingest(message);
+
+        verify(ingestionMetricsCollector, times(1)).recordInfluxBufferDropped();
+        verify(ingestionMetricsCollector, times(1)).recordStorageReplayCandidate();
+        verify(ingestionMetricsCollector, times(1)).recordCorePipelineSuccess();
+        verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
+        verify(heartbeatPort, times(1)).updateLastSeen(eq("SV-001"), any());
+    }
+
+    @Test
+    @DisplayName("Should spool the point when Influx write fails or the batch buffer is full")
+    void ingest_influxUnavailable_spoolsPoint() {
+        DeviceTelemetry message = sampleMessage();
+        doThrow(new RuntimeException("influx down")).when(temperatureTimeSeriesPort).save(eq(message), any());
+        when(temperatureSpoolPort.spool(eq(message), any())).thenReturn(true);
+
+        service.ingest(message);
+
+        service = createService(INFLUX_MODE_BATCHED);
+        when(temperatureTimeSeriesBufferPort.offer(eq(message), any())).thenReturn(false);
+        service.ingest(message);
+
+        verify(temperatureSpoolPort, times(2)).spool(eq(message), any());
+        verify(ingestionMetricsCollector, never()).recordInfluxBufferDropped();
+        verify(ingestionMetricsCollector, never()).recordOverallPipelineSuccess();
+    }
+
+    private DeviceTelemetry sampleMessage() {
+        return new DeviceTelemetry(
                 "SV-001",
-                new BigDecimal("60.5"),
+                60.5,
                 DeviceState.HEATING,
-                new BigDecimal("65.0")
+                65.0
         );
     }
 
     private DeviceIngestionServiceImpl createService(String influxWriteMode) {
         return new DeviceIngestionServiceImpl(
                 temperatureTimeSeriesPort,
+                Optional.of(temperatureTimeSeriesBufferPort),
+                Optional.of(temperatureSpoolPort),
                 heartbeatPort,
+                deviceLastValuePort,
                 controlDecisionEngine,
                 ingestionMetricsCollector,
                 deviceService,
+                hotPathLogSampler,
                 influxWriteMode
         );
     }
@@ -0,0 +1,92 @@
+package com.iot.IoT.ingestion.spool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedSegmentLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read appended records in order across segments and drop consumed segments")
+    void appendReadTruncate() {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 64, 1024)) {
+            for (int index = 0; index < 10; index++) {
+                assertTrue(log.append(bytes("point-" + index), 1_000L + index));
+            }
+
+            List<MappedSegmentLog.Entry> first = log.read(log.head(), 4);
+            assertEquals(List.of("point-0", "point-1", "point-2", "point-3"), texts(first));
+            assertEquals(1_000L, first.get(0).appendedAtMillis());
+
+            MappedSegmentLog.Position cursor = first.get(first.size() - 1).next();
+            log.truncateBefore(cursor);
+            List<MappedSegmentLog.Entry> rest = log.read(cursor, 100);
+            assertEquals(6, rest.size());
+            assertEquals("point-9", texts(rest).get(5));
+            assertEquals(0L, log.bytesAfter(rest.get(5).next()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover written records after reopening")
+    void recoverAfterReopen() {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 64, 1024)) {
+            log.append(bytes("a"), 1L);
+            log.append(bytes("b"), 2L);
+        }
+
+        try (MappedSegmentLog reopened = new MappedSegmentLog(directory, 64, 1024)) {
+            reopened.append(bytes("c"), 3L);
+            assertEquals(List.of("a", "b", "c"), texts(reopened.read(reopened.head(), 10)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip segment files whose name is not a sequence number")
+    void recoverSkipsUnrecognizedSegmentFiles() throws IOException {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 64, 1024)) {
+            log.append(bytes("a"), 1L);
+        }
+        Files.write(directory.resolve("segment-copy.log"), new byte[64]);
+
+        try (MappedSegmentLog reopened = new MappedSegmentLog(directory, 64, 1024)) {
+            assertEquals(List.of("a"), texts(reopened.read(reopened.head(), 10)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should discard the oldest segments when exceeding the size limit and reject oversized records")
+    void retention() {
+        try (MappedSegmentLog log = new MappedSegmentLog(directory, 32, 64)) {
+            assertFalse(log.append(new byte[64], 1L));
+            for (int index = 0; index < 10; index++) {
+                log.append(bytes("p" + index), index);
+            }
+
+            List<String> remaining = texts(log.read(log.head(), 100));
+            assertTrue(log.droppedSegments() > 0);
+            assertEquals(List.of("p6", "p7", "p8", "p9"), remaining);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(List<MappedSegmentLog.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.payload(), StandardCharsets.UTF_8)).toList();
+    }
+}
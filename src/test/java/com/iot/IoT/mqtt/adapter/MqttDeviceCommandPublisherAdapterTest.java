@@ -0,0 +1,71 @@
+package com.iot.IoT.mqtt.adapter;
+
+import com.iot.IoT.service.exception.DeviceCommandPublishBusyException;
+import com.iot.IoT.service.exception.DeviceCommandPublishException;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class MqttDeviceCommandPublisherAdapterTest {
+
+    private IMqttAsyncClient client;
+    private MqttDeviceCommandPublisherAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MqttPahoClientFactory factory = Mockito.mock(MqttPahoClientFactory.class);
+        client = Mockito.mock(IMqttAsyncClient.class);
+        when(factory.getAsyncClientInstance(anyString(), anyString())).thenReturn(client);
+        when(client.isConnected()).thenReturn(true);
+        adapter = new MqttDeviceCommandPublisherAdapter(factory, "tcp://localhost:1883", "test", 1, 1, 5000, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        adapter.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should report busy without publishing when the in-flight window is full")
+    void publishAsync_windowFull() throws Exception {
+        when(client.publish(anyString(), any(MqttMessage.class), eq(null), any(IMqttActionListener.class)))
+                .thenReturn(null);
+        adapter.publishAsync("devices/SV-001/cmd", "{}");
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> adapter.publishAsync("devices/SV-001/cmd", "{}").join());
+
+        assertInstanceOf(DeviceCommandPublishBusyException.class, ex.getCause());
+        Mockito.verify(client, Mockito.times(1))
+                .publish(anyString(), any(MqttMessage.class), eq(null), any(IMqttActionListener.class));
+    }
+
+    @Test
+    @DisplayName("Should release the permit when publish throws an unexpected runtime exception")
+    void publishAsync_runtimeFailureReleasesPermit() throws Exception {
+        when(client.publish(anyString(), any(MqttMessage.class), eq(null), any(IMqttActionListener.class)))
+                .thenThrow(new IllegalStateException("client closed"));
+
+        for (int i = 0; i < 2; i++) {
+            CompletionException ex = assertThrows(CompletionException.class,
+                    () -> adapter.publishAsync("devices/SV-001/cmd", "{}").join());
+            assertInstanceOf(DeviceCommandPublishException.class, ex.getCause());
+            assertInstanceOf(IllegalStateException.class, ex.getCause().getCause());
+        }
+    }
+}
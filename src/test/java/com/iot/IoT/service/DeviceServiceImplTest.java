@@ -1,29 +1,42 @@
 package com.iot.IoT.service;
 
 import com.iot.IoT.control.ControlAction;
+import com.iot.IoT.control.ControlDispatchTracker;
 import com.iot.IoT.dto.CreateDeviceRequest;
 import com.iot.IoT.dto.DeviceCommandPageResponse;
 import com.iot.IoT.dto.DeviceCommandResponse;
 import com.iot.IoT.dto.DeviceControlPolicyResponse;
 import com.iot.IoT.dto.DevicePageResponse;
 import com.iot.IoT.dto.DeviceResponse;
+import com.iot.IoT.dto.DeviceStatusListResponse;
 import com.iot.IoT.dto.DeviceStatusResponse;
 import com.iot.IoT.dto.DeviceTemperaturePointResponse;
+import com.iot.IoT.dto.DeviceTemperatureExport;
 import com.iot.IoT.dto.DeviceTemperatureSeriesResponse;
+import com.iot.IoT.dto.TemperatureAggregate;
+import com.iot.IoT.dto.TemperatureExportFormat;
 import com.iot.IoT.entity.Device;
 import com.iot.IoT.entity.DeviceCommand;
 import com.iot.IoT.entity.DeviceCommandStatus;
 import com.iot.IoT.ingestion.dto.DeviceState;
+import com.iot.IoT.ingestion.dto.DeviceTelemetry;
+import com.iot.IoT.ingestion.lastvalue.DeviceLastValueCache;
+import com.iot.IoT.ingestion.metrics.IngestionMetricsCollector;
 import com.iot.IoT.ingestion.port.TemperatureTimeSeriesQueryPort;
 import com.iot.IoT.mqtt.port.DeviceCommandPublisherPort;
+import com.iot.IoT.registry.port.DeviceRegistryInvalidationPort;
+import com.iot.IoT.registry.service.DeviceRegistryCache;
 import com.iot.IoT.repository.DeviceCommandRepository;
 import com.iot.IoT.repository.DeviceRepository;
 import com.iot.IoT.service.exception.DeviceCommandNotFoundException;
+import com.iot.IoT.service.exception.DeviceCommandPublishBusyException;
 import com.iot.IoT.service.exception.DeviceNotFoundException;
 import com.iot.IoT.service.exception.DuplicateDeviceException;
+import com.iot.IoT.service.exception.ExportLimitExceededException;
 import com.iot.IoT.service.exception.InvalidDeviceQueryException;
 import com.iot.IoT.service.metrics.DownlinkMetricsRecorder;
 import com.iot.IoT.watchdog.port.WatchdogStatePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -31,12 +44,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -54,6 +74,9 @@ class DeviceServiceImplTest {
     private TemperatureTimeSeriesQueryPort temperatureTimeSeriesQueryPort;
     private DeviceCommandPublisherPort deviceCommandPublisherPort;
     private DownlinkMetricsRecorder downlinkMetricsRecorder;
+    private DeviceRegistryInvalidationPort deviceRegistryInvalidationPort;
+    private DeviceLastValueCache deviceLastValueCache;
+    private ControlDispatchTracker controlDispatchTracker;
     private DeviceServiceImpl deviceService;
 
     @BeforeEach
@@ -64,19 +87,44 @@ class DeviceServiceImplTest {
         temperatureTimeSeriesQueryPort = Mockito.mock(TemperatureTimeSeriesQueryPort.class);
         deviceCommandPublisherPort = Mockito.mock(DeviceCommandPublisherPort.class);
         downlinkMetricsRecorder = Mockito.mock(DownlinkMetricsRecorder.class);
+        deviceRegistryInvalidationPort = Mockito.mock(DeviceRegistryInvalidationPort.class);
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        deviceLastValueCache = new DeviceLastValueCache(
+                Optional.empty(),
+                new IngestionMetricsCollector(meterRegistry),
+                meterRegistry,
+                1000
+        );
+        DeviceRegistryCache deviceRegistryCache = new DeviceRegistryCache(
+                deviceRepository,
+                deviceRegistryInvalidationPort,
+                new SimpleMeterRegistry(),
+                1000,
+                300
+        );
         DeviceQueryService deviceQueryService = new DeviceQueryService(
                 deviceRepository,
                 deviceCommandRepository,
                 watchdogStatePort,
                 temperatureTimeSeriesQueryPort,
-                120
+                deviceLastValueCache,
+                deviceRegistryCache,
+                120,
+                true,
+                1
         );
-        DeviceControlPolicyService deviceControlPolicyService = new DeviceControlPolicyService(deviceRepository);
+        DeviceControlPolicyService deviceControlPolicyService =
+                new DeviceControlPolicyService(deviceRepository, deviceRegistryCache);
+        controlDispatchTracker = new ControlDispatchTracker("edge", 60);
         DeviceCommandService deviceCommandService = new DeviceCommandService(
                 deviceRepository,
                 deviceCommandRepository,
                 deviceCommandPublisherPort,
                 downlinkMetricsRecorder,
+                deviceRegistryCache,
+                controlDispatchTracker,
+                transactionManager,
                 10,
                 30,
                 30,
@@ -86,7 +134,11 @@ class DeviceServiceImplTest {
                 deviceCommandRepository,
                 deviceCommandPublisherPort,
                 downlinkMetricsRecorder,
-                10
+                controlDispatchTracker,
+                transactionManager,
+                10,
+                200,
+                2
         );
         deviceService = new DeviceServiceImpl(
                 deviceQueryService,
@@ -195,6 +247,82 @@ class DeviceServiceImplTest {
         assertEquals(DeviceState.HEATING, response.latestState());
     }
 
+    @Test
+    @DisplayName("Should serve latest telemetry from the last-value cache without querying Influx")
+    void getStatus_lastValueCacheHit() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant occurredAt = Instant.now().minusSeconds(1);
+        deviceLastValueCache.update(new DeviceTelemetry(
+                "SV-001",
+                61.2,
+                DeviceState.HOLDING,
+                65.0
+        ), occurredAt);
+        deviceLastValueCache.update(new DeviceTelemetry(
+                "SV-001",
+                59.0,
+                DeviceState.HEATING,
+                65.0
+        ), occurredAt.minusSeconds(5));
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(watchdogStatePort.findLastSeen("SV-001")).thenReturn(Optional.of(occurredAt));
+
+        DeviceStatusResponse response = deviceService.getStatus(1L);
+
+        assertEquals(java.math.BigDecimal.valueOf(61.2), response.latestTemp());
+        assertEquals(DeviceState.HOLDING, response.latestState());
+        assertEquals(occurredAt, response.latestOccurredAt());
+        verify(temperatureTimeSeriesQueryPort, never()).findLatest(any());
+    }
+
+    @Test
+    @DisplayName("Should resolve bulk status with one lookup per backend and fall back to Influx only for cache misses")
+    void getStatuses_batchesBackendLookups() {
+        Device first = sampleDevice(1L, "SV-001", true);
+        Device second = sampleDevice(2L, "SV-002", true);
+        Instant now = Instant.now();
+        deviceLastValueCache.update(new DeviceTelemetry(
+                "SV-001",
+                61.2,
+                DeviceState.HOLDING,
+                65.0
+        ), now.minusSeconds(1));
+        DeviceTemperaturePointResponse fromInflux = new DeviceTemperaturePointResponse(
+                now.minusSeconds(30),
+                java.math.BigDecimal.valueOf(40.0),
+                java.math.BigDecimal.valueOf(65.0),
+                DeviceState.HEATING
+        );
+        when(deviceRepository.findAllById(List.of(2L, 1L, 99L))).thenReturn(List.of(first, second));
+        when(watchdogStatePort.findLastSeenBatch(List.of("SV-002", "SV-001")))
+                .thenReturn(Map.of("SV-001", now.minusSeconds(5)));
+        when(temperatureTimeSeriesQueryPort.findLatestBatch(List.of("SV-002")))
+                .thenReturn(Map.of("SV-002", fromInflux));
+
+        DeviceStatusListResponse response = deviceService.getStatuses(List.of(2L, 1L, 2L, 99L));
+
+        assertEquals(List.of("SV-002", "SV-001"), response.items().stream().map(DeviceStatusResponse::deviceId).toList());
+        assertEquals(false, response.items().get(0).online());
+        assertEquals(DeviceState.HEATING, response.items().get(0).latestState());
+        assertEquals(true, response.items().get(1).online());
+        assertEquals(DeviceState.HOLDING, response.items().get(1).latestState());
+        verify(deviceRepository, times(1)).findAllById(any());
+        verify(watchdogStatePort, times(1)).findLastSeenBatch(any());
+        verify(temperatureTimeSeriesQueryPort, times(1)).findLatestBatch(any());
+        verify(watchdogStatePort, never()).findLastSeen(any());
+        verify(temperatureTimeSeriesQueryPort, never()).findLatest(any());
+        assertEquals(fromInflux, deviceLastValueCache.find("SV-002").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should reject bulk status requests over the batch limit")
+    void getStatuses_rejectsOversizedBatch() {
+        List<Long> ids = java.util.stream.LongStream.rangeClosed(1, 501).boxed().toList();
+
+        assertThrows(InvalidDeviceQueryException.class, () -> deviceService.getStatuses(ids));
+        verify(deviceRepository, never()).findAllById(any());
+    }
+
     @Test
     @DisplayName("Should return temperature series")
     void getTemperatures_success() {
@@ -212,7 +340,7 @@ class DeviceServiceImplTest {
         when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
         when(temperatureTimeSeriesQueryPort.findRange("SV-001", from, to, 50)).thenReturn(points);
 
-        DeviceTemperatureSeriesResponse response = deviceService.getTemperatures(1L, from, to, 50);
+        DeviceTemperatureSeriesResponse response = deviceService.getTemperatures(1L, from, to, 50, null, null);
 
         assertEquals("SV-001", response.deviceId());
         assertEquals(1, response.items().size());
@@ -228,7 +356,7 @@ class DeviceServiceImplTest {
         when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
 
         assertThrows(InvalidDeviceQueryException.class,
-                () -> deviceService.getTemperatures(1L, from, to, 10));
+                () -> deviceService.getTemperatures(1L, from, to, 10, null, null));
     }
 
     @Test
@@ -238,7 +366,121 @@ class DeviceServiceImplTest {
         when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
 
         assertThrows(InvalidDeviceQueryException.class,
-                () -> deviceService.getTemperatures(1L, Instant.now().minusSeconds(60), Instant.now(), 9999));
+                () -> deviceService.getTemperatures(1L, Instant.now().minusSeconds(60), Instant.now(), 9999, null, null));
+    }
+
+    @Test
+    @DisplayName("Should pick the aggregation window from the range and requested point count")
+    void getTemperatures_aggregatedAutoWindow() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant from = Instant.parse("2026-03-01T00:00:00Z");
+        Instant to = Instant.parse("2026-03-02T00:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(temperatureTimeSeriesQueryPort.findRangeAggregated(
+                "SV-001", from, to, java.time.Duration.ofSeconds(288), TemperatureAggregate.MAX, 300))
+                .thenReturn(List.of());
+
+        DeviceTemperatureSeriesResponse response = deviceService.getTemperatures(1L, from, to, 300, "max", null);
+
+        assertEquals(TemperatureAggregate.MAX, response.aggregate());
+        assertEquals(288L, response.resolutionSeconds());
+        verify(temperatureTimeSeriesQueryPort, never()).findRange(any(), any(), any(), org.mockito.ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("Should round the aggregation window up to whole minutes only when a rollup tier can serve it")
+    void getTemperatures_aggregatedWindowRoundedForRollup() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant from = Instant.parse("2026-03-01T00:00:00Z");
+        Instant to = Instant.parse("2026-03-02T00:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(temperatureTimeSeriesQueryPort.canServeFromRollup(from, to, java.time.Duration.ofSeconds(300)))
+                .thenReturn(true);
+        when(temperatureTimeSeriesQueryPort.findRangeAggregated(
+                "SV-001", from, to, java.time.Duration.ofSeconds(300), TemperatureAggregate.MAX, 300))
+                .thenReturn(List.of());
+
+        DeviceTemperatureSeriesResponse response = deviceService.getTemperatures(1L, from, to, 300, "max", null);
+
+        assertEquals(300L, response.resolutionSeconds());
+    }
+
+    @Test
+    @DisplayName("Should widen a too fine resolution so the window count stays within the limit")
+    void getTemperatures_resolutionWidenedToLimit() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant from = Instant.parse("2026-03-01T00:00:00Z");
+        Instant to = Instant.parse("2026-03-01T01:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+
+        DeviceTemperatureSeriesResponse coarse = deviceService.getTemperatures(1L, from, to, 200, null, "5m");
+        DeviceTemperatureSeriesResponse fine = deviceService.getTemperatures(1L, from, to, 200, null, "1s");
+
+        assertEquals(TemperatureAggregate.MEAN, coarse.aggregate());
+        assertEquals(300L, coarse.resolutionSeconds());
+        assertEquals(18L, fine.resolutionSeconds());
+        assertThrows(InvalidDeviceQueryException.class,
+                () -> deviceService.getTemperatures(1L, from, to, 200, "median", null));
+        assertThrows(InvalidDeviceQueryException.class,
+                () -> deviceService.getTemperatures(1L, from, to, 200, null, "5 minutes"));
+    }
+
+    @Test
+    @DisplayName("Should stream exported points to the output as CSV lines")
+    void exportTemperatures_streamsCsv() throws Exception {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant from = Instant.parse("2026-03-01T00:00:00Z");
+        Instant to = Instant.parse("2026-03-03T00:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        Mockito.doAnswer(invocation -> {
+            Consumer<DeviceTemperaturePointResponse> consumer = invocation.getArgument(3);
+            consumer.accept(new DeviceTemperaturePointResponse(
+                    Instant.parse("2026-03-01T00:00:01Z"),
+                    java.math.BigDecimal.valueOf(60.5),
+                    java.math.BigDecimal.valueOf(65.0),
+                    DeviceState.HEATING
+            ));
+            return null;
+        }).when(temperatureTimeSeriesQueryPort).streamRange(eq("SV-001"), eq(from), eq(to), any());
+
+        DeviceTemperatureExport export = deviceService.prepareTemperatureExport(1L, from, to, "csv");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        deviceService.exportTemperatures(export, output);
+
+        assertEquals(TemperatureExportFormat.CSV, export.format());
+        assertEquals("occurredAt,temp,targetTemp,state\n2026-03-01T00:00:01Z,60.5,65.0,HEATING\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should reject export ranges over the maximum and unknown formats")
+    void prepareTemperatureExport_invalidRequest() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant to = Instant.parse("2026-03-01T00:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+
+        assertThrows(InvalidDeviceQueryException.class,
+                () -> deviceService.prepareTemperatureExport(1L, to.minus(java.time.Duration.ofDays(32)), to, "ndjson"));
+        assertThrows(InvalidDeviceQueryException.class,
+                () -> deviceService.prepareTemperatureExport(1L, to.minusSeconds(60), to, "xml"));
+    }
+
+    @Test
+    @DisplayName("Should reject exports beyond the concurrency limit until a running export finishes, even when it fails")
+    void prepareTemperatureExport_concurrencyLimit() throws Exception {
+        Device device = sampleDevice(1L, "SV-001", true);
+        Instant to = Instant.parse("2026-03-01T00:00:00Z");
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        Mockito.doThrow(new IllegalStateException("Influx export query failed"))
+                .when(temperatureTimeSeriesQueryPort).streamRange(eq("SV-001"), any(), any(), any());
+
+        DeviceTemperatureExport running = deviceService.prepareTemperatureExport(1L, to.minusSeconds(60), to, "ndjson");
+        assertThrows(ExportLimitExceededException.class,
+                () -> deviceService.prepareTemperatureExport(1L, to.minusSeconds(60), to, "ndjson"));
+
+        assertThrows(IllegalStateException.class,
+                () -> deviceService.exportTemperatures(running, new ByteArrayOutputStream()));
+        deviceService.prepareTemperatureExport(1L, to.minusSeconds(60), to, "ndjson");
     }
 
     @Test
@@ -330,6 +572,35 @@ class DeviceServiceImplTest {
         assertEquals("publish failed", response.errorMessage());
     }
 
+    @Test
+    @DisplayName("Should keep command PENDING and due when the publish window is full")
+    void sendCommand_windowFull() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(deviceCommandRepository.save(any(DeviceCommand.class)))
+                .thenAnswer(invocation -> {
+                    DeviceCommand command = invocation.getArgument(0);
+                    if (command.getId() == null) {
+                        setId(command, 12L);
+                    }
+                    if (command.getRequestedAt() == null) {
+                        command.setRequestedAt(Instant.parse("2026-03-02T00:00:00Z"));
+                    }
+                    return command;
+                });
+        Mockito.doThrow(new DeviceCommandPublishBusyException("window full", null))
+                .when(deviceCommandPublisherPort)
+                .publish(eq("devices/SV-001/cmd"), any(String.class));
+
+        when(deviceCommandRepository.findByDevicePkAndIdempotencyKey(1L, "idem-busy")).thenReturn(Optional.empty());
+
+        DeviceCommandResponse response = deviceService.sendCommand(1L, ControlAction.HEAT_OFF, "idem-busy");
+
+        assertEquals(DeviceCommandStatus.PENDING, response.status());
+        assertEquals("window full", response.errorMessage());
+        verify(downlinkMetricsRecorder, never()).recordFailed();
+    }
+
     @Test
     @DisplayName("Should return command history with limit")
     void getCommands_success() {
@@ -400,9 +671,12 @@ class DeviceServiceImplTest {
         when(deviceCommandRepository.findByIdAndDevicePk(12L, 1L)).thenReturn(Optional.of(command));
         when(deviceCommandRepository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
+        controlDispatchTracker.tryIssue("SV-001", ControlAction.HEAT_ON, Instant.parse("2026-03-02T00:00:00Z"));
+
         DeviceCommandResponse response = deviceService.acknowledgeCommand(1L, 12L);
 
         assertEquals(DeviceCommandStatus.ACKED, response.status());
+        assertFalse(controlDispatchTracker.tryIssue("SV-001", ControlAction.HEAT_ON, Instant.parse("2026-03-02T00:10:00Z")));
     }
 
     @Test
@@ -433,6 +707,8 @@ class DeviceServiceImplTest {
                     }
                     return command;
                 });
+        when(deviceCommandPublisherPort.publishAsync(eq("devices/SV-001/cmd"), any(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         deviceService.sendAutoControlCommand(
                 "SV-001",
@@ -440,7 +716,71 @@ class DeviceServiceImplTest {
                 Instant.parse("2026-03-02T00:00:05Z")
         );
 
-        verify(deviceCommandPublisherPort, times(1)).publish(eq("devices/SV-001/cmd"), any(String.class));
+        verify(deviceCommandPublisherPort, times(1)).publishAsync(eq("devices/SV-001/cmd"), any(String.class));
+        verify(deviceCommandPublisherPort, never()).publish(any(String.class), any(String.class));
+        verify(deviceCommandRepository, times(1)).markSentIfPending(eq(21L), any(Instant.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Should mark auto control command FAILED when async publish completes exceptionally")
+    void sendAutoControlCommand_asyncPublishFail() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        when(deviceRepository.findByDeviceId("SV-001")).thenReturn(Optional.of(device));
+        when(deviceCommandRepository.findByDevicePkAndIdempotencyKey(eq(1L), any())).thenReturn(Optional.empty());
+        when(deviceCommandRepository.save(any(DeviceCommand.class)))
+                .thenAnswer(invocation -> {
+                    DeviceCommand command = invocation.getArgument(0);
+                    if (command.getId() == null) {
+                        setId(command, 22L);
+                    }
+                    if (command.getRequestedAt() == null) {
+                        command.setRequestedAt(Instant.parse("2026-03-02T00:00:00Z"));
+                    }
+                    return command;
+                });
+        when(deviceCommandPublisherPort.publishAsync(eq("devices/SV-001/cmd"), any(String.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        deviceService.sendAutoControlCommand(
+                "SV-001",
+                ControlAction.HEAT_OFF,
+                Instant.parse("2026-03-02T00:00:05Z")
+        );
+
+        verify(deviceCommandRepository, times(1)).markFailedIfPending(22L, "broker down");
+        verify(deviceCommandRepository, never()).markSentIfPending(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should leave auto control command PENDING when the publish window is full")
+    void sendAutoControlCommand_windowFull() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        when(deviceRepository.findByDeviceId("SV-001")).thenReturn(Optional.of(device));
+        when(deviceCommandRepository.findByDevicePkAndIdempotencyKey(eq(1L), any())).thenReturn(Optional.empty());
+        when(deviceCommandRepository.save(any(DeviceCommand.class)))
+                .thenAnswer(invocation -> {
+                    DeviceCommand command = invocation.getArgument(0);
+                    if (command.getId() == null) {
+                        setId(command, 23L);
+                    }
+                    if (command.getRequestedAt() == null) {
+                        command.setRequestedAt(Instant.parse("2026-03-02T00:00:00Z"));
+                    }
+                    return command;
+                });
+        when(deviceCommandPublisherPort.publishAsync(eq("devices/SV-001/cmd"), any(String.class)))
+                .thenReturn(CompletableFuture.failedFuture(new DeviceCommandPublishBusyException("window full", null)));
+
+        deviceService.sendAutoControlCommand(
+                "SV-001",
+                ControlAction.HEAT_OFF,
+                Instant.parse("2026-03-02T00:00:05Z")
+        );
+
+        verify(deviceCommandRepository, never()).markFailedIfPending(any(), any());
+        verify(deviceCommandRepository, never()).markSentIfPending(any(), any(), any());
+        verify(downlinkMetricsRecorder, times(1)).recordPublishDeferred();
+        verify(downlinkMetricsRecorder, never()).recordFailed();
     }
 
     @Test
@@ -459,6 +799,55 @@ class DeviceServiceImplTest {
         verify(deviceCommandRepository, never()).save(any(DeviceCommand.class));
     }
 
+    @Test
+    @DisplayName("Should serve auto control device lookups from registry cache until the device is updated")
+    void sendAutoControlCommand_registryCacheInvalidatedOnUpdate() {
+        Device device = sampleDevice(1L, "SV-001", false);
+        when(deviceRepository.findByDeviceId("SV-001")).thenReturn(Optional.of(device));
+        when(deviceRepository.findById(1L)).thenReturn(Optional.of(device));
+        when(deviceRepository.save(any(Device.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Instant decidedAt = Instant.parse("2026-03-02T00:00:05Z");
+
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_ON, decidedAt);
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_ON, decidedAt);
+        verify(deviceRepository, times(1)).findByDeviceId("SV-001");
+
+        deviceService.updateEnabled(1L, false);
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_ON, decidedAt);
+
+        verify(deviceRegistryInvalidationPort, times(1)).broadcast("SV-001");
+        verify(deviceRepository, times(2)).findByDeviceId("SV-001");
+    }
+
+    @Test
+    @DisplayName("Should suppress a repeated auto control action until it changes")
+    void sendAutoControlCommand_repeatedActionSuppressed() {
+        Device device = sampleDevice(1L, "SV-001", true);
+        when(deviceRepository.findByDeviceId("SV-001")).thenReturn(Optional.of(device));
+        when(deviceCommandRepository.findByDevicePkAndIdempotencyKey(eq(1L), any())).thenReturn(Optional.empty());
+        when(deviceCommandRepository.save(any(DeviceCommand.class)))
+                .thenAnswer(invocation -> {
+                    DeviceCommand command = invocation.getArgument(0);
+                    if (command.getId() == null) {
+                        setId(command, 23L);
+                    }
+                    if (command.getRequestedAt() == null) {
+                        command.setRequestedAt(Instant.parse("2026-03-02T00:00:00Z"));
+                    }
+                    return command;
+                });
+        when(deviceCommandPublisherPort.publishAsync(eq("devices/SV-001/cmd"), any(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_ON, Instant.parse("2026-03-02T00:00:05Z"));
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_ON, Instant.parse("2026-03-02T00:00:06Z"));
+        deviceService.sendAutoControlCommand("SV-001", ControlAction.HEAT_OFF, Instant.parse("2026-03-02T00:00:07Z"));
+
+        verify(deviceCommandPublisherPort, times(2)).publishAsync(eq("devices/SV-001/cmd"), any(String.class));
+        verify(deviceCommandRepository, times(2)).findByDevicePkAndIdempotencyKey(eq(1L), any());
+        verify(downlinkMetricsRecorder, times(1)).recordAutoControlSuppressed();
+    }
+
     @Test
     @DisplayName("Should skip auto control hold action")
     void sendAutoControlCommand_holdAction() {
@@ -473,24 +862,15 @@ class DeviceServiceImplTest {
     }
 
     @Test
-    @DisplayName("Should expire command when ack timeout is reached")
+    @DisplayName("Should expire overdue commands with a single bulk update")
     void processCommandReliability_expire() {
-        DeviceCommand command = new DeviceCommand();
-        command.setStatus(DeviceCommandStatus.SENT);
-        command.setTopic("devices/SV-001/cmd");
-        command.setPayload("{\"commandId\":1}");
-        command.setRetryCount(0);
-        command.setMaxRetries(3);
-        command.setExpireAt(Instant.now().minusSeconds(1));
-        command.setRequestedAt(Instant.now().minusSeconds(10));
-        command.setIdempotencyKey("exp-1");
-
-        when(deviceCommandRepository.findByStatusIn(any())).thenReturn(List.of(command));
-        when(deviceCommandRepository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(deviceCommandRepository.expireOverdue(any(), any(Instant.class), eq("ack timeout expired"))).thenReturn(2);
 
         deviceService.processCommandReliability();
 
-        assertEquals(DeviceCommandStatus.EXPIRED, command.getStatus());
+        verify(downlinkMetricsRecorder, times(1)).recordExpired(2);
+        verify(deviceCommandRepository, never()).save(any(DeviceCommand.class));
+        verify(deviceCommandPublisherPort, never()).publish(any(String.class), any(String.class));
     }
 
     @Test
@@ -507,16 +887,64 @@ class DeviceServiceImplTest {
         command.setNextRetryAt(Instant.now().minusSeconds(1));
         command.setIdempotencyKey("retry-1");
 
-        when(deviceCommandRepository.findByStatusIn(any())).thenReturn(List.of(command));
+        when(deviceCommandRepository.findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(Instant.EPOCH), eq(0L), any()))
+                .thenReturn(List.of(command));
         when(deviceCommandRepository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(deviceCommandPublisherPort.publishAsync(any(String.class), any(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         deviceService.processCommandReliability();
 
-        verify(deviceCommandPublisherPort, times(1)).publish(eq("devices/SV-001/cmd"), eq("{\"commandId\":2}"));
+        verify(deviceCommandPublisherPort, times(1)).publishAsync(eq("devices/SV-001/cmd"), eq("{\"commandId\":2}"));
         assertEquals(1, command.getRetryCount());
         assertEquals(DeviceCommandStatus.SENT, command.getStatus());
     }
 
+    @Test
+    @DisplayName("Should not count a full publish window as a retry attempt")
+    void processCommandReliability_windowFullIsNotRetry() {
+        DeviceCommand command = dueCommand("retry-busy", 2);
+        command.setRetryCount(2);
+
+        when(deviceCommandRepository.findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(Instant.EPOCH), eq(0L), any()))
+                .thenReturn(List.of(command));
+        when(deviceCommandPublisherPort.publishAsync(any(String.class), any(String.class)))
+                .thenReturn(CompletableFuture.failedFuture(new DeviceCommandPublishBusyException("window full", null)));
+
+        deviceService.processCommandReliability();
+
+        assertEquals(2, command.getRetryCount());
+        assertEquals(DeviceCommandStatus.SENT, command.getStatus());
+        verify(deviceCommandRepository, never()).save(any(DeviceCommand.class));
+        verify(downlinkMetricsRecorder, times(1)).recordPublishDeferred();
+        verify(downlinkMetricsRecorder, never()).recordFailed();
+    }
+
+    @Test
+    @DisplayName("Should settle one publish window before putting the next one in flight")
+    void processCommandReliability_publishesChunkInWindows() {
+        DeviceCommand first = dueCommand("window-1", 1);
+        DeviceCommand second = dueCommand("window-2", 2);
+        DeviceCommand third = dueCommand("window-3", 3);
+
+        when(deviceCommandRepository.findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(Instant.EPOCH), eq(0L), any()))
+                .thenReturn(List.of(first, second, third));
+        when(deviceCommandRepository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(deviceCommandPublisherPort.publishAsync(any(String.class), any(String.class)))
+                .thenAnswer(invocation -> {
+                    if (invocation.getArgument(1).equals(third.getPayload())) {
+                        assertEquals(1, first.getRetryCount());
+                        assertEquals(1, second.getRetryCount());
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+
+        deviceService.processCommandReliability();
+
+        verify(deviceCommandPublisherPort, times(3)).publishAsync(any(String.class), any(String.class));
+        assertEquals(1, third.getRetryCount());
+    }
+
     @Test
     @DisplayName("Should throw invalid query when command limit is out of range")
     void getCommands_invalidLimit() {
@@ -527,6 +955,62 @@ class DeviceServiceImplTest {
                 () -> deviceService.getCommands(1L, 999));
     }
 
+    @Test
+    @DisplayName("Should page due commands on (nextRetryAt, id) captured before the retry moves nextRetryAt")
+    void processCommandReliability_pagesAcrossChunks() {
+        Instant firstDue = Instant.now().minusSeconds(30);
+        Instant secondDue = Instant.now().minusSeconds(20);
+        DeviceCommand first = dueCommand("page-1", 1);
+        first.setNextRetryAt(firstDue);
+        setId(first, 31L);
+        DeviceCommand second = dueCommand("page-2", 2);
+        second.setNextRetryAt(secondDue);
+        setId(second, 32L);
+        DeviceCommand third = dueCommand("page-3", 3);
+        setId(third, 33L);
+        DeviceCommandReliabilityService reliabilityService = new DeviceCommandReliabilityService(
+                deviceCommandRepository,
+                deviceCommandPublisherPort,
+                downlinkMetricsRecorder,
+                new ControlDispatchTracker("edge", 60),
+                Mockito.mock(PlatformTransactionManager.class),
+                10,
+                2,
+                2
+        );
+
+        when(deviceCommandRepository.findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(Instant.EPOCH), eq(0L), any()))
+                .thenReturn(List.of(first, second));
+        when(deviceCommandRepository.findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(secondDue), eq(32L), any()))
+                .thenReturn(List.of(third));
+        when(deviceCommandRepository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(deviceCommandPublisherPort.publishAsync(any(String.class), any(String.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        reliabilityService.processCommandReliability();
+
+        verify(deviceCommandRepository, times(1))
+                .findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), eq(secondDue), eq(32L), any());
+        verify(deviceCommandRepository, times(2))
+                .findDueForRetry(eq(DeviceCommandStatus.SENT), any(Instant.class), any(Instant.class), any(Long.class), any());
+        verify(deviceCommandPublisherPort, times(3)).publishAsync(any(String.class), any(String.class));
+        assertEquals(1, third.getRetryCount());
+    }
+
+    private DeviceCommand dueCommand(String idempotencyKey, long commandId) {
+        DeviceCommand command = new DeviceCommand();
+        command.setStatus(DeviceCommandStatus.SENT);
+        command.setTopic("devices/SV-001/cmd");
+        command.setPayload("{\"commandId\":" + commandId + "}");
+        command.setRetryCount(0);
+        command.setMaxRetries(3);
+        command.setRequestedAt(Instant.now().minusSeconds(10));
+        command.setExpireAt(Instant.now().plusSeconds(20));
+        command.setNextRetryAt(Instant.now().minusSeconds(1));
+        command.setIdempotencyKey(idempotencyKey);
+        return command;
+    }
+
     private Device sampleDevice(Long id, String deviceId, boolean enabled) {
         Device device = new Device();
         device.setDeviceId(deviceId);
@@ -3,6 +3,7 @@ package com.iot.IoT.watchdog.service;
 import com.iot.IoT.watchdog.event.DeviceOfflineEvent;
 import com.iot.IoT.watchdog.port.FailSafeEventPublisher;
 import com.iot.IoT.watchdog.port.WatchdogStatePort;
+import com.iot.IoT.watchdog.shard.WatchdogShardCoordinator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,12 +11,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.time.Instant;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -26,20 +29,22 @@ class WatchdogServiceTest {
 
     private WatchdogStatePort watchdogStatePort;
     private FailSafeEventPublisher failSafeEventPublisher;
+    private WatchdogShardCoordinator watchdogShardCoordinator;
     private WatchdogService watchdogService;
 
     @BeforeEach
     void setUp() {
         watchdogStatePort = Mockito.mock(WatchdogStatePort.class);
         failSafeEventPublisher = Mockito.mock(FailSafeEventPublisher.class);
-        watchdogService = new WatchdogService(watchdogStatePort, failSafeEventPublisher);
+        watchdogShardCoordinator = Mockito.mock(WatchdogShardCoordinator.class);
+        watchdogService = new WatchdogService(watchdogStatePort, failSafeEventPublisher, watchdogShardCoordinator, "scan", 120, 1000);
     }
 
     @Test
     @DisplayName("Should not publish event when heartbeat is alive")
     void scanAndPublishOfflineEvents_alive() {
         when(watchdogStatePort.findTrackedDeviceIds()).thenReturn(Set.of("SV-001"));
-        when(watchdogStatePort.isHeartbeatAlive("SV-001")).thenReturn(true);
+        when(watchdogStatePort.findAliveness(Set.of("SV-001"))).thenReturn(Map.of("SV-001", true));
 
         watchdogService.scanAndPublishOfflineEvents();
 
@@ -51,9 +56,9 @@ class WatchdogServiceTest {
     void scanAndPublishOfflineEvents_offline() {
         Instant lastSeen = Instant.now().minusSeconds(180);
         when(watchdogStatePort.findTrackedDeviceIds()).thenReturn(Set.of("SV-001"));
-        when(watchdogStatePort.isHeartbeatAlive("SV-001")).thenReturn(false);
-        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq("SV-001"), any())).thenReturn(true);
-        when(watchdogStatePort.findLastSeen("SV-001")).thenReturn(Optional.of(lastSeen));
+        when(watchdogStatePort.findAliveness(Set.of("SV-001"))).thenReturn(Map.of("SV-001", false));
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq(List.of("SV-001")), any())).thenReturn(Set.of("SV-001"));
+        when(watchdogStatePort.findLastSeenBatch(Set.of("SV-001"))).thenReturn(Map.of("SV-001", lastSeen));
 
         watchdogService.scanAndPublishOfflineEvents();
 
@@ -71,8 +76,8 @@ class WatchdogServiceTest {
     @DisplayName("Should suppress duplicate notification within cooldown")
     void scanAndPublishOfflineEvents_duplicateSuppressed() {
         when(watchdogStatePort.findTrackedDeviceIds()).thenReturn(Set.of("SV-001"));
-        when(watchdogStatePort.isHeartbeatAlive("SV-001")).thenReturn(false);
-        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq("SV-001"), any())).thenReturn(false);
+        when(watchdogStatePort.findAliveness(Set.of("SV-001"))).thenReturn(Map.of("SV-001", false));
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq(List.of("SV-001")), any())).thenReturn(Set.of());
 
         watchdogService.scanAndPublishOfflineEvents();
 
@@ -83,15 +88,68 @@ class WatchdogServiceTest {
     @DisplayName("Should publish again after cooldown expires")
     void scanAndPublishOfflineEvents_publishAfterCooldown() {
         when(watchdogStatePort.findTrackedDeviceIds()).thenReturn(Set.of("SV-001"));
-        when(watchdogStatePort.isHeartbeatAlive("SV-001")).thenReturn(false);
-        when(watchdogStatePort.findLastSeen("SV-001")).thenReturn(Optional.empty());
-        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq("SV-001"), any()))
-                .thenReturn(false)
-                .thenReturn(true);
+        when(watchdogStatePort.findAliveness(Set.of("SV-001"))).thenReturn(Map.of("SV-001", false));
+        when(watchdogStatePort.findLastSeenBatch(Set.of("SV-001"))).thenReturn(Map.of());
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq(List.of("SV-001")), any()))
+                .thenReturn(Set.of())
+                .thenReturn(Set.of("SV-001"));
 
         watchdogService.scanAndPublishOfflineEvents();
         watchdogService.scanAndPublishOfflineEvents();
 
         verify(failSafeEventPublisher, times(1)).publishDeviceOffline(any());
     }
+
+    @Test
+    @DisplayName("Should resolve a whole fleet with batch lookups instead of per-device calls")
+    void scanAndPublishOfflineEvents_batchLookups() {
+        Set<String> tracked = Set.of("SV-001", "SV-002", "SV-003");
+        when(watchdogStatePort.findTrackedDeviceIds()).thenReturn(tracked);
+        when(watchdogStatePort.findAliveness(tracked))
+                .thenReturn(Map.of("SV-001", true, "SV-002", false, "SV-003", false));
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(anyCollection(), any())).thenReturn(Set.of("SV-002"));
+        when(watchdogStatePort.findLastSeenBatch(Set.of("SV-002"))).thenReturn(Map.of());
+
+        watchdogService.scanAndPublishOfflineEvents();
+
+        ArgumentCaptor<DeviceOfflineEvent> captor = ArgumentCaptor.forClass(DeviceOfflineEvent.class);
+        verify(failSafeEventPublisher, times(1)).publishDeviceOffline(captor.capture());
+        assertEquals("SV-002", captor.getValue().deviceId());
+        verify(watchdogStatePort, never()).isHeartbeatAlive(any());
+        verify(watchdogStatePort, never()).findLastSeen(any());
+    }
+
+    @Test
+    @DisplayName("Should read only expired devices from deadline index and defer them after notifying")
+    void scanAndPublishOfflineEvents_deadlineIndexMode() {
+        watchdogService = new WatchdogService(watchdogStatePort, failSafeEventPublisher, watchdogShardCoordinator, "deadline-index", 120, 1000);
+        when(watchdogStatePort.findDevicesLastSeenBefore(any(), eq(1000))).thenReturn(Set.of("SV-009"));
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq(Set.of("SV-009")), any()))
+                .thenReturn(Set.of("SV-009"));
+        when(watchdogStatePort.findLastSeenBatch(Set.of("SV-009"))).thenReturn(Map.of());
+
+        watchdogService.scanAndPublishOfflineEvents();
+
+        verify(failSafeEventPublisher, times(1)).publishDeviceOffline(any());
+        verify(watchdogStatePort, times(1)).deferExpiredDevices(eq(Set.of("SV-009")), any());
+        verify(watchdogStatePort, never()).findTrackedDeviceIds();
+        verify(watchdogStatePort, never()).findAliveness(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should scan only the shards this node holds a lease on when sharding is enabled")
+    void scanAndPublishOfflineEvents_shardedScansOwnedShardsOnly() {
+        when(watchdogShardCoordinator.isEnabled()).thenReturn(true);
+        when(watchdogShardCoordinator.ownedShards()).thenReturn(Set.of(3));
+        when(watchdogStatePort.findTrackedDeviceIds(3)).thenReturn(Set.of("SV-003"));
+        when(watchdogStatePort.findAliveness(Set.of("SV-003"))).thenReturn(Map.of("SV-003", false));
+        when(watchdogStatePort.markOfflineNotifiedIfAbsent(eq(List.of("SV-003")), any())).thenReturn(Set.of("SV-003"));
+        when(watchdogStatePort.findLastSeenBatch(Set.of("SV-003"))).thenReturn(Map.of());
+
+        watchdogService.scanAndPublishOfflineEvents();
+
+        verify(failSafeEventPublisher, times(1)).publishDeviceOffline(any());
+        verify(watchdogStatePort, never()).findTrackedDeviceIds();
+        verify(watchdogStatePort, times(1)).findTrackedDeviceIds(3);
+    }
 }
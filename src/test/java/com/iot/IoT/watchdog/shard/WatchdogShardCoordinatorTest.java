@@ -0,0 +1,77 @@
+package com.iot.IoT.watchdog.shard;
+
+import com.iot.IoT.watchdog.port.WatchdogShardLeasePort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WatchdogShardCoordinatorTest {
+
+    private WatchdogShardLeasePort watchdogShardLeasePort;
+    private WatchdogShardCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        watchdogShardLeasePort = Mockito.mock(WatchdogShardLeasePort.class);
+        coordinator = new WatchdogShardCoordinator(watchdogShardLeasePort, true, 4, 15000, "node-a");
+    }
+
+    @Test
+    @DisplayName("Should claim every shard when it is the only live node")
+    void renewLeases_singleNodeClaimsAll() {
+        when(watchdogShardLeasePort.registerNode(eq("node-a"), any(), any())).thenReturn(1);
+        when(watchdogShardLeasePort.acquireOrRenew(anyInt(), eq("node-a"), any())).thenReturn(true);
+
+        coordinator.renewLeases();
+
+        assertEquals(Set.of(0, 1, 2, 3), coordinator.ownedShards());
+    }
+
+    @Test
+    @DisplayName("Should hand back surplus shards when another node joins")
+    void renewLeases_releasesSurplusWhenNodeJoins() {
+        when(watchdogShardLeasePort.registerNode(eq("node-a"), any(), any())).thenReturn(1).thenReturn(2);
+        when(watchdogShardLeasePort.acquireOrRenew(anyInt(), eq("node-a"), any())).thenReturn(true);
+
+        coordinator.renewLeases();
+        coordinator.renewLeases();
+
+        assertEquals(2, coordinator.ownedShards().size());
+        verify(watchdogShardLeasePort, Mockito.times(2)).release(anyInt(), eq("node-a"));
+    }
+
+    @Test
+    @DisplayName("Should skip shards whose lease is held by another node")
+    void renewLeases_skipsForeignLeases() {
+        when(watchdogShardLeasePort.registerNode(eq("node-a"), any(), any())).thenReturn(1);
+        when(watchdogShardLeasePort.acquireOrRenew(anyInt(), eq("node-a"), any()))
+                .thenAnswer(invocation -> (int) invocation.getArgument(0) % 2 == 0);
+
+        coordinator.renewLeases();
+
+        assertEquals(Set.of(0, 2), coordinator.ownedShards());
+    }
+
+    @Test
+    @DisplayName("Should not touch Redis when sharding is disabled")
+    void renewLeases_disabled() {
+        coordinator = new WatchdogShardCoordinator(watchdogShardLeasePort, false, 4, 15000, "node-a");
+
+        coordinator.renewLeases();
+
+        assertTrue(coordinator.ownedShards().isEmpty());
+        verify(watchdogShardLeasePort, never()).registerNode(any(), any(), any());
+    }
+}